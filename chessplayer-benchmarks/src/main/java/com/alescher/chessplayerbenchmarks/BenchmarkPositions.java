@@ -0,0 +1,52 @@
+package com.alescher.chessplayerbenchmarks;
+
+import java.util.List;
+
+/**
+ * The fixed corpus of positions all benchmarks run over, grouped by the phase of the game.
+ * Each position comes with a legal move so that it can also be used to benchmark making moves.
+ *
+ * @author AlEscher
+ */
+public final class BenchmarkPositions
+{
+	/**
+	 * @param fen The position in Forsyth-Edwards Notation
+	 * @param fromTile The tile of a piece of the side to move, e.g. "E2"
+	 * @param toTile A tile that piece can legally move to
+	 */
+	public record CorpusPosition(String fen, String fromTile, String toTile) {}
+
+	public enum Phase
+	{
+		OPENING(List.of(
+				new CorpusPosition("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "E2", "E4"),
+				new CorpusPosition("rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 0 2", "G1", "F3"),
+				new CorpusPosition("r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3", "G8", "F6")
+		)),
+		MIDDLEGAME(List.of(
+				new CorpusPosition("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "E1", "G1"),
+				new CorpusPosition("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", "C3", "D5"),
+				new CorpusPosition("r1bqkb1r/pppp1Bpp/2n2n2/4p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 0 4", "E8", "F7")
+		)),
+		ENDGAME(List.of(
+				new CorpusPosition("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "E2", "E4"),
+				new CorpusPosition("8/8/8/4k3/8/8/4P3/4K3 w - - 0 1", "E1", "D2"),
+				new CorpusPosition("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1", "D1", "D8")
+		));
+
+		private final List<CorpusPosition> positions;
+
+		Phase(List<CorpusPosition> positions)
+		{
+			this.positions = positions;
+		}
+
+		public List<CorpusPosition> getPositions()
+		{
+			return positions;
+		}
+	}
+
+	private BenchmarkPositions() {}
+}
@@ -0,0 +1,36 @@
+package com.alescher.chessplayerbenchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point of <code>benchmarks.jar</code>. Accepts the usual JMH command line options
+ * and always adds the GC profiler, so that the allocation rate per operation is reported next to the throughput.
+ * <p>
+ * Usage: <code>java -jar chessplayer-benchmarks/target/benchmarks.jar [JMH options] [benchmark regex]</code>
+ *
+ * @author AlEscher
+ */
+public class BenchmarkRunner
+{
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException
+	{
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList())
+		{
+			// Let JMH print its help or the benchmark list
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		new Runner(new OptionsBuilder()
+				.parent(commandLineOptions)
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
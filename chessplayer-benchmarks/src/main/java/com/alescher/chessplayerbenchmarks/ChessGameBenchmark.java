@@ -0,0 +1,146 @@
+package com.alescher.chessplayerbenchmarks;
+
+import com.alescher.chessplayerbenchmarks.BenchmarkPositions.CorpusPosition;
+import com.alescher.chessplayerbenchmarks.BenchmarkPositions.Phase;
+import com.alescher.chessplayerserver.engine.Bitboards;
+import com.alescher.chessplayerserver.engine.Square;
+import com.alescher.chessplayerserver.model.ChessGame;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the rules engine behind the REST endpoints.
+ * Every operation runs over all positions of one {@link Phase} of the corpus.
+ *
+ * @author AlEscher
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChessGameBenchmark
+{
+	@Param({ "OPENING", "MIDDLEGAME", "ENDGAME" })
+	public Phase phase;
+
+	private List<CorpusPosition> positions;
+	private ChessGame[] games;
+	/** The squares of the pieces of the side to move, per game */
+	private Point[][] ownPieces;
+	/** The squares of the corpus move, per game */
+	private int[] moveFrom;
+	private int[] moveTo;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		positions = phase.getPositions();
+		games = new ChessGame[positions.size()];
+		ownPieces = new Point[positions.size()][];
+		moveFrom = new int[positions.size()];
+		moveTo = new int[positions.size()];
+		for (int i = 0; i < games.length; i++)
+		{
+			CorpusPosition position = positions.get(i);
+			games[i] = ChessGame.fromFEN(position.fen());
+			if (!games[i].isLegalMove(position.fromTile(), position.toTile()))
+				throw new IllegalStateException(String.format("Illegal corpus move %s-%s in %s", position.fromTile(), position.toTile(), position.fen()));
+
+			long pieces = games[i].getPosition().occupancy(games[i].getPosition().getSideToMove());
+			List<Point> points = new ArrayList<>(Bitboards.count(pieces));
+			for (; pieces != 0; pieces &= pieces - 1)
+				points.add(Square.toPoint(Bitboards.lsb(pieces)));
+			ownPieces[i] = points.toArray(new Point[0]);
+			moveFrom[i] = Square.fromTile(position.fromTile());
+			moveTo[i] = Square.fromTile(position.toTile());
+		}
+	}
+
+	/**
+	 * A move changes the game, so each invocation gets new games.
+	 * This is acceptable as a single invocation is well above the timer resolution,
+	 * and it lives in its own state so that the other benchmarks do not pay for it.
+	 */
+	@State(Scope.Thread)
+	public static class FreshGames
+	{
+		@Param({ "OPENING", "MIDDLEGAME", "ENDGAME" })
+		public Phase phase;
+
+		private ChessGame[] games;
+
+		@Setup(Level.Invocation)
+		public void setUp()
+		{
+			List<CorpusPosition> positions = phase.getPositions();
+			games = new ChessGame[positions.size()];
+			for (int i = 0; i < games.length; i++)
+				games[i] = ChessGame.fromFEN(positions.get(i).fen());
+		}
+	}
+
+	@Benchmark
+	public void performMove(FreshGames freshGames, Blackhole blackhole)
+	{
+		for (int i = 0; i < freshGames.games.length; i++)
+			blackhole.consume(freshGames.games[i].performMove(positions.get(i).fromTile(), positions.get(i).toTile()));
+	}
+
+	/**
+	 * Looks up the moves of every piece of the side to move, as the get-moves endpoint does when a piece is picked up.
+	 * The legal moves of a game are cached, so after the first invocation this only measures cache hits.
+	 */
+	@Benchmark
+	public void getLegalMoves(Blackhole blackhole)
+	{
+		for (int i = 0; i < games.length; i++)
+		{
+			for (Point piece : ownPieces[i])
+				blackhole.consume(games[i].getLegalMoves(piece));
+		}
+	}
+
+	/**
+	 * Like {@link #getLegalMoves(Blackhole)}, but the legal moves are generated anew, as they are after every move.
+	 * Simulating the corpus move and taking it back empties the cache, which is measured as well.
+	 */
+	@Benchmark
+	public void getLegalMovesUncached(Blackhole blackhole)
+	{
+		for (int i = 0; i < games.length; i++)
+		{
+			games[i].simulateMove(moveFrom[i], moveTo[i], false);
+			games[i].undoMove();
+			for (Point piece : ownPieces[i])
+				blackhole.consume(games[i].getLegalMoves(piece));
+		}
+	}
+
+	@Benchmark
+	public void detectCheckMate(Blackhole blackhole)
+	{
+		for (ChessGame game : games)
+			blackhole.consume(game.getCheckUtility().detectCheckMate());
+	}
+
+	@Benchmark
+	public void toFEN(Blackhole blackhole)
+	{
+		for (ChessGame game : games)
+			blackhole.consume(game.toFEN());
+	}
+
+	@Benchmark
+	public void fromFEN(Blackhole blackhole)
+	{
+		for (CorpusPosition position : positions)
+			blackhole.consume(ChessGame.fromFEN(position.fen()));
+	}
+}
@@ -0,0 +1,50 @@
+package com.alescher.chessplayerbenchmarks;
+
+import com.alescher.chessplayerbenchmarks.BenchmarkPositions.CorpusPosition;
+import com.alescher.chessplayerbenchmarks.BenchmarkPositions.Phase;
+import com.alescher.chessplayerserver.helper.ChessPositionConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing the tiles of move requests
+ *
+ * @author AlEscher
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChessPositionConverterBenchmark
+{
+	@Param({ "OPENING", "MIDDLEGAME", "ENDGAME" })
+	public Phase phase;
+
+	/** The tiles of all corpus moves of the phase */
+	private String[] tiles;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		List<String> moveTiles = new ArrayList<>();
+		for (CorpusPosition position : phase.getPositions())
+		{
+			moveTiles.add(position.fromTile());
+			moveTiles.add(position.toTile());
+		}
+		tiles = moveTiles.toArray(new String[0]);
+	}
+
+	@Benchmark
+	public void tileToPoint(Blackhole blackhole)
+	{
+		for (String tile : tiles)
+			blackhole.consume(ChessPositionConverter.tileToPoint(tile));
+	}
+}
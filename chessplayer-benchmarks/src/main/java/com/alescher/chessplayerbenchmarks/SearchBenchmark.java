@@ -0,0 +1,99 @@
+package com.alescher.chessplayerbenchmarks;
+
+import com.alescher.chessplayerbenchmarks.BenchmarkPositions.CorpusPosition;
+import com.alescher.chessplayerbenchmarks.BenchmarkPositions.Phase;
+import com.alescher.chessplayerserver.engine.ParallelSearch;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.engine.SearchResult;
+import com.alescher.chessplayerserver.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the Lazy SMP search scales with the number of threads.
+ * One operation searches every middlegame position of the corpus to a fixed depth, starting with an empty table.
+ * In average time mode the score is the time to depth, in throughput mode the <code>nodes</code> counter is the number of
+ * nodes searched per second by all threads together.
+ * <p>
+ * Usage: <code>java -jar chessplayer-benchmarks/target/benchmarks.jar SearchBenchmark -p threads=1,2,4,8,16</code>
+ *
+ * @author AlEscher
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.AverageTime, Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBenchmark
+{
+	private static final int TABLE_SIZE_MB = 64;
+	private static final long NO_TIME_LIMIT = TimeUnit.HOURS.toMillis(1);
+
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	@Param({ "6" })
+	public int depth;
+
+	private Position[] positions;
+	private ExecutorService helpers;
+	private TranspositionTable table;
+	private ParallelSearch search;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		positions = Phase.MIDDLEGAME.getPositions().stream().map(CorpusPosition::fen).map(Position::fromFEN).toArray(Position[]::new);
+		helpers = Executors.newFixedThreadPool(Math.max(1, threads - 1));
+		table = new TranspositionTable(TABLE_SIZE_MB);
+		search = new ParallelSearch(table, helpers);
+	}
+
+	/**
+	 * Every search starts without the results of the previous one, otherwise later invocations would only read the table.
+	 * Clearing it takes a few milliseconds, far less than a search.
+	 */
+	@Setup(Level.Invocation)
+	public void clearTable()
+	{
+		table.clear();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		helpers.shutdownNow();
+	}
+
+	/**
+	 * Counts the nodes of all threads, reported as nodes per second in throughput mode
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Nodes
+	{
+		public long nodes;
+
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			nodes = 0;
+		}
+	}
+
+	@Benchmark
+	public void searchToDepth(Nodes nodes, Blackhole blackhole)
+	{
+		for (Position position : positions)
+		{
+			SearchResult result = search.search(position, NO_TIME_LIMIT, depth, threads);
+			nodes.nodes += result.nodes();
+			blackhole.consume(result.bestMove());
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.alescher.chessplayerserver.controller;
+
+import com.alescher.chessplayerserver.engine.Move;
+import com.alescher.chessplayerserver.engine.Piece;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.engine.Square;
+import com.alescher.chessplayerserver.model.ChessGame;
+import com.alescher.chessplayerserver.model.MoveResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Everything a move changed on the board, so that the client can update its board without requesting the new position.
+ *
+ * @author AlEscher
+ */
+public class BoardDeltaEntity
+{
+	/** The new content of every changed tile: the FEN letter of its piece, or an empty string if it is empty now */
+	private final Map<String, String> changedTiles;
+	/** The move of the rook when castling, from its tile to its new tile, otherwise empty */
+	private final Map<String, String> rookMove;
+	private final String capturedPiece;
+	private final String capturedTile;
+	private final String fen;
+
+	public BoardDeltaEntity(Map<String, String> changedTiles, Map<String, String> rookMove, @Nullable String capturedPiece,
+							@Nullable String capturedTile, String fen)
+	{
+		this.changedTiles = changedTiles;
+		this.rookMove = rookMove;
+		this.capturedPiece = capturedPiece;
+		this.capturedTile = capturedTile;
+		this.fen = fen;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("{ changedTiles: %s, rookMove: %s, capturedPiece: %s, capturedTile: %s, fen: %s }",
+				changedTiles, rookMove, capturedPiece, capturedTile, fen);
+	}
+
+	public Map<String, String> getChangedTiles()
+	{
+		return changedTiles;
+	}
+
+	public Map<String, String> getRookMove()
+	{
+		return rookMove;
+	}
+
+	/** @return The FEN letter of the captured piece, <code>null</code> if nothing was captured */
+	public String getCapturedPiece()
+	{
+		return capturedPiece;
+	}
+
+	/** @return The tile of the captured piece, which differs from the destination for en passant */
+	public String getCapturedTile()
+	{
+		return capturedTile;
+	}
+
+	public String getFen()
+	{
+		return fen;
+	}
+
+	/**
+	 * Creates the delta of a move that was just performed
+	 * @param result The result of the move
+	 * @param game The game after the move
+	 * @return The delta, <code>null</code> if the move was not legal
+	 */
+	@Nullable
+	public static BoardDeltaEntity create(@NotNull MoveResult result, @NotNull ChessGame game)
+	{
+		if (!result.legal())
+			return null;
+
+		int move = result.move();
+		int from = Move.from(move);
+		int to = Move.to(move);
+		Position position = game.getPosition();
+		Map<String, String> changedTiles = new LinkedHashMap<>();
+		putTile(changedTiles, position, from);
+		putTile(changedTiles, position, to);
+
+		String capturedTile = null;
+		if (result.captured() != Piece.NONE)
+		{
+			// The pawn captured en passant stands next to the destination
+			int capturedSquare = Move.isEnPassant(move) ? to ^ 8 : to;
+			capturedTile = Square.toTile(capturedSquare);
+			putTile(changedTiles, position, capturedSquare);
+		}
+
+		Map<String, String> rookMove = result.extraMoves().orElse(Map.of());
+		rookMove.forEach((rookFrom, rookTo) ->
+		{
+			putTile(changedTiles, position, Square.fromTile(rookFrom));
+			putTile(changedTiles, position, Square.fromTile(rookTo));
+		});
+
+		String capturedPiece = result.captured() != Piece.NONE ? String.valueOf(Piece.toChar(result.captured())) : null;
+		return new BoardDeltaEntity(changedTiles, rookMove, capturedPiece, capturedTile, game.getSnapshot().getFen());
+	}
+
+	private static void putTile(Map<String, String> tiles, Position position, int square)
+	{
+		int piece = position.pieceAt(square);
+		tiles.put(Square.toTile(square), piece != Piece.NONE ? String.valueOf(Piece.toChar(piece)) : "");
+	}
+}
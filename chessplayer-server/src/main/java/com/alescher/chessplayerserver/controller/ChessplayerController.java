@@ -1,28 +1,50 @@
 package com.alescher.chessplayerserver.controller;
 
-import com.alescher.chessplayerserver.helper.ChessPositionConverter;
+import com.alescher.chessplayerserver.engine.Move;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.engine.SearchResult;
+import com.alescher.chessplayerserver.engine.Square;
 import com.alescher.chessplayerserver.model.ChessGame;
+import com.alescher.chessplayerserver.model.GameSnapshot;
 import com.alescher.chessplayerserver.model.MoveResult;
+import com.alescher.chessplayerserver.model.ReplayResult;
+import com.alescher.chessplayerserver.service.EngineService;
+import com.alescher.chessplayerserver.service.GameRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.ModelAndView;
 
-import java.awt.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.*;
 import java.util.List;
 
 @RestController
 public class ChessplayerController
 {
-	private final Map<String, ChessGame> games;
+	/** The longest time the engine may think about a single move */
+	private static final long MAX_ENGINE_TIME_MILLIS = 10_000;
+
+	private final GameRegistry games;
+	private final GameEventStreams eventStreams;
+	private final EngineService engine;
+	/** Part of the game page's ETag, so that pages cached before a restart with a new frontend are not reused */
+	private final String pageTag = "-" + Long.toHexString(System.currentTimeMillis());
 
 	public static final Logger logger = LoggerFactory.getLogger(ChessplayerController.class);
 
-	public ChessplayerController()
+	public ChessplayerController(GameRegistry games, GameEventStreams eventStreams, EngineService engine)
 	{
-		this.games = new HashMap<>();
+		this.games = games;
+		this.eventStreams = eventStreams;
+		this.engine = engine;
 	}
 
 	/**
@@ -38,57 +60,178 @@ public class ChessplayerController
 
 	/**
 	 * The page to get a specific game specified by its ID.
+	 * Clients that already have the page for the current position get a 304 without the page being rendered again.
 	 * @param id The id of the game
 	 */
 	@GetMapping(path="/game/{id}/")
-	public ModelAndView gameIndex(@PathVariable String id)
+	public ModelAndView gameIndex(@PathVariable String id, WebRequest request, HttpServletResponse response)
 	{
-		if (!this.games.containsKey(id))
-		{
-			logger.info("Setting up new ChessBoard for Game-ID: {}", id);
-			this.games.put(id, new ChessGame());
-		}
+		this.games.createIfAbsent(id);
+		GameSnapshot snapshot = this.games.getSnapshot(id);
+		response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+		if (request.checkNotModified(eTagOf(snapshot, pageTag)))
+			return null;
 
 		ModelAndView view = new ModelAndView("index.html");
-		view.addObject("gameFen", this.games.get(id).toFEN());
+		view.addObject("gameFen", snapshot.getFen());
 		return view;
 	}
 
+	/**
+	 * Performs a move. The response contains the legal moves of the side to move afterwards,
+	 * and if requested what the move changed on the board including the new FEN, so that no further requests are needed.
+	 * @param id The id of the game
+	 * @param includeDelta Whether to include the changes on the board
+	 */
 	@PutMapping (path="/game/{id}/make-move", consumes=MediaType.APPLICATION_JSON_VALUE, produces=MediaType.APPLICATION_JSON_VALUE)
-	public MoveResponseEntity makeMove(@RequestBody MoveRequestEntity moveRequest, @PathVariable String id)
+	public MoveResponseEntity makeMove(@RequestBody MoveRequestEntity moveRequest, @PathVariable String id,
+									   @RequestParam(defaultValue = "false") boolean includeDelta)
 	{
 		logger.info("Received request to make move: {}", moveRequest);
-		ChessGame board = this.games.get(id);
+		MoveResponseEntity moveResponse = this.games.withGame(id, board ->
+		{
+			MoveResult result = board.performMove(moveRequest.getFromTile(), moveRequest.getToTile());
+			return MoveResponseEntity.create(moveRequest, result, board, includeDelta);
+		});
+		logger.info("Sending move response: {}", moveResponse);
+
+		return moveResponse;
+	}
 
-		MoveResult result = board.performMove(moveRequest.getFromTile(), moveRequest.getToTile());
-		MoveResponseEntity moveResponse = MoveResponseEntity.create(moveRequest, result.legal(), null, board, result.extraMoves());
+	/**
+	 * Lets the engine play the next move of the side to move. The engine searches a copy of the position,
+	 * so the game stays available to other requests while it thinks.
+	 * @param id The id of the game
+	 * @param timeMillis How long the engine may think
+	 * @param threads How many threads the engine may use, limited by the configuration of the server
+	 * @param includeDelta Whether to include the changes on the board
+	 */
+	@PutMapping(path="/game/{id}/engine-move", produces=MediaType.APPLICATION_JSON_VALUE)
+	public MoveResponseEntity makeEngineMove(@PathVariable String id, @RequestParam(defaultValue = "200") long timeMillis,
+											 @RequestParam(defaultValue = "1") int threads,
+											 @RequestParam(defaultValue = "false") boolean includeDelta)
+	{
+		logger.info("Received request for an engine move in {} within {} ms on {} threads", id, timeMillis, threads);
+		if (timeMillis <= 0 || timeMillis > MAX_ENGINE_TIME_MILLIS)
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The time needs to be between 1 and " + MAX_ENGINE_TIME_MILLIS + " ms");
+
+		long[] version = { 0 };
+		Position position = this.games.withGame(id, board ->
+		{
+			version[0] = board.getSnapshot().getVersion();
+			return board.getPosition().copy();
+		});
+		SearchResult search = this.engine.search(position, timeMillis, threads);
+		logger.info("Engine found {} with score {} at depth {}, {} nodes in {} ms", Move.toUCI(search.bestMove()), search.score(),
+				search.depth(), search.nodes(), search.timeMillis());
+		if (search.bestMove() == Move.NONE)
+			throw new ResponseStatusException(HttpStatus.CONFLICT, "The game is over");
+
+		MoveRequestEntity moveRequest = new MoveRequestEntity(Square.toTile(Move.from(search.bestMove())), Square.toTile(Move.to(search.bestMove())), null);
+		MoveResponseEntity moveResponse = this.games.withGame(id, board ->
+		{
+			// The move is only valid for the position it was searched in
+			if (board.getSnapshot().getVersion() != version[0])
+				throw new ResponseStatusException(HttpStatus.CONFLICT, "The game changed while the engine was thinking");
+			MoveResult result = board.performMove(search.bestMove());
+			return MoveResponseEntity.create(moveRequest, result, board, includeDelta);
+		});
 		logger.info("Sending move response: {}", moveResponse);
 
 		return moveResponse;
 	}
 
+	/**
+	 * Imports a game line: plays all moves from a start position in one go and replaces the game with the result.
+	 * Replaying stops at the first illegal move, whose index is part of the response.
+	 * @param id The id of the game, which is created if it does not exist
+	 */
+	@PostMapping(path="/game/{id}/replay", consumes=MediaType.APPLICATION_JSON_VALUE, produces=MediaType.APPLICATION_JSON_VALUE)
+	public ReplayResponseEntity replayMoves(@RequestBody ReplayRequestEntity replayRequest, @PathVariable String id)
+	{
+		logger.info("Received request to replay moves: {}", replayRequest);
+		String fen = replayRequest.getFen() != null ? replayRequest.getFen() : Position.START_FEN;
+		List<String> moves = replayRequest.getMoves() != null ? replayRequest.getMoves() : List.of();
+		ReplayResult[] replay = { null };
+		GameSnapshot snapshot;
+		try
+		{
+			snapshot = this.games.replaceGame(id, version -> (replay[0] = ChessGame.replay(fen, moves, version)).game());
+		} catch (IllegalArgumentException e)
+		{
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+		}
+		ReplayResponseEntity replayResponse = ReplayResponseEntity.create(replay[0], snapshot);
+		logger.info("Sending replay response: {}", replayResponse);
+
+		return replayResponse;
+	}
+
 	@GetMapping(path="/game/{id}/get-moves", consumes=MediaType.APPLICATION_JSON_VALUE, produces=MediaType.APPLICATION_JSON_VALUE)
 	public MoveResponseEntity getAllMoves(@RequestParam String fromTile, @RequestParam(required = false) String pieceID, @PathVariable String id)
 	{
 		logger.info("Received request to generate moves for {} on {}", pieceID, fromTile);
-		ChessGame board = this.games.get(id);
-
-		Point moveFrom = ChessPositionConverter.tileToPoint(fromTile);
+		GameSnapshot snapshot = this.games.getSnapshot(id);
 		// Get all legal moves and convert them to chess coordinates
-		List<String> possibleMoves = board.getLegalMoveTiles(moveFrom);
+		List<String> possibleMoves = snapshot.getLegalMoveTiles(fromTile);
 
-		MoveResponseEntity moveResponse = MoveResponseEntity.create(fromTile, pieceID, possibleMoves, board);
+		MoveResponseEntity moveResponse = MoveResponseEntity.create(fromTile, pieceID, possibleMoves, snapshot);
 		logger.info("Sending response: {}", moveResponse);
 
 		return moveResponse;
 	}
 
+	/**
+	 * All legal moves of the side to move, so that the client does not need to call get-moves for every piece.
+	 * @param id The id of the game
+	 */
+	@GetMapping(path="/game/{id}/legal-moves", produces=MediaType.APPLICATION_JSON_VALUE)
+	public LegalMovesEntity getLegalMoves(@PathVariable String id)
+	{
+		LegalMovesEntity legalMoves = LegalMovesEntity.create(this.games.getSnapshot(id));
+		logger.info("Sending legal moves: {}", legalMoves);
+		return legalMoves;
+	}
+
+	/**
+	 * The FEN of the current position. Polling clients send the ETag they got and receive a 304 as long as the position did not change.
+	 * @param id The id of the game
+	 */
 	@GetMapping(path="/game/{id}/fen")
-	public String getFenCode(@PathVariable String id)
+	public String getFenCode(@PathVariable String id, WebRequest request, HttpServletResponse response)
 	{
 		logger.info("Received request to generate FEN for {}", id);
-		String fenString = this.games.get(id).toFEN();
+		GameSnapshot snapshot = this.games.getSnapshot(id);
+		response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+		if (request.checkNotModified(eTagOf(snapshot, "")))
+			return null;
+
+		String fenString = snapshot.getFen();
 		logger.info("Sending response: {}", fenString);
 		return fenString;
 	}
+
+	/**
+	 * The version identifies the position of a game, the hash of the FEN tells apart games that were recreated under the same ID
+	 * @param suffix Identifies the representation, for responses that do not only depend on the position
+	 */
+	private static String eTagOf(GameSnapshot snapshot, String suffix)
+	{
+		return "\"" + snapshot.getVersion() + "-" + Integer.toHexString(snapshot.getFen().hashCode()) + suffix + "\"";
+	}
+
+	/**
+	 * A read-only stream of server-sent events for spectators, one event per committed move.
+	 * @param id The id of the game
+	 * @param ply Catch up on the recent moves after this ply first, otherwise the stream starts with the current state
+	 * @param lastEventId Set by reconnecting clients, the stream continues after this event
+	 */
+	@GetMapping(path="/game/{id}/events", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+	public void streamEvents(@PathVariable String id, @RequestParam(required = false) Integer ply,
+							 @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+							 HttpServletRequest request, HttpServletResponse response) throws IOException
+	{
+		logger.info("Received request to stream events of {}", id);
+		this.eventStreams.subscribe(id, ply, lastEventId, request, response);
+	}
 }
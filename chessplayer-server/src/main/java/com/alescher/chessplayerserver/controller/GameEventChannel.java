@@ -0,0 +1,25 @@
+package com.alescher.chessplayerserver.controller;
+
+import com.alescher.chessplayerserver.model.GameSnapshot;
+
+/**
+ * A way of pushing game events to clients, fed by the {@link GameEventPublisher}
+ *
+ * @author AlEscher
+ */
+public interface GameEventChannel
+{
+	/**
+	 * @param id The ID of the game
+	 * @return <code>true</code> if anyone is listening to the game on this channel
+	 */
+	boolean hasSubscribers(String id);
+
+	/**
+	 * Sends an event to all subscribers of a game. Called while the game's lock is held, so the event may only be handed off here.
+	 * @param id The ID of the game
+	 * @param snapshot The snapshot the event was created from
+	 * @param json The event, already serialized
+	 */
+	void publish(String id, GameSnapshot snapshot, String json);
+}
@@ -0,0 +1,102 @@
+package com.alescher.chessplayerserver.controller;
+
+import com.alescher.chessplayerserver.engine.Move;
+import com.alescher.chessplayerserver.model.Color;
+import com.alescher.chessplayerserver.model.GameSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * An update that is pushed to everyone watching a game, after every committed move, after a move was taken back and when the game is over.
+ *
+ * @author AlEscher
+ */
+public class GameEventEntity
+{
+	public static final String MOVE = "move";
+	public static final String UNDO = "undo";
+	public static final String GAME_OVER = "gameOver";
+
+	private final String type;
+	private final long version;
+	private final int ply;
+	private final String lastMove;
+	private final String fen;
+	private final Color currentTurn;
+	private final Color checkMated;
+	private final Map<String, String> legalMoves;
+
+	public GameEventEntity(String type, long version, int ply, String lastMove, String fen, Color currentTurn, Color checkMated,
+						   Map<String, String> legalMoves)
+	{
+		this.type = type;
+		this.version = version;
+		this.ply = ply;
+		this.lastMove = lastMove;
+		this.fen = fen;
+		this.currentTurn = currentTurn;
+		this.checkMated = checkMated;
+		this.legalMoves = legalMoves;
+	}
+
+	/** @return Either {@link #MOVE}, {@link #UNDO} or {@link #GAME_OVER} */
+	public String getType()
+	{
+		return type;
+	}
+
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/** @return The number of moves played */
+	public int getPly()
+	{
+		return ply;
+	}
+
+	/** @return The last move in UCI notation, e.g. "e2e4", <code>null</code> if no move has been played */
+	public String getLastMove()
+	{
+		return lastMove;
+	}
+
+	public String getFen()
+	{
+		return fen;
+	}
+
+	public Color getCurrentTurn()
+	{
+		return currentTurn;
+	}
+
+	public Color getCheckMated()
+	{
+		return checkMated;
+	}
+
+	/** @see GameSnapshot#getLegalMoveMasks() */
+	public Map<String, String> getLegalMoves()
+	{
+		return legalMoves;
+	}
+
+	public static GameEventEntity create(@NotNull GameSnapshot snapshot)
+	{
+		int lastMove = snapshot.getLastMove();
+		return new GameEventEntity(typeOf(snapshot), snapshot.getVersion(), snapshot.getPly(),
+				lastMove != Move.NONE ? Move.toUCI(lastMove) : null, snapshot.getFen(), snapshot.getCurrentTurn(),
+				snapshot.getCheckMated(), snapshot.getLegalMoveMasks());
+	}
+
+	/** @return The type of the event of a snapshot */
+	public static String typeOf(@NotNull GameSnapshot snapshot)
+	{
+		if (snapshot.isGameOver())
+			return GAME_OVER;
+		return snapshot.isUndo() ? UNDO : MOVE;
+	}
+}
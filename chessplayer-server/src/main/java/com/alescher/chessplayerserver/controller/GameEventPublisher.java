@@ -0,0 +1,60 @@
+package com.alescher.chessplayerserver.controller;
+
+import com.alescher.chessplayerserver.model.GameSnapshot;
+import com.alescher.chessplayerserver.service.GameRegistry;
+import com.alescher.chessplayerserver.service.SnapshotListener;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Turns every snapshot of a watched game into a {@link GameEventEntity}, serializes it once
+ * and passes the result on to all {@link GameEventChannel}s, no matter how many clients they serve.
+ *
+ * @author AlEscher
+ */
+@Component
+public class GameEventPublisher implements SnapshotListener
+{
+	private final ObjectMapper objectMapper;
+	private final List<GameEventChannel> channels;
+
+	public GameEventPublisher(GameRegistry games, ObjectMapper objectMapper, List<GameEventChannel> channels)
+	{
+		this.objectMapper = objectMapper;
+		this.channels = channels;
+		games.addSnapshotListener(this);
+	}
+
+	@Override
+	public void onSnapshot(String id, GameSnapshot snapshot)
+	{
+		String json = null;
+		for (GameEventChannel channel : channels)
+		{
+			if (!channel.hasSubscribers(id))
+				continue;
+			if (json == null)
+				json = encode(objectMapper, snapshot);
+			channel.publish(id, snapshot, json);
+		}
+	}
+
+	/**
+	 * Serializes the event of a snapshot
+	 * @return The event as JSON
+	 */
+	public static String encode(@NotNull ObjectMapper objectMapper, @NotNull GameSnapshot snapshot)
+	{
+		try
+		{
+			return objectMapper.writeValueAsString(GameEventEntity.create(snapshot));
+		} catch (JsonProcessingException e)
+		{
+			throw new IllegalStateException("Could not encode game event", e);
+		}
+	}
+}
@@ -0,0 +1,384 @@
+package com.alescher.chessplayerserver.controller;
+
+import com.alescher.chessplayerserver.model.GameSnapshot;
+import com.alescher.chessplayerserver.service.GameNotFoundException;
+import com.alescher.chessplayerserver.service.GameRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Streams the events of a game as server-sent events to read-only spectators of <code>/game/{id}/events</code>.
+ * <p>
+ * Every watched game keeps the most recent events in a ring buffer, each encoded once into the bytes of a complete frame.
+ * Spectators only hold a cursor into that buffer, so late joiners can catch up from a ply they already know, and
+ * reconnecting clients continue after the <code>Last-Event-ID</code> they have seen.
+ * Frames are written with non-blocking servlet output: a spectator that stops reading does not hold a thread, its cursor simply
+ * stays behind. Once the buffer has moved past the cursor, the spectator skips straight to the newest event,
+ * which is enough because every event carries the full state of the game.
+ * <p>
+ * Streams never time out. Instead, every stream gets a comment line at a fixed interval, which keeps proxies from closing
+ * an idle connection and lets the server notice spectators that are gone, since writing to them fails.
+ *
+ * @author AlEscher
+ */
+@Component
+public class GameEventStreams implements GameEventChannel
+{
+	private static final int RING_CAPACITY = 64;
+	private static final int STRIPES = 4;
+	/** A comment line, which clients ignore */
+	private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+	private final GameRegistry games;
+	private final ObjectMapper objectMapper;
+	private final ConcurrentMap<String, EventRing> streams = new ConcurrentHashMap<>();
+	private final ExecutorService[] stripes = new ExecutorService[STRIPES];
+	private static final Logger logger = LoggerFactory.getLogger(GameEventStreams.class);
+
+	public GameEventStreams(GameRegistry games, ObjectMapper objectMapper)
+	{
+		this.games = games;
+		this.objectMapper = objectMapper;
+		for (int i = 0; i < STRIPES; i++)
+			stripes[i] = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "game-events"));
+	}
+
+	/**
+	 * Starts streaming the events of a game over the response. The request is switched to async mode and stays open after this returns.
+	 * @param id The ID of the game
+	 * @param ply Send the buffered events after this ply first, <code>null</code> to start with the current state
+	 * @param lastEventId The ID of the last event the client has received, takes precedence over <code>ply</code>
+	 * @throws GameNotFoundException If there is no game with this ID
+	 */
+	public void subscribe(String id, @Nullable Integer ply, @Nullable Long lastEventId, HttpServletRequest request,
+						  HttpServletResponse response) throws IOException, GameNotFoundException
+	{
+		if (!games.contains(id))
+			throw new GameNotFoundException(id);
+		response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.setHeader("Cache-Control", "no-cache");
+		response.setHeader("X-Accel-Buffering", "no");
+
+		AsyncContext context = request.startAsync();
+		context.setTimeout(0);
+		Subscriber subscriber = new Subscriber(id, context, response.getOutputStream());
+		context.addListener(subscriber);
+		EventRing ring = streams.compute(id, (key, existing) ->
+		{
+			EventRing joined = existing != null ? existing : new EventRing();
+			joined.subscribers.add(subscriber);
+			return joined;
+		});
+		// The state is read after subscribing, so that a move in between is either part of it or published to the ring.
+		// It seeds the ring, unless an event of a later move got there first
+		GameSnapshot snapshot;
+		try
+		{
+			snapshot = games.getSnapshot(id);
+		} catch (GameNotFoundException e)
+		{
+			// The game was removed in the meantime
+			subscriber.close();
+			return;
+		}
+		ring.append(encode(snapshot));
+		long cursor;
+		if (lastEventId != null)
+			cursor = Math.min(lastEventId, ring.latest);
+		else if (ply != null)
+			cursor = ring.cursorAfterPly(ply);
+		else
+			cursor = ring.latest - 1;
+		subscriber.start(ring, cursor);
+		logger.info("Spectator connected to game {}", id);
+		// The container calls onWritePossible as soon as the response can be written
+		subscriber.out.setWriteListener(subscriber);
+	}
+
+	@Override
+	public boolean hasSubscribers(String id)
+	{
+		return streams.containsKey(id);
+	}
+
+	@Override
+	public void publish(String id, GameSnapshot snapshot, String json)
+	{
+		EventRing ring = streams.get(id);
+		if (ring == null)
+			return;
+		ring.append(frame(snapshot, json));
+		stripeOf(id).execute(() ->
+		{
+			for (Subscriber subscriber : ring.subscribers)
+				subscriber.drain();
+		});
+	}
+
+	/**
+	 * Sends a heartbeat to every spectator
+	 */
+	@Scheduled(fixedDelayString = "${chessplayer.events.heartbeat-interval:15000}")
+	public void sendHeartbeats()
+	{
+		streams.forEach((id, ring) -> stripeOf(id).execute(() ->
+		{
+			for (Subscriber subscriber : ring.subscribers)
+				subscriber.heartbeat();
+		}));
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		for (ExecutorService stripe : stripes)
+			stripe.shutdownNow();
+		for (EventRing ring : streams.values())
+		{
+			for (Subscriber subscriber : ring.subscribers)
+				subscriber.close();
+		}
+	}
+
+	private Frame encode(GameSnapshot snapshot)
+	{
+		return frame(snapshot, GameEventPublisher.encode(objectMapper, snapshot));
+	}
+
+	private static Frame frame(GameSnapshot snapshot, String json)
+	{
+		String frame = "id: " + snapshot.getVersion() + "\nevent: " + GameEventEntity.typeOf(snapshot) + "\ndata: " + json + "\n\n";
+		return new Frame(snapshot.getVersion(), snapshot.getPly(), frame.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void unsubscribe(Subscriber subscriber)
+	{
+		streams.computeIfPresent(subscriber.id, (key, ring) ->
+		{
+			ring.subscribers.remove(subscriber);
+			return ring.subscribers.isEmpty() ? null : ring;
+		});
+	}
+
+	private ExecutorService stripeOf(String id)
+	{
+		return stripes[Math.floorMod(id.hashCode(), STRIPES)];
+	}
+
+	/**
+	 * An event, ready to be written to any number of responses
+	 * @param version The version of the snapshot, also the ID of the event
+	 * @param ply The number of moves played
+	 * @param bytes The complete frame
+	 */
+	private record Frame(long version, int ply, byte[] bytes) {}
+
+	/**
+	 * The recent events of a game, indexed by version. Events are appended under the game's lock and read without locking.
+	 */
+	private static final class EventRing
+	{
+		private final AtomicReferenceArray<Frame> frames = new AtomicReferenceArray<>(RING_CAPACITY);
+		private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+		/** The version of the newest event, 0 if there is none */
+		private volatile long latest;
+
+		synchronized void append(Frame frame)
+		{
+			if (frame.version() <= latest)
+				return;
+			frames.set(index(frame.version()), frame);
+			latest = frame.version();
+		}
+
+		/**
+		 * @param cursor The version of the last event that was sent
+		 * @return The event to send next, <code>null</code> if there is none
+		 */
+		@Nullable
+		Frame next(long cursor)
+		{
+			long newest = latest;
+			if (cursor >= newest)
+				return null;
+			Frame frame = frames.get(index(cursor + 1));
+			if (frame != null && frame.version() == cursor + 1)
+				return frame;
+			// The event was overwritten or never buffered, skip the missed events
+			frame = frames.get(index(newest));
+			return frame != null && frame.version() == newest ? frame : null;
+		}
+
+		/**
+		 * @return The cursor to start from, so that the first event sent is the oldest buffered one after the given ply
+		 */
+		long cursorAfterPly(int ply)
+		{
+			long newest = latest;
+			for (long version = Math.max(1, newest - RING_CAPACITY + 1); version <= newest; version++)
+			{
+				Frame frame = frames.get(index(version));
+				if (frame != null && frame.version() == version && frame.ply() > ply)
+					return version - 1;
+			}
+			return newest;
+		}
+
+		private static int index(long version)
+		{
+			return (int) Math.floorMod(version, (long) RING_CAPACITY);
+		}
+	}
+
+	/**
+	 * A spectator's connection. Events are written only while the container reports the output as ready,
+	 * otherwise the container calls {@link #onWritePossible()} once the spectator has read enough.
+	 */
+	private final class Subscriber implements WriteListener, AsyncListener
+	{
+		private final String id;
+		private final AsyncContext context;
+		private final ServletOutputStream out;
+		private EventRing ring;
+		private long cursor;
+		private boolean needsFlush;
+		/** Whether a heartbeat is due, it is dropped once an event was written instead */
+		private boolean heartbeatDue;
+		private boolean closed;
+
+		Subscriber(String id, AsyncContext context, ServletOutputStream out)
+		{
+			this.id = id;
+			this.context = context;
+			this.out = out;
+		}
+
+		/**
+		 * Sets the position in the ring, events published before this are not sent
+		 */
+		synchronized void start(EventRing ring, long cursor)
+		{
+			this.ring = ring;
+			this.cursor = cursor;
+		}
+
+		/**
+		 * Writes as many pending events as the output takes without blocking
+		 */
+		synchronized void drain()
+		{
+			if (closed || ring == null)
+				return;
+			try
+			{
+				while (out.isReady())
+				{
+					Frame frame = ring.next(cursor);
+					if (frame == null && heartbeatDue)
+					{
+						out.write(HEARTBEAT);
+						heartbeatDue = false;
+						needsFlush = true;
+						continue;
+					}
+					if (frame == null)
+					{
+						if (!needsFlush)
+							return;
+						needsFlush = false;
+						out.flush();
+						continue;
+					}
+					out.write(frame.bytes());
+					cursor = frame.version();
+					heartbeatDue = false;
+					needsFlush = true;
+				}
+			} catch (IOException | IllegalStateException e)
+			{
+				logger.info("Could not send event to spectator, closing connection: {}", e.getMessage());
+				close();
+			}
+		}
+
+		/**
+		 * Writes a heartbeat as soon as the output is ready and no event is pending
+		 */
+		synchronized void heartbeat()
+		{
+			heartbeatDue = true;
+			drain();
+		}
+
+		synchronized void close()
+		{
+			if (closed)
+				return;
+			closed = true;
+			unsubscribe(this);
+			try
+			{
+				context.complete();
+			} catch (IllegalStateException ignored)
+			{
+				// The request is finished already
+			}
+		}
+
+		@Override
+		public void onWritePossible()
+		{
+			drain();
+		}
+
+		@Override
+		public void onError(Throwable t)
+		{
+			close();
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event)
+		{
+			unsubscribe(this);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event)
+		{
+			close();
+		}
+
+		@Override
+		public void onError(AsyncEvent event)
+		{
+			close();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {}
+	}
+}
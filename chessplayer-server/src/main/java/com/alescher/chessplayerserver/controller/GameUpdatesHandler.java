@@ -0,0 +1,235 @@
+package com.alescher.chessplayerserver.controller;
+
+import com.alescher.chessplayerserver.model.GameSnapshot;
+import com.alescher.chessplayerserver.service.GameRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Pushes every committed move and the end of a game to all players and spectators connected to <code>/game/{id}/live</code>.
+ * Each update is serialized once by the {@link GameEventPublisher} into a single frame, which is then sent to every subscriber of the game.
+ * The frames are handed to the subscribers on a few background threads, one per stripe of games,
+ * so that the thread that made the move never waits for the network.
+ * <p>
+ * Every subscriber has room for one frame that is waiting to be sent. Since every update carries the full state of the game,
+ * a newer frame simply replaces an older one that was not sent yet. Frames are written by a separate pool of sender threads,
+ * one at a time per subscriber, so a subscriber that stops reading only holds its own sender. It is disconnected once a single
+ * send has taken longer than the time limit.
+ *
+ * @author AlEscher
+ */
+@Component
+public class GameUpdatesHandler extends TextWebSocketHandler implements GameEventChannel
+{
+	private static final long SEND_TIME_LIMIT_MS = 5000;
+	private static final int STRIPES = 4;
+
+	private final GameRegistry games;
+	private final ObjectMapper objectMapper;
+	private final ConcurrentMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+	private final ExecutorService[] stripes = new ExecutorService[STRIPES];
+	/** Writes the frames, a thread is only held as long as a subscriber takes to read its frame */
+	private final ExecutorService senders;
+	private static final Logger logger = LoggerFactory.getLogger(GameUpdatesHandler.class);
+
+	public GameUpdatesHandler(GameRegistry games, ObjectMapper objectMapper)
+	{
+		this.games = games;
+		this.objectMapper = objectMapper;
+		for (int i = 0; i < STRIPES; i++)
+			stripes[i] = Executors.newSingleThreadExecutor(daemonThreads("game-updates-" + i));
+		senders = Executors.newCachedThreadPool(daemonThreads("game-updates-sender"));
+	}
+
+	@Override
+	public void afterConnectionEstablished(@NotNull WebSocketSession session) throws IOException
+	{
+		String id = gameId(session);
+		if (!games.contains(id))
+		{
+			session.close(CloseStatus.POLICY_VIOLATION.withReason("Unknown game"));
+			return;
+		}
+
+		Subscriber subscriber = new Subscriber(session);
+		session.getAttributes().put(Subscriber.class.getName(), subscriber);
+		subscribers.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+		logger.info("Subscriber connected to game {}", id);
+		// Start the subscriber off with the current state. It is read after subscribing so that no move is missed,
+		// a move in between may be offered first, in which case this older state is not sent
+		GameSnapshot snapshot = games.getSnapshot(id);
+		TextMessage frame = new TextMessage(GameEventPublisher.encode(objectMapper, snapshot));
+		stripeOf(id).execute(() -> subscriber.offer(snapshot.getVersion(), frame));
+	}
+
+	@Override
+	public void afterConnectionClosed(@NotNull WebSocketSession session, @NotNull CloseStatus status)
+	{
+		Object subscriber = session.getAttributes().get(Subscriber.class.getName());
+		String id = gameId(session);
+		subscribers.computeIfPresent(id, (key, sessions) ->
+		{
+			sessions.remove(subscriber);
+			return sessions.isEmpty() ? null : sessions;
+		});
+	}
+
+	@Override
+	public boolean hasSubscribers(String id)
+	{
+		return subscribers.containsKey(id);
+	}
+
+	@Override
+	public void publish(String id, GameSnapshot snapshot, String json)
+	{
+		TextMessage frame = new TextMessage(json);
+		stripeOf(id).execute(() ->
+		{
+			Set<Subscriber> sessions = subscribers.get(id);
+			if (sessions != null)
+			{
+				for (Subscriber subscriber : sessions)
+					subscriber.offer(snapshot.getVersion(), frame);
+			}
+		});
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		for (ExecutorService stripe : stripes)
+			stripe.shutdownNow();
+		senders.shutdownNow();
+	}
+
+	private static ThreadFactory daemonThreads(String name)
+	{
+		return runnable ->
+		{
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	private ExecutorService stripeOf(String id)
+	{
+		return stripes[Math.floorMod(id.hashCode(), STRIPES)];
+	}
+
+	/**
+	 * @return The ID of the game from a path like <code>/game/{id}/live</code>
+	 */
+	private static String gameId(WebSocketSession session)
+	{
+		String[] segments = session.getUri().getPath().split("/");
+		return segments[segments.length - 2];
+	}
+
+	/**
+	 * A connection with room for one frame that waits to be sent
+	 */
+	private final class Subscriber
+	{
+		private final WebSocketSession session;
+		/** The newest frame that was not sent yet, <code>null</code> if there is none. Guarded by <code>this</code> like the fields below */
+		private TextMessage pending;
+		/** The version of the newest frame that was offered */
+		private long version;
+		/** Whether a sender is writing to the session right now */
+		private boolean sending;
+		private long sendStarted;
+		private boolean closed;
+
+		private Subscriber(WebSocketSession session)
+		{
+			this.session = session;
+		}
+
+		/**
+		 * Makes a frame the next one to send, replacing a frame that is still waiting. Never blocks.
+		 * @param version The version of the snapshot of the frame, a frame older than one offered before is ignored
+		 */
+		synchronized void offer(long version, TextMessage frame)
+		{
+			if (closed || version <= this.version)
+				return;
+			this.version = version;
+			pending = frame;
+			if (!sending)
+			{
+				sending = true;
+				senders.execute(this::sendPending);
+			} else if (System.currentTimeMillis() - sendStarted > SEND_TIME_LIMIT_MS)
+			{
+				logger.info("Subscriber did not read an update for {} ms, closing connection", SEND_TIME_LIMIT_MS);
+				closed = true;
+				senders.execute(this::close);
+			}
+		}
+
+		/**
+		 * Writes frames until no frame is waiting, on a sender thread
+		 */
+		private void sendPending()
+		{
+			while (true)
+			{
+				TextMessage frame;
+				synchronized (this)
+				{
+					frame = pending;
+					pending = null;
+					if (frame == null || closed)
+					{
+						sending = false;
+						return;
+					}
+					sendStarted = System.currentTimeMillis();
+				}
+				try
+				{
+					session.sendMessage(frame);
+				} catch (IOException | RuntimeException e)
+				{
+					logger.info("Could not send update to subscriber, closing connection: {}", e.getMessage());
+					synchronized (this)
+					{
+						closed = true;
+						sending = false;
+					}
+					close();
+					return;
+				}
+			}
+		}
+
+		private void close()
+		{
+			try
+			{
+				session.close(CloseStatus.SESSION_NOT_RELIABLE);
+			} catch (IOException ignored)
+			{
+				// The connection is gone already
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.alescher.chessplayerserver.controller;
+
+import com.alescher.chessplayerserver.model.Color;
+import com.alescher.chessplayerserver.model.GameSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * All legal moves of the side to move in one response, so that the client can highlight the targets of a piece
+ * without asking the server every time a piece is picked up.
+ *
+ * @author AlEscher
+ * @see GameSnapshot#getLegalMoveMasks()
+ */
+public class LegalMovesEntity
+{
+	private final long version;
+	private final Color currentTurn;
+	private final Map<String, String> moves;
+
+	public LegalMovesEntity(long version, Color currentTurn, Map<String, String> moves)
+	{
+		this.version = version;
+		this.currentTurn = currentTurn;
+		this.moves = moves;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("{ version: %d, currentTurn: %s, moves: %s }", version, currentTurn, moves);
+	}
+
+	/** @return The version of the snapshot the moves belong to */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	public Color getCurrentTurn()
+	{
+		return currentTurn;
+	}
+
+	/** @return The bitmask of destination squares for every tile with a movable piece */
+	public Map<String, String> getMoves()
+	{
+		return moves;
+	}
+
+	public static LegalMovesEntity create(@NotNull GameSnapshot snapshot)
+	{
+		return new LegalMovesEntity(snapshot.getVersion(), snapshot.getCurrentTurn(), snapshot.getLegalMoveMasks());
+	}
+}
@@ -2,13 +2,14 @@ package com.alescher.chessplayerserver.controller;
 
 import com.alescher.chessplayerserver.model.ChessGame;
 import com.alescher.chessplayerserver.model.Color;
+import com.alescher.chessplayerserver.model.GameSnapshot;
+import com.alescher.chessplayerserver.model.MoveResult;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * Wrapper class that represents a chess move
@@ -22,12 +23,16 @@ public class MoveResponseEntity
 	private Color checkMated;
 	private List<String> possibleMoves = new ArrayList<>();
 	private Map<String, String> extraMoves;
+	/** The legal moves of the side to move after the request, only sent in response to a move */
+	private LegalMovesEntity legalMoves;
+	/** What the move changed on the board, only sent if the client asked for it */
+	private BoardDeltaEntity delta;
 
 	@Override
 	public String toString()
 	{
-		return String.format("{ fromTile: %s, toTile: %s, pieceID: %s, legal: %b, possibleMoves: %s, checkMated: %s }",
-				fromTile, toTile, pieceID, legal, possibleMoves.toString(), checkMated);
+		return String.format("{ fromTile: %s, toTile: %s, pieceID: %s, legal: %b, possibleMoves: %s, checkMated: %s, delta: %s }",
+				fromTile, toTile, pieceID, legal, possibleMoves.toString(), checkMated, delta);
 	}
 
 	public String getFromTile()
@@ -65,7 +70,18 @@ public class MoveResponseEntity
 		return extraMoves;
 	}
 
-	public MoveResponseEntity(String fromTile, String toTile, String pieceID, boolean legal, @Nullable List<String> possibleMoves, Color checkMated, @NotNull Map<String, String> extraMoves)
+	public LegalMovesEntity getLegalMoves()
+	{
+		return legalMoves;
+	}
+
+	public BoardDeltaEntity getDelta()
+	{
+		return delta;
+	}
+
+	public MoveResponseEntity(String fromTile, String toTile, String pieceID, boolean legal, @Nullable List<String> possibleMoves, Color checkMated, @NotNull Map<String, String> extraMoves,
+							  @Nullable LegalMovesEntity legalMoves, @Nullable BoardDeltaEntity delta)
 	{
 		this.fromTile = fromTile;
 		this.toTile = toTile;
@@ -73,6 +89,8 @@ public class MoveResponseEntity
 		this.legal = legal;
 		this.checkMated = checkMated;
 		this.extraMoves = extraMoves;
+		this.legalMoves = legalMoves;
+		this.delta = delta;
 		if (possibleMoves != null)
 			this.possibleMoves = possibleMoves;
 	}
@@ -80,14 +98,17 @@ public class MoveResponseEntity
 	/**
 	 * Creates a response to the given request, including additional information that the server computed
 	 * @param requestEntity The corresponding request
-	 * @param legal Whether the requested move is legal
-	 * @param possibleMoves A list of possible moves
-	 * @return The response entity
+	 * @param result The result of the move, which also tells whether it was legal
+	 * @param board The game after the move
+	 * @param includeDelta Whether to include a {@link BoardDeltaEntity} with what the move changed on the board, so that the client
+	 * can update its board without parsing the new position. Illegal moves never have a delta.
+	 * @return The response entity, including the legal moves of the side to move afterwards
 	 */
-	public static MoveResponseEntity create(MoveRequestEntity requestEntity, boolean legal, @Nullable List<String> possibleMoves, ChessGame board, Optional<Map<String, String>> extraMoves)
+	public static MoveResponseEntity create(MoveRequestEntity requestEntity, MoveResult result, ChessGame board, boolean includeDelta)
 	{
 		return new MoveResponseEntity(requestEntity.getFromTile(), requestEntity.getToTile(),
-				requestEntity.getPieceID(), legal, possibleMoves, board.getCheckMated(), extraMoves.orElse(Map.of()));
+				requestEntity.getPieceID(), result.legal(), null, board.getCheckMated(), result.extraMoves().orElse(Map.of()),
+				LegalMovesEntity.create(board.getSnapshot()), includeDelta ? BoardDeltaEntity.create(result, board) : null);
 	}
 
 	/**
@@ -97,8 +118,8 @@ public class MoveResponseEntity
 	 * @param possibleMoves A list of possible moves that the piece can make
 	 * @return The response entity
 	 */
-	public static MoveResponseEntity create(String fromTile, String pieceID, List<String> possibleMoves, ChessGame board)
+	public static MoveResponseEntity create(String fromTile, String pieceID, List<String> possibleMoves, GameSnapshot snapshot)
 	{
-		return new MoveResponseEntity(fromTile, null, pieceID, true, possibleMoves, board.getCheckMated(), Map.of());
+		return new MoveResponseEntity(fromTile, null, pieceID, true, possibleMoves, snapshot.getCheckMated(), Map.of(), null, null);
 	}
 }
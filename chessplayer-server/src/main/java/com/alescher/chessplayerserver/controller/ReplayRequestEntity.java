@@ -0,0 +1,38 @@
+package com.alescher.chessplayerserver.controller;
+
+import java.util.List;
+
+/**
+ * A game line to be imported: a start position and the moves played from it
+ *
+ * @author AlEscher
+ */
+public class ReplayRequestEntity
+{
+	private final String fen;
+	private final List<String> moves;
+
+	@Override
+	public String toString()
+	{
+		return String.format("{ fen: %s, moves: %d }", fen, moves == null ? 0 : moves.size());
+	}
+
+	/** @return The start position, <code>null</code> for the standard start position */
+	public String getFen()
+	{
+		return fen;
+	}
+
+	/** @return The moves in UCI notation or SAN, e.g. "e2e4" or "Nf3" */
+	public List<String> getMoves()
+	{
+		return moves;
+	}
+
+	public ReplayRequestEntity(String fen, List<String> moves)
+	{
+		this.fen = fen;
+		this.moves = moves;
+	}
+}
@@ -0,0 +1,69 @@
+package com.alescher.chessplayerserver.controller;
+
+import com.alescher.chessplayerserver.model.Color;
+import com.alescher.chessplayerserver.model.GameSnapshot;
+import com.alescher.chessplayerserver.model.ReplayResult;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The state of a game after a list of moves was imported
+ *
+ * @author AlEscher
+ */
+public class ReplayResponseEntity
+{
+	private final int appliedMoves;
+	private final Integer illegalMoveIndex;
+	private final String fen;
+	private final Color checkMated;
+	private final LegalMovesEntity legalMoves;
+
+	public ReplayResponseEntity(int appliedMoves, Integer illegalMoveIndex, String fen, Color checkMated, LegalMovesEntity legalMoves)
+	{
+		this.appliedMoves = appliedMoves;
+		this.illegalMoveIndex = illegalMoveIndex;
+		this.fen = fen;
+		this.checkMated = checkMated;
+		this.legalMoves = legalMoves;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("{ appliedMoves: %d, illegalMoveIndex: %s, fen: %s, checkMated: %s }", appliedMoves, illegalMoveIndex, fen, checkMated);
+	}
+
+	/** @return The number of moves that were played */
+	public int getAppliedMoves()
+	{
+		return appliedMoves;
+	}
+
+	/** @return The index of the first move that could not be played, <code>null</code> if all moves were legal */
+	public Integer getIllegalMoveIndex()
+	{
+		return illegalMoveIndex;
+	}
+
+	public String getFen()
+	{
+		return fen;
+	}
+
+	public Color getCheckMated()
+	{
+		return checkMated;
+	}
+
+	/** @return The legal moves of the side to move after the last legal move */
+	public LegalMovesEntity getLegalMoves()
+	{
+		return legalMoves;
+	}
+
+	public static ReplayResponseEntity create(@NotNull ReplayResult result, @NotNull GameSnapshot snapshot)
+	{
+		return new ReplayResponseEntity(result.appliedMoves(), result.isComplete() ? null : result.illegalMoveIndex(), snapshot.getFen(),
+				snapshot.getCheckMated(), LegalMovesEntity.create(snapshot));
+	}
+}
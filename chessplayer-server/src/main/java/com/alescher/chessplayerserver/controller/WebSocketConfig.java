@@ -0,0 +1,29 @@
+package com.alescher.chessplayerserver.controller;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Registers the WebSocket endpoint that pushes live game updates
+ *
+ * @author AlEscher
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer
+{
+	private final GameUpdatesHandler gameUpdatesHandler;
+
+	public WebSocketConfig(GameUpdatesHandler gameUpdatesHandler)
+	{
+		this.gameUpdatesHandler = gameUpdatesHandler;
+	}
+
+	@Override
+	public void registerWebSocketHandlers(WebSocketHandlerRegistry registry)
+	{
+		registry.addHandler(gameUpdatesHandler, "/game/*/live");
+	}
+}
@@ -0,0 +1,109 @@
+package com.alescher.chessplayerserver.engine;
+
+/**
+ * Keeps track of how many pieces of each color attack each square.
+ * It is updated incrementally by {@link Position} whenever a piece is put on or removed from a square,
+ * so that asking whether a square is attacked does not need any attack generation.
+ * <p>
+ * Putting or removing a piece changes its own attacks, and it also blocks or unblocks the rays of sliders through its square.
+ * Only the part of those rays behind the square is updated.
+ *
+ * @author AlEscher
+ */
+public final class AttackMap
+{
+	/** The number of attackers per color and square */
+	private final byte[][] counts = new byte[2][64];
+	/** The squares attacked by at least one piece of a color */
+	private final long[] attacks = new long[2];
+
+	/** @return The squares attacked by a color */
+	public long attacks(int color)
+	{
+		return attacks[color];
+	}
+
+	/** @return The number of pieces of a color that attack a square */
+	public int attackerCount(int color, int square)
+	{
+		return counts[color][square];
+	}
+
+	public boolean isAttacked(int square, int byColor)
+	{
+		return Bitboards.contains(attacks[byColor], square);
+	}
+
+	void copyFrom(AttackMap other)
+	{
+		System.arraycopy(other.counts[0], 0, counts[0], 0, 64);
+		System.arraycopy(other.counts[1], 0, counts[1], 0, 64);
+		attacks[0] = other.attacks[0];
+		attacks[1] = other.attacks[1];
+	}
+
+	/**
+	 * Called before a piece is put on an empty square
+	 * @param position The position, not containing the piece yet
+	 * @param piece The piece
+	 * @param square The square
+	 */
+	void onPut(Position position, int piece, int square)
+	{
+		long occupied = position.occupied();
+		updateRaysThrough(position, square, occupied, -1);
+		add(Piece.colorOf(piece), Attacks.of(Piece.typeOf(piece), Piece.colorOf(piece), square, occupied), 1);
+	}
+
+	/**
+	 * Called after a piece was removed from a square
+	 * @param position The position, which does not contain the piece anymore
+	 * @param piece The piece
+	 * @param square The square
+	 */
+	void onRemove(Position position, int piece, int square)
+	{
+		long occupied = position.occupied();
+		add(Piece.colorOf(piece), Attacks.of(Piece.typeOf(piece), Piece.colorOf(piece), square, occupied), -1);
+		updateRaysThrough(position, square, occupied, 1);
+	}
+
+	/**
+	 * Adds or removes the rays of all sliders that reach a square, from that square on away from the slider
+	 * @param occupied The occupied squares, without the square itself
+	 * @param delta 1 if the square became empty and the rays are extended, -1 if it was blocked
+	 */
+	private void updateRaysThrough(Position position, int square, long occupied, int delta)
+	{
+		long rookRays = Attacks.rook(square, occupied);
+		long bishopRays = Attacks.bishop(square, occupied);
+		for (int color = Piece.WHITE; color <= Piece.BLACK; color++)
+		{
+			long queens = position.pieces(color, Piece.QUEEN);
+			long sliders = (rookRays & (position.pieces(color, Piece.ROOK) | queens))
+					| (bishopRays & (position.pieces(color, Piece.BISHOP) | queens));
+			for (; sliders != 0; sliders &= sliders - 1)
+			{
+				int slider = Bitboards.lsb(sliders);
+				boolean straight = Square.file(slider) == Square.file(square) || Square.rank(slider) == Square.rank(square);
+				long behind = (straight ? rookRays : bishopRays) & Attacks.line(slider, square)
+						& ~Attacks.between(slider, square) & ~Bitboards.bit(slider);
+				add(color, behind, delta);
+			}
+		}
+	}
+
+	private void add(int color, long squares, int delta)
+	{
+		byte[] colorCounts = counts[color];
+		for (; squares != 0; squares &= squares - 1)
+		{
+			int square = Bitboards.lsb(squares);
+			colorCounts[square] += delta;
+			if (colorCounts[square] == 0)
+				attacks[color] &= ~Bitboards.bit(square);
+			else
+				attacks[color] |= Bitboards.bit(square);
+		}
+	}
+}
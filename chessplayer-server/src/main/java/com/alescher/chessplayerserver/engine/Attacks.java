@@ -0,0 +1,196 @@
+package com.alescher.chessplayerserver.engine;
+
+/**
+ * Precomputed attack tables for all pieces.
+ * Knight, king and pawn attacks are simple lookups by square, sliding pieces use magic bitboards:
+ * the relevant blockers of a square are multiplied by a magic number, which maps every blocker
+ * configuration to a unique index into a table of precomputed attack sets.
+ * The magic numbers were found by a random search over sparse candidates, the tables are filled
+ * once when this class is loaded.
+ *
+ * @author AlEscher
+ * @see <a href="https://www.chessprogramming.org/Magic_Bitboards">Magic Bitboards</a>
+ */
+public final class Attacks
+{
+	private static final long[] KNIGHT = new long[64];
+	private static final long[] KING = new long[64];
+	private static final long[][] PAWN = new long[2][64];
+
+	private static final long[] ROOK_MASK = new long[64];
+	private static final long[] ROOK_MAGIC = {
+			0xA080001820400080L, 0x0040002000401000L, 0x0180300160008008L, 0x0480040800801001L,
+			0x2A00081084204200L, 0x0480018012003400L, 0x0600010082000428L, 0x420002250C018042L,
+			0x0040800040002080L, 0x000040002000500CL, 0x2002004022001080L, 0x0026002200400810L,
+			0x2000808008000400L, 0x0022000200883104L, 0x2C88808001000200L, 0x1112000080420104L,
+			0x0100908000400020L, 0x0080808020004000L, 0x0008410010200300L, 0x0014808010000801L,
+			0x0080050011004800L, 0x00D1010002080400L, 0xA08004000A300158L, 0x1000120005288244L,
+			0x020C400080248002L, 0x4020411200220082L, 0x8028100080200881L, 0x1210001100090020L,
+			0x005A005200084520L, 0x0080040080020080L, 0x0002000200840148L, 0x440B210A00006884L,
+			0x0880401028800080L, 0x2000802008804000L, 0x2160001041002900L, 0x201020400A001200L,
+			0x8018010009001104L, 0x2480800400800200L, 0x0000010804000210L, 0x0020008042003104L,
+			0x0000802040008000L, 0x0010002000404000L, 0x0001001020010041L, 0x8840100009010022L,
+			0x8048004020040400L, 0x2000040002008080L, 0x0803000200010084L, 0x0010004400820001L,
+			0xA881410720800100L, 0x0008208A00450600L, 0x0000802000100080L, 0x004408A240920200L,
+			0x6000800400080080L, 0x0020040002008080L, 0x8003000A00245500L, 0x0100842081004200L,
+			0x0000201840820102L, 0x0011002040008019L, 0x001181C20020501AL, 0x1C10014488201101L,
+			0x0002002004110802L, 0x0881000204000801L, 0x2000880142100094L, 0x000154050022C082L
+	};
+	private static final int[] ROOK_SHIFT = new int[64];
+	private static final int[] ROOK_OFFSET = new int[64];
+	private static final long[] ROOK_TABLE = new long[0x19000];
+
+	private static final long[] BISHOP_MASK = new long[64];
+	private static final long[] BISHOP_MAGIC = {
+			0x0002021418048103L, 0x0023100102108001L, 0x1622008112000818L, 0x06108912010002D0L,
+			0x4002021000202400L, 0x41C1010840012100L, 0x0028841002D10100L, 0x2820818409114080L,
+			0x0082242048312111L, 0xA028680828004050L, 0x0030100142142020L, 0x8100044040880800L,
+			0x9004040422200240L, 0x2400011118400422L, 0x0030204402201008L, 0x4280468A4C022081L,
+			0x0540041010810140L, 0x4030000882808400L, 0x4010000104082045L, 0xC004048804101401L,
+			0x0102023401210801L, 0x0000400200422000L, 0x0882100100906408L, 0x1001000441009008L,
+			0x40D1400028020442L, 0x040808203C1002ACL, 0x1000500818068010L, 0x2084080020202040L,
+			0x0001010104104000L, 0x0008020000404200L, 0x004829000A414810L, 0x2584104082260204L,
+			0x0828044480D0E080L, 0x0101442006300100L, 0x4000840112300040L, 0x0220A00800010104L,
+			0x8010490042040040L, 0x0000A20080441001L, 0x4290010120404C00L, 0x802801004A090042L,
+			0x0001042221044004L, 0x440410A808004410L, 0x0010840048010101L, 0x1010002018020900L,
+			0x05102004A0822C00L, 0x0040040802882210L, 0x1A101400E0808C01L, 0x3101015400800100L,
+			0x20020801D8080000L, 0x0009804C42200000L, 0x0001282422280004L, 0x1040000084040021L,
+			0x0090042003440002L, 0x8000084810042001L, 0x00411001120080D0L, 0x0820480541002910L,
+			0xB211008041201000L, 0x020000288808484CL, 0x1108801080580800L, 0x0020100280840C40L,
+			0x04400801210A4C02L, 0x8004048520140110L, 0x004C100408008408L, 0x23502022042821A0L
+	};
+	private static final int[] BISHOP_SHIFT = new int[64];
+	private static final int[] BISHOP_OFFSET = new int[64];
+	private static final long[] BISHOP_TABLE = new long[0x1480];
+
+	/** Squares strictly between two aligned squares, empty if they are not on a common rank, file or diagonal */
+	private static final long[][] BETWEEN = new long[64][64];
+	/** The full line through two aligned squares, empty if they are not on a common rank, file or diagonal */
+	private static final long[][] LINE = new long[64][64];
+
+	static
+	{
+		for (int square = 0; square < 64; square++)
+		{
+			KNIGHT[square] = Bitboards.knightAttacks(square);
+			KING[square] = Bitboards.kingAttacks(square);
+			PAWN[Piece.WHITE][square] = Bitboards.pawnAttacks(Piece.WHITE, square);
+			PAWN[Piece.BLACK][square] = Bitboards.pawnAttacks(Piece.BLACK, square);
+		}
+		initMagics(Bitboards.ROOK_DIRECTIONS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_OFFSET, ROOK_TABLE);
+		initMagics(Bitboards.BISHOP_DIRECTIONS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_OFFSET, BISHOP_TABLE);
+		initLines();
+	}
+
+	private Attacks() {}
+
+	public static long knight(int square)
+	{
+		return KNIGHT[square];
+	}
+
+	public static long king(int square)
+	{
+		return KING[square];
+	}
+
+	/** @return The squares a pawn of the given color attacks from this square */
+	public static long pawn(int color, int square)
+	{
+		return PAWN[color][square];
+	}
+
+	public static long rook(int square, long occupied)
+	{
+		return ROOK_TABLE[ROOK_OFFSET[square] + (int) (((occupied & ROOK_MASK[square]) * ROOK_MAGIC[square]) >>> ROOK_SHIFT[square])];
+	}
+
+	public static long bishop(int square, long occupied)
+	{
+		return BISHOP_TABLE[BISHOP_OFFSET[square] + (int) (((occupied & BISHOP_MASK[square]) * BISHOP_MAGIC[square]) >>> BISHOP_SHIFT[square])];
+	}
+
+	public static long queen(int square, long occupied)
+	{
+		return rook(square, occupied) | bishop(square, occupied);
+	}
+
+	/**
+	 * @param type The piece type
+	 * @param color The color of the piece, only relevant for pawns
+	 * @param square The square of the piece
+	 * @param occupied All occupied squares
+	 * @return The squares attacked by the piece
+	 */
+	public static long of(int type, int color, int square, long occupied)
+	{
+		return switch (type)
+		{
+			case Piece.PAWN -> pawn(color, square);
+			case Piece.KNIGHT -> knight(square);
+			case Piece.BISHOP -> bishop(square, occupied);
+			case Piece.ROOK -> rook(square, occupied);
+			case Piece.QUEEN -> queen(square, occupied);
+			default -> king(square);
+		};
+	}
+
+	/** @return The squares strictly between two squares, empty if they are not aligned */
+	public static long between(int from, int to)
+	{
+		return BETWEEN[from][to];
+	}
+
+	/** @return The whole rank, file or diagonal through both squares, empty if they are not aligned */
+	public static long line(int a, int b)
+	{
+		return LINE[a][b];
+	}
+
+	/** Fills the attack table of a sliding piece, indexed by the magic number of each square */
+	private static void initMagics(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets, long[] table)
+	{
+		int offset = 0;
+		for (int square = 0; square < 64; square++)
+		{
+			// Blockers on the edge of the board never change the attack set, so they are not relevant
+			long edges = ((Bitboards.RANK_1 | Bitboards.RANK_8) & ~(Bitboards.RANK_1 << (8 * Square.rank(square))))
+					| ((Bitboards.FILE_A | Bitboards.FILE_H) & ~(Bitboards.FILE_A << Square.file(square)));
+			long mask = Bitboards.slidingAttacks(square, Bitboards.EMPTY, directions) & ~edges;
+			masks[square] = mask;
+			shifts[square] = 64 - Bitboards.count(mask);
+			offsets[square] = offset;
+
+			// Enumerate all subsets of the mask (Carry-Rippler trick) and store their attack sets
+			long subset = 0;
+			do
+			{
+				int index = offset + (int) ((subset * magics[square]) >>> shifts[square]);
+				long attacks = Bitboards.slidingAttacks(square, subset, directions);
+				if (table[index] != Bitboards.EMPTY && table[index] != attacks)
+					throw new IllegalStateException("Invalid magic number for square " + Square.toTile(square));
+				table[index] = attacks;
+				subset = (subset - mask) & mask;
+			} while (subset != 0);
+			offset += 1 << Bitboards.count(mask);
+		}
+	}
+
+	private static void initLines()
+	{
+		for (int a = 0; a < 64; a++)
+		{
+			for (int[][] directions : new int[][][] { Bitboards.ROOK_DIRECTIONS, Bitboards.BISHOP_DIRECTIONS })
+			{
+				long rays = Bitboards.slidingAttacks(a, Bitboards.EMPTY, directions);
+				for (long targets = rays; targets != 0; targets &= targets - 1)
+				{
+					int b = Bitboards.lsb(targets);
+					LINE[a][b] = (rays & Bitboards.slidingAttacks(b, Bitboards.EMPTY, directions)) | Bitboards.bit(a) | Bitboards.bit(b);
+					BETWEEN[a][b] = Bitboards.slidingAttacks(a, Bitboards.bit(b), directions)
+							& Bitboards.slidingAttacks(b, Bitboards.bit(a), directions);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.alescher.chessplayerserver.engine;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper functions for 64-bit bitboards, where bit <code>n</code> represents {@link Square} <code>n</code>.
+ *
+ * @author AlEscher
+ */
+public final class Bitboards
+{
+	public static final long EMPTY = 0L;
+	public static final long FILE_A = 0x0101010101010101L;
+	public static final long FILE_B = FILE_A << 1;
+	public static final long FILE_G = FILE_A << 6;
+	public static final long FILE_H = FILE_A << 7;
+	public static final long RANK_1 = 0xFFL;
+	public static final long RANK_2 = RANK_1 << 8;
+	public static final long RANK_4 = RANK_1 << 24;
+	public static final long RANK_5 = RANK_1 << 32;
+	public static final long RANK_7 = RANK_1 << 48;
+	public static final long RANK_8 = RANK_1 << 56;
+
+	/** Directions (file, rank) in which a rook slides */
+	public static final int[][] ROOK_DIRECTIONS = { {0, 1}, {0, -1}, {-1, 0}, {1, 0} };
+	/** Directions (file, rank) in which a bishop slides */
+	public static final int[][] BISHOP_DIRECTIONS = { {1, 1}, {1, -1}, {-1, 1}, {-1, -1} };
+
+	private Bitboards() {}
+
+	public static long bit(int square)
+	{
+		return 1L << square;
+	}
+
+	public static boolean contains(long bitboard, int square)
+	{
+		return (bitboard & bit(square)) != 0;
+	}
+
+	/** @return The lowest square contained in the bitboard, 64 if the bitboard is empty */
+	public static int lsb(long bitboard)
+	{
+		return Long.numberOfTrailingZeros(bitboard);
+	}
+
+	public static int count(long bitboard)
+	{
+		return Long.bitCount(bitboard);
+	}
+
+	public static long north(long bitboard)
+	{
+		return bitboard << 8;
+	}
+
+	public static long south(long bitboard)
+	{
+		return bitboard >>> 8;
+	}
+
+	public static long east(long bitboard)
+	{
+		return (bitboard & ~FILE_H) << 1;
+	}
+
+	public static long west(long bitboard)
+	{
+		return (bitboard & ~FILE_A) >>> 1;
+	}
+
+	/** Computes knight attacks by shifting, see {@link Attacks#knight(int)} for the table lookup */
+	public static long knightAttacks(int square)
+	{
+		long b = bit(square);
+		long l1 = (b >>> 1) & ~FILE_H;
+		long l2 = (b >>> 2) & ~(FILE_G | FILE_H);
+		long r1 = (b << 1) & ~FILE_A;
+		long r2 = (b << 2) & ~(FILE_A | FILE_B);
+		long h1 = l1 | r1;
+		long h2 = l2 | r2;
+		return (h1 << 16) | (h1 >>> 16) | (h2 << 8) | (h2 >>> 8);
+	}
+
+	public static long kingAttacks(int square)
+	{
+		long b = bit(square);
+		long row = b | east(b) | west(b);
+		return (row | north(row) | south(row)) & ~b;
+	}
+
+	/**
+	 * @param color The color of the pawn
+	 * @param square The square of the pawn
+	 * @return The squares a pawn of the given color attacks from this square
+	 */
+	public static long pawnAttacks(int color, int square)
+	{
+		long b = bit(square);
+		long forward = color == Piece.WHITE ? north(b) : south(b);
+		return east(forward) | west(forward);
+	}
+
+	/**
+	 * Walks each direction step by step until the edge of the board or an occupied square is reached.
+	 * The occupied square that stops a ray is part of the attack set.
+	 * This is only used to build the lookup tables in {@link Attacks}.
+	 * @param square The starting square
+	 * @param occupied All occupied squares
+	 * @param directions The directions as (file, rank) steps
+	 * @return All attacked squares
+	 */
+	public static long slidingAttacks(int square, long occupied, int[][] directions)
+	{
+		long attacks = EMPTY;
+		for (int[] direction : directions)
+		{
+			int file = Square.file(square) + direction[0];
+			int rank = Square.rank(square) + direction[1];
+			while (file >= 0 && file < 8 && rank >= 0 && rank < 8)
+			{
+				long target = bit(Square.of(file, rank));
+				attacks |= target;
+				if ((occupied & target) != 0)
+					break;
+				file += direction[0];
+				rank += direction[1];
+			}
+		}
+		return attacks;
+	}
+
+	/**
+	 * Converts a bitboard into the 2D coordinates used by the REST layer
+	 * @param bitboard The bitboard
+	 * @return A list of points, one for each square in the bitboard
+	 */
+	public static List<Point> toPoints(long bitboard)
+	{
+		List<Point> points = new ArrayList<>(count(bitboard));
+		for (long b = bitboard; b != 0; b &= b - 1)
+		{
+			points.add(Square.toPoint(lsb(b)));
+		}
+		return points;
+	}
+}
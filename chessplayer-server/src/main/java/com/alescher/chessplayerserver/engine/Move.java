@@ -0,0 +1,94 @@
+package com.alescher.chessplayerserver.engine;
+
+/**
+ * Helper functions for moves packed into an <code>int</code>, so that they can be generated and stored without allocation.
+ * <pre>
+ * bits  0- 5  from square
+ * bits  6-11  to square
+ * bits 12-14  promotion piece type, 0 if the move is not a promotion
+ * bits 15-18  flags
+ * </pre>
+ *
+ * @author AlEscher
+ */
+public final class Move
+{
+	/** Marker for "no move", no legal move goes from A1 to A1 */
+	public static final int NONE = 0;
+
+	public static final int CAPTURE = 1 << 15;
+	public static final int DOUBLE_PUSH = 1 << 16;
+	public static final int EN_PASSANT = 1 << 17;
+	public static final int CASTLE = 1 << 18;
+
+	private static final int SQUARE_MASK = 0x3F;
+	private static final int PROMOTION_SHIFT = 12;
+	private static final int PROMOTION_MASK = 0x7;
+
+	private Move() {}
+
+	public static int of(int from, int to)
+	{
+		return from | (to << 6);
+	}
+
+	/**
+	 * @param from The square of the piece to be moved
+	 * @param to The destination square
+	 * @param promotion The piece type a pawn promotes to, {@link Piece#NONE} or {@link Piece#PAWN} if the move is not a promotion
+	 * @param flags Any combination of {@link #CAPTURE}, {@link #DOUBLE_PUSH}, {@link #EN_PASSANT} and {@link #CASTLE}
+	 * @return The packed move
+	 */
+	public static int of(int from, int to, int promotion, int flags)
+	{
+		int packedPromotion = promotion > Piece.PAWN ? promotion << PROMOTION_SHIFT : 0;
+		return from | (to << 6) | packedPromotion | flags;
+	}
+
+	public static int from(int move)
+	{
+		return move & SQUARE_MASK;
+	}
+
+	public static int to(int move)
+	{
+		return (move >>> 6) & SQUARE_MASK;
+	}
+
+	/** @return The piece type a pawn promotes to, {@link Piece#NONE} if the move is not a promotion */
+	public static int promotion(int move)
+	{
+		int promotion = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+		return promotion == 0 ? Piece.NONE : promotion;
+	}
+
+	public static boolean isPromotion(int move)
+	{
+		return ((move >>> PROMOTION_SHIFT) & PROMOTION_MASK) != 0;
+	}
+
+	public static boolean isCapture(int move)
+	{
+		return (move & CAPTURE) != 0;
+	}
+
+	public static boolean isEnPassant(int move)
+	{
+		return (move & EN_PASSANT) != 0;
+	}
+
+	public static boolean isCastle(int move)
+	{
+		return (move & CASTLE) != 0;
+	}
+
+	/**
+	 * @param move The packed move
+	 * @return The move in UCI notation, e.g. "e2e4" or "e7e8q"
+	 */
+	public static String toUCI(int move)
+	{
+		String uci = Square.toFEN(from(move)) + Square.toFEN(to(move));
+		return isPromotion(move) ? uci + Piece.toChar(Piece.make(Piece.BLACK, promotion(move))) : uci;
+	}
+}
@@ -0,0 +1,301 @@
+package com.alescher.chessplayerserver.engine;
+
+/**
+ * Generates fully legal moves for the side to move of a {@link Position}.
+ * Instead of playing every candidate move and checking whether the own king is attacked afterwards,
+ * the pieces giving check and the pinned pieces are computed once per position in {@link #update()}.
+ * Moves are then filtered with masks: while in check, pieces may only capture the checker or block its ray,
+ * and a pinned piece may only move along the line between its king and the pinning piece.
+ *
+ * @author AlEscher
+ */
+public final class MoveGenerator
+{
+	private static final long PROMOTION_RANKS = Bitboards.RANK_1 | Bitboards.RANK_8;
+
+	private final Position position;
+	private int us;
+	private int kingSquare;
+	/** Enemy pieces giving check */
+	private long checkers;
+	/** Own pieces that are pinned to their king */
+	private long pinned;
+	/** Squares that pieces other than the king may move to, i.e. everywhere when not in check */
+	private long checkMask;
+
+	public MoveGenerator(Position position)
+	{
+		this.position = position;
+		update();
+	}
+
+	/**
+	 * Computes the checkers and pinned pieces of the current position.
+	 * Needs to be called whenever the position changed.
+	 */
+	public void update()
+	{
+		us = position.getSideToMove();
+		int them = Piece.opposite(us);
+		kingSquare = position.kingSquare(us);
+		checkers = position.checkers();
+		checkMask = switch (Bitboards.count(checkers))
+		{
+			case 0 -> ~Bitboards.EMPTY;
+			case 1 -> checkers | Attacks.between(kingSquare, Bitboards.lsb(checkers));
+			default -> Bitboards.EMPTY;
+		};
+
+		pinned = Bitboards.EMPTY;
+		long queens = position.pieces(them, Piece.QUEEN);
+		// Enemy sliders that would attack the king if there were no pieces in between
+		long snipers = (Attacks.rook(kingSquare, Bitboards.EMPTY) & (position.pieces(them, Piece.ROOK) | queens))
+				| (Attacks.bishop(kingSquare, Bitboards.EMPTY) & (position.pieces(them, Piece.BISHOP) | queens));
+		for (; snipers != 0; snipers &= snipers - 1)
+		{
+			long blockers = Attacks.between(kingSquare, Bitboards.lsb(snipers)) & position.occupied();
+			// A single own piece between the king and a sniper is pinned
+			if (blockers != 0 && (blockers & (blockers - 1)) == 0)
+				pinned |= blockers & position.occupancy(us);
+		}
+	}
+
+	/**
+	 * Get all legal moves for the piece on a square
+	 * @param from The square of the piece
+	 * @return A bitboard of all squares the piece can legally move to,
+	 * empty if the square is empty or the piece does not belong to the side to move
+	 */
+	public long getLegalMoves(int from)
+	{
+		int piece = position.pieceAt(from);
+		if (piece == Piece.NONE || Piece.colorOf(piece) != us)
+			return Bitboards.EMPTY;
+
+		int type = Piece.typeOf(piece);
+		if (type == Piece.KING)
+			return getKingMoves(from);
+
+		long notOwn = ~position.occupancy(us);
+		long occupied = position.occupied();
+		long targets = switch (type)
+		{
+			case Piece.PAWN -> getPawnMoves(from);
+			case Piece.KNIGHT -> Attacks.knight(from) & notOwn;
+			case Piece.BISHOP -> Attacks.bishop(from, occupied) & notOwn;
+			case Piece.ROOK -> Attacks.rook(from, occupied) & notOwn;
+			default -> Attacks.queen(from, occupied) & notOwn;
+		};
+		targets &= checkMask;
+		if (Bitboards.contains(pinned, from))
+			targets &= Attacks.line(kingSquare, from);
+		if (type == Piece.PAWN && isEnPassantLegal(from))
+			targets |= Bitboards.bit(position.getEnPassant());
+
+		return targets;
+	}
+
+	/**
+	 * Checks whether a move is legal
+	 * @param from The square of the piece to be moved
+	 * @param to The destination square
+	 * @return <code>true</code> if the piece on <code>from</code> may legally move to <code>to</code>
+	 */
+	public boolean isLegal(int from, int to)
+	{
+		return Bitboards.contains(getLegalMoves(from), to);
+	}
+
+	/**
+	 * Writes all legal moves of the side to move into a list, a pawn reaching the last rank adds one move per promotion piece.
+	 * @param moves The list, which is cleared first
+	 */
+	public void generate(MoveList moves)
+	{
+		moves.clear();
+		addMoves(moves, true, true);
+	}
+
+	/**
+	 * Adds the legal captures and promotions of the side to move to a list, so that a search can try them before generating the rest
+	 * @param moves The list, which is not cleared
+	 */
+	public void generateCaptures(MoveList moves)
+	{
+		addMoves(moves, true, false);
+	}
+
+	/**
+	 * Adds the legal moves of the side to move that neither capture nor promote to a list
+	 * @param moves The list, which is not cleared
+	 */
+	public void generateQuiets(MoveList moves)
+	{
+		addMoves(moves, false, true);
+	}
+
+	private void addMoves(MoveList moves, boolean captures, boolean quiets)
+	{
+		long enemies = position.occupancy(Piece.opposite(us));
+		long enPassant = position.getEnPassant() == Square.NONE ? Bitboards.EMPTY : Bitboards.bit(position.getEnPassant());
+		for (long pieces = position.occupancy(us); pieces != 0; pieces &= pieces - 1)
+		{
+			int from = Bitboards.lsb(pieces);
+			boolean pawn = Piece.typeOf(position.pieceAt(from)) == Piece.PAWN;
+			long targets = getLegalMoves(from);
+			long noisy = targets & (pawn ? enemies | enPassant | PROMOTION_RANKS : enemies);
+			if (!captures)
+				targets &= ~noisy;
+			if (!quiets)
+				targets &= noisy;
+			for (; targets != 0; targets &= targets - 1)
+			{
+				int to = Bitboards.lsb(targets);
+				if (pawn && Bitboards.contains(PROMOTION_RANKS, to))
+				{
+					int flags = flags(from, to);
+					moves.add(Move.of(from, to, Piece.QUEEN, flags));
+					moves.add(Move.of(from, to, Piece.ROOK, flags));
+					moves.add(Move.of(from, to, Piece.BISHOP, flags));
+					moves.add(Move.of(from, to, Piece.KNIGHT, flags));
+				} else
+				{
+					moves.add(Move.of(from, to, Piece.NONE, flags(from, to)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Packs a move of the current position, including its flags
+	 * @param from The square of the piece to be moved
+	 * @param to The destination square
+	 * @param promotion The piece type a pawn promotes to, ignored if the move is not a promotion
+	 * @return The packed move, {@link Move#NONE} if the move is not legal
+	 */
+	public int toMove(int from, int to, int promotion)
+	{
+		return isLegal(from, to) ? pack(from, to, promotion) : Move.NONE;
+	}
+
+	/**
+	 * Packs a move of the current position, including its flags, without checking whether it is legal
+	 * @param from The square of the piece to be moved
+	 * @param to The destination square
+	 * @param promotion The piece type a pawn promotes to, ignored if the move is not a promotion
+	 * @return The packed move
+	 */
+	public int pack(int from, int to, int promotion)
+	{
+		boolean promotes = Piece.typeOf(position.pieceAt(from)) == Piece.PAWN && Bitboards.contains(PROMOTION_RANKS, to);
+		return Move.of(from, to, promotes ? promotion : Piece.NONE, flags(from, to));
+	}
+
+	private int flags(int from, int to)
+	{
+		int flags = position.pieceAt(to) != Piece.NONE ? Move.CAPTURE : 0;
+		int type = Piece.typeOf(position.pieceAt(from));
+		if (type == Piece.PAWN)
+		{
+			if (to == position.getEnPassant())
+				flags |= Move.CAPTURE | Move.EN_PASSANT;
+			else if (Math.abs(to - from) == 16)
+				flags |= Move.DOUBLE_PUSH;
+		} else if (type == Piece.KING && Math.abs(to - from) == 2)
+		{
+			flags |= Move.CASTLE;
+		}
+		return flags;
+	}
+
+	/** @return <code>true</code> if the side to move has at least one legal move */
+	public boolean hasLegalMoves()
+	{
+		for (long pieces = position.occupancy(us); pieces != 0; pieces &= pieces - 1)
+		{
+			if (getLegalMoves(Bitboards.lsb(pieces)) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/** @return The enemy pieces that give check to the side to move */
+	public long getCheckers()
+	{
+		return checkers;
+	}
+
+	/** @return The pieces of the side to move that are pinned to their king */
+	public long getPinned()
+	{
+		return pinned;
+	}
+
+	private long getPawnMoves(int from)
+	{
+		long pawn = Bitboards.bit(from);
+		long empty = ~position.occupied();
+		// Pawns can only move forward onto empty tiles, and 2 tiles only if it is their first move
+		long singlePush = (us == Piece.WHITE ? Bitboards.north(pawn) : Bitboards.south(pawn)) & empty;
+		long doublePush = us == Piece.WHITE
+				? Bitboards.north(singlePush & Bitboards.north(Bitboards.RANK_2)) & empty
+				: Bitboards.south(singlePush & Bitboards.south(Bitboards.RANK_7)) & empty;
+		long captures = Attacks.pawn(us, from) & position.occupancy(Piece.opposite(us));
+
+		return singlePush | doublePush | captures;
+	}
+
+	/**
+	 * An en passant capture removes two pawns from the same rank at once, which can expose the king to a
+	 * slider on that rank. It is therefore verified against the resulting occupancy instead of the masks.
+	 */
+	private boolean isEnPassantLegal(int from)
+	{
+		int enPassant = position.getEnPassant();
+		if (enPassant == Square.NONE || !Bitboards.contains(Attacks.pawn(us, from), enPassant))
+			return false;
+
+		long capturedPawn = Bitboards.bit(enPassant ^ 8);
+		long occupied = (position.occupied() ^ Bitboards.bit(from) ^ capturedPawn) | Bitboards.bit(enPassant);
+		return (position.attackersTo(kingSquare, Piece.opposite(us), occupied) & ~capturedPawn) == 0;
+	}
+
+	private long getKingMoves(int from)
+	{
+		int them = Piece.opposite(us);
+		long moves = Attacks.king(from) & ~position.occupancy(us) & ~position.getAttackMap().attacks(them);
+		// The attack map treats the king as a blocker, but it must not step back along the ray of a slider that checks it
+		for (long sliders = checkers & ~position.pieces(them, Piece.PAWN) & ~position.pieces(them, Piece.KNIGHT); sliders != 0; sliders &= sliders - 1)
+		{
+			int slider = Bitboards.lsb(sliders);
+			moves &= ~(Attacks.line(slider, from) & ~Attacks.between(slider, from) & ~Bitboards.bit(slider));
+		}
+		if (checkers == 0)
+		{
+			moves |= getCastleMoves(from, true) | getCastleMoves(from, false);
+		}
+		return moves;
+	}
+
+	/**
+	 * A king may castle if it still has the right to, its rook stands on its start square, all squares between king and rook are empty,
+	 * and the squares the king passes and lands on are not attacked.
+	 * Castling out of check is excluded by the caller.
+	 */
+	private long getCastleMoves(int from, boolean kingside)
+	{
+		if (!position.canCastle(us, kingside) || from != (us == Piece.WHITE ? Square.E1 : Square.E8))
+			return Bitboards.EMPTY;
+
+		int rookSquare = kingside ? from + 3 : from - 4;
+		int step = kingside ? 1 : -1;
+		int them = Piece.opposite(us);
+		if (position.pieceAt(rookSquare) != Piece.make(us, Piece.ROOK)
+				|| (Attacks.between(from, rookSquare) & position.occupied()) != 0
+				|| position.isSquareAttacked(from + step, them)
+				|| position.isSquareAttacked(from + 2 * step, them))
+			return Bitboards.EMPTY;
+
+		return Bitboards.bit(from + 2 * step);
+	}
+}
@@ -0,0 +1,100 @@
+package com.alescher.chessplayerserver.engine;
+
+/**
+ * A reusable buffer of packed {@link Move}s. Generating into a buffer that is cleared and refilled
+ * instead of creating a new list keeps move generation free of heap allocation.
+ * <p>
+ * Each thread has one preallocated list per ply, see {@link #ofPly(int)}.
+ *
+ * @author AlEscher
+ */
+public final class MoveList
+{
+	/** More than the maximum number of legal moves in any chess position (218) */
+	public static final int MAX_MOVES = 256;
+	/** The number of plies each thread has a preallocated list for */
+	public static final int MAX_PLY = 128;
+
+	private static final ThreadLocal<MoveList[]> PER_PLY = ThreadLocal.withInitial(() ->
+	{
+		MoveList[] lists = new MoveList[MAX_PLY];
+		for (int ply = 0; ply < MAX_PLY; ply++)
+			lists[ply] = new MoveList();
+		return lists;
+	});
+
+	private final int[] moves = new int[MAX_MOVES];
+	private int size;
+
+	/**
+	 * Returns the calling thread's list for a ply. A recursive search or perft uses one list per ply,
+	 * so the list of a parent node stays intact while its children are generated.
+	 * @param ply The distance from the root
+	 * @return The list, which still contains the moves of the last time it was used
+	 */
+	public static MoveList ofPly(int ply)
+	{
+		return PER_PLY.get()[ply];
+	}
+
+	public void add(int move)
+	{
+		moves[size++] = move;
+	}
+
+	public int get(int index)
+	{
+		return moves[index];
+	}
+
+	/** Replaces the move at an index, e.g. to sort the list in place */
+	public void set(int index, int move)
+	{
+		moves[index] = move;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Finds a move by its squares
+	 * @param from The square of the piece to be moved
+	 * @param to The destination square
+	 * @param promotion The piece type a pawn promotes to, ignored if the move is not a promotion
+	 * @return The move including its flags, {@link Move#NONE} if the list contains no such move
+	 */
+	public int find(int from, int to, int promotion)
+	{
+		for (int i = 0; i < size; i++)
+		{
+			int move = moves[i];
+			if (Move.from(move) == from && Move.to(move) == to && (!Move.isPromotion(move) || Move.promotion(move) == promotion))
+				return move;
+		}
+		return Move.NONE;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < size; i++)
+		{
+			if (i > 0) builder.append(", ");
+			builder.append(Move.toUCI(moves[i]));
+		}
+		return builder.append(']').toString();
+	}
+}
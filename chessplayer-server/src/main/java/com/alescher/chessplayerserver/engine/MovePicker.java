@@ -0,0 +1,253 @@
+package com.alescher.chessplayerserver.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Hands out the legal moves of a position one at a time, the moves most likely to cause a cutoff first:
+ * <ol>
+ *     <li>the best move stored in the {@link TranspositionTable}</li>
+ *     <li>captures and promotions, the most valuable victim first and among those the least valuable attacker first (MVV-LVA),
+ *     except captures that lose material in the exchange that follows, see {@link Evaluation#exchangeAtLeast(Position, int, int)}</li>
+ *     <li>the killer moves, quiet moves that caused a cutoff in a sibling node</li>
+ *     <li>the remaining quiet moves, ordered by how often they caused cutoffs anywhere in the search (history heuristic)</li>
+ *     <li>the captures that lose material</li>
+ * </ol>
+ * Moves are only generated when their stage is reached, so a node that is cut off by the table move generates nothing
+ * and one cut off by a capture never generates its quiet moves. The table move and the killers come from other positions
+ * and are only returned if they are legal here.
+ * <p>
+ * A search keeps one picker per ply and reuses it for every node of that ply, so picking moves never allocates.
+ * The position may be changed between two calls of {@link #next()} as long as it is restored before the next call.
+ *
+ * @author AlEscher
+ */
+public final class MovePicker
+{
+	private static final int TABLE_MOVE = 0;
+	private static final int GENERATE_CAPTURES = 1;
+	private static final int GOOD_CAPTURES = 2;
+	private static final int KILLERS = 3;
+	private static final int GENERATE_QUIETS = 4;
+	private static final int QUIETS = 5;
+	private static final int BAD_CAPTURES = 6;
+	private static final int DONE = 7;
+
+	private final Position position;
+	private final MoveGenerator generator;
+	/** How often each piece moving to each square caused a cutoff, indexed by piece and destination square */
+	private final int[][] history;
+	private final MoveList moves = new MoveList();
+	private final int[] scores = new int[MoveList.MAX_MOVES];
+	/** Captures that lose material, put aside until the quiet moves were searched */
+	private final int[] badCaptures = new int[MoveList.MAX_MOVES];
+	private int badCaptureCount;
+	private int badCaptureIndex;
+
+	private int stage;
+	private boolean capturesOnly;
+	private int tableMove;
+	private final int[] killers = new int[2];
+	private int killerIndex;
+	private int index;
+	/** Whether the generator may not be at the position, e.g. because the caller searched a move that was handed out */
+	private boolean generatorStale;
+
+	/**
+	 * @param position The position of the search
+	 * @param generator The generator of the position
+	 * @param history The history table of the search, read when the quiet moves are ordered
+	 */
+	public MovePicker(@NotNull Position position, @NotNull MoveGenerator generator, @NotNull int[][] history)
+	{
+		this.position = position;
+		this.generator = generator;
+		this.history = history;
+	}
+
+	/**
+	 * Starts picking the moves of the current position
+	 * @param tableMove The best move from the table, {@link Move#NONE} if there is none
+	 * @param killer1 The first killer move of the ply, {@link Move#NONE} if there is none
+	 * @param killer2 The second killer move of the ply, {@link Move#NONE} if there is none
+	 */
+	public void init(int tableMove, int killer1, int killer2)
+	{
+		this.tableMove = tableMove;
+		killers[0] = killer1;
+		killers[1] = killer2;
+		capturesOnly = false;
+		start();
+	}
+
+	/**
+	 * Starts picking only the captures and promotions of the current position, for the quiescence search.
+	 * Captures that lose material are skipped.
+	 */
+	public void initCaptures()
+	{
+		tableMove = Move.NONE;
+		killers[0] = killers[1] = Move.NONE;
+		capturesOnly = true;
+		start();
+	}
+
+	/**
+	 * @return The next move, {@link Move#NONE} if all moves were handed out
+	 */
+	public int next()
+	{
+		while (true)
+		{
+			switch (stage)
+			{
+				case TABLE_MOVE ->
+				{
+					stage = GENERATE_CAPTURES;
+					if (tableMove != Move.NONE && isLegal(tableMove))
+						return handOut(tableMove);
+				}
+				case GENERATE_CAPTURES ->
+				{
+					refreshGenerator();
+					generator.generateCaptures(moves);
+					for (int i = 0; i < moves.size(); i++)
+						scores[i] = captureScore(moves.get(i));
+					stage = GOOD_CAPTURES;
+				}
+				case GOOD_CAPTURES ->
+				{
+					int move = pickBest();
+					if (move == Move.NONE)
+						stage = capturesOnly ? DONE : KILLERS;
+					else if (move == tableMove)
+						continue;
+					else if (Move.isCapture(move) && !Move.isPromotion(move) && !Evaluation.exchangeAtLeast(position, move, 0))
+						badCaptures[badCaptureCount++] = move;
+					else
+						return handOut(move);
+				}
+				case KILLERS ->
+				{
+					if (killerIndex == killers.length)
+					{
+						stage = GENERATE_QUIETS;
+						continue;
+					}
+					int killer = killers[killerIndex++];
+					if (killer != Move.NONE && killer != tableMove && !Move.isCapture(killer) && !Move.isPromotion(killer) && isLegal(killer))
+						return handOut(killer);
+				}
+				case GENERATE_QUIETS ->
+				{
+					refreshGenerator();
+					generator.generateQuiets(moves);
+					for (int i = index; i < moves.size(); i++)
+					{
+						int move = moves.get(i);
+						scores[i] = history[position.pieceAt(Move.from(move))][Move.to(move)];
+					}
+					stage = QUIETS;
+				}
+				case QUIETS ->
+				{
+					int move = pickBest();
+					if (move == Move.NONE)
+						stage = BAD_CAPTURES;
+					else if (move != tableMove && move != killers[0] && move != killers[1])
+						return handOut(move);
+				}
+				case BAD_CAPTURES ->
+				{
+					if (badCaptureIndex == badCaptureCount)
+						stage = DONE;
+					else
+						return handOut(badCaptures[badCaptureIndex++]);
+				}
+				default ->
+				{
+					return Move.NONE;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scores captures by the value of the captured piece first and the value of the capturing piece second,
+	 * and promotions by the piece promoted to
+	 */
+	private int captureScore(int move)
+	{
+		int score = 0;
+		if (Move.isCapture(move))
+		{
+			int victim = Move.isEnPassant(move) ? Piece.PAWN : Piece.typeOf(position.pieceAt(Move.to(move)));
+			score = 10 * Evaluation.pieceValue(victim) - Evaluation.pieceValue(Piece.typeOf(position.pieceAt(Move.from(move))));
+		}
+		if (Move.isPromotion(move))
+			score += Evaluation.pieceValue(Move.promotion(move));
+		return score;
+	}
+
+	private void start()
+	{
+		moves.clear();
+		stage = TABLE_MOVE;
+		killerIndex = 0;
+		index = 0;
+		badCaptureCount = 0;
+		badCaptureIndex = 0;
+		// The generator may still be at a position searched before
+		generatorStale = true;
+	}
+
+	/**
+	 * Moves the highest scored of the remaining moves to the current index, so that moves are sorted only as far as they are searched
+	 * @return The move, {@link Move#NONE} if there are no more moves in the list
+	 */
+	private int pickBest()
+	{
+		if (index == moves.size())
+			return Move.NONE;
+		int best = index;
+		for (int i = index + 1; i < moves.size(); i++)
+		{
+			if (scores[i] > scores[best])
+				best = i;
+		}
+		int move = moves.get(best);
+		if (best != index)
+		{
+			moves.set(best, moves.get(index));
+			moves.set(index, move);
+			scores[best] = scores[index];
+		}
+		index++;
+		return move;
+	}
+
+	/**
+	 * Checks a move that was not generated in this position, it may come from another position with the same hash or another node
+	 */
+	private boolean isLegal(int move)
+	{
+		refreshGenerator();
+		int from = Move.from(move), to = Move.to(move);
+		return generator.isLegal(from, to) && generator.pack(from, to, Move.promotion(move)) == move;
+	}
+
+	private int handOut(int move)
+	{
+		generatorStale = true;
+		return move;
+	}
+
+	/** Searching a move updates the generator for the positions after it, so it is updated again before it is used */
+	private void refreshGenerator()
+	{
+		if (generatorStale)
+		{
+			generator.update();
+			generatorStale = false;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.alescher.chessplayerserver.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads moves written in UCI notation, e.g. "e2e4" or "e7e8q", or in standard algebraic notation (SAN), e.g. "Nf3", "exd5", "O-O" or "e8=Q+".
+ *
+ * @author AlEscher
+ */
+public final class Notation
+{
+	private Notation() {}
+
+	/**
+	 * Finds the legal move a text stands for
+	 * @param text The move in UCI notation or SAN
+	 * @param position The position the move is played in
+	 * @param legalMoves All legal moves of the position, see {@link MoveGenerator#generate(MoveList)}
+	 * @return The packed move, {@link Move#NONE} if the text is malformed, ambiguous or not a legal move
+	 */
+	public static int parse(@NotNull String text, @NotNull Position position, @NotNull MoveList legalMoves)
+	{
+		String move = text.strip();
+		return isUCI(move) ? parseUCI(move, legalMoves) : parseSAN(move, position, legalMoves);
+	}
+
+	private static boolean isUCI(String move)
+	{
+		return (move.length() == 4 || move.length() == 5 && "qrbn".indexOf(move.charAt(4)) >= 0)
+				&& isFile(move.charAt(0)) && isRank(move.charAt(1)) && isFile(move.charAt(2)) && isRank(move.charAt(3));
+	}
+
+	private static int parseUCI(String move, MoveList legalMoves)
+	{
+		int from = square(move, 0);
+		int to = square(move, 2);
+		int promotion = move.length() == 5 ? Piece.typeOf(Piece.fromChar(move.charAt(4))) : Piece.NONE;
+		return legalMoves.find(from, to, promotion);
+	}
+
+	private static int parseSAN(String move, Position position, MoveList legalMoves)
+	{
+		// Check and annotation symbols do not change the move
+		int end = move.length();
+		while (end > 0 && "+#!?".indexOf(move.charAt(end - 1)) >= 0)
+			end--;
+		String san = move.substring(0, end);
+
+		if (san.equals("O-O") || san.equals("0-0"))
+			return findCastle(legalMoves, true);
+		if (san.equals("O-O-O") || san.equals("0-0-0"))
+			return findCastle(legalMoves, false);
+
+		int promotion = Piece.NONE;
+		int equals = san.indexOf('=');
+		if (equals >= 0)
+		{
+			if (equals != san.length() - 2)
+				return Move.NONE;
+			promotion = promotionType(san.charAt(equals + 1));
+			if (promotion == Piece.NONE)
+				return Move.NONE;
+			san = san.substring(0, equals);
+		} else if (san.length() > 2 && isRank(san.charAt(san.length() - 2)) && promotionType(san.charAt(san.length() - 1)) != Piece.NONE)
+		{
+			// Promotions are sometimes written without "=", e.g. "e8Q"
+			promotion = promotionType(san.charAt(san.length() - 1));
+			san = san.substring(0, san.length() - 1);
+		}
+
+		int type = Piece.PAWN;
+		if (!san.isEmpty() && "KQRBN".indexOf(san.charAt(0)) >= 0)
+		{
+			type = Piece.typeOf(Piece.fromChar(san.charAt(0)));
+			san = san.substring(1);
+		}
+		san = san.replace("x", "").replace("-", "");
+		if (san.length() < 2 || !isFile(san.charAt(san.length() - 2)) || !isRank(san.charAt(san.length() - 1)))
+			return Move.NONE;
+		int to = square(san, san.length() - 2);
+
+		// What is left in front of the destination tells pieces of the same type apart, e.g. "Nbd2" or "R1e2"
+		int fromFile = -1;
+		int fromRank = -1;
+		for (int i = 0; i < san.length() - 2; i++)
+		{
+			char c = san.charAt(i);
+			if (isFile(c))
+				fromFile = c - 'a';
+			else if (isRank(c))
+				fromRank = c - '1';
+			else
+				return Move.NONE;
+		}
+
+		int found = Move.NONE;
+		for (int i = 0; i < legalMoves.size(); i++)
+		{
+			int candidate = legalMoves.get(i);
+			int from = Move.from(candidate);
+			if (Move.to(candidate) != to || Piece.typeOf(position.pieceAt(from)) != type
+					|| fromFile >= 0 && Square.file(from) != fromFile || fromRank >= 0 && Square.rank(from) != fromRank)
+				continue;
+			// Without a promotion piece, a pawn promotes to a queen like in the frontend
+			if (Move.isPromotion(candidate) ? Move.promotion(candidate) != (promotion == Piece.NONE ? Piece.QUEEN : promotion) : promotion != Piece.NONE)
+				continue;
+			if (found != Move.NONE)
+				return Move.NONE;
+			found = candidate;
+		}
+		return found;
+	}
+
+	private static int findCastle(MoveList legalMoves, boolean kingside)
+	{
+		for (int i = 0; i < legalMoves.size(); i++)
+		{
+			int move = legalMoves.get(i);
+			if (Move.isCastle(move) && (Move.to(move) > Move.from(move)) == kingside)
+				return move;
+		}
+		return Move.NONE;
+	}
+
+	/** @return The piece type, {@link Piece#NONE} if a pawn cannot promote to it */
+	private static int promotionType(char symbol)
+	{
+		return "QRBN".indexOf(symbol) >= 0 ? Piece.typeOf(Piece.fromChar(symbol)) : Piece.NONE;
+	}
+
+	private static int square(String text, int index)
+	{
+		return Square.of(text.charAt(index) - 'a', text.charAt(index + 1) - '1');
+	}
+
+	private static boolean isFile(char c)
+	{
+		return c >= 'a' && c <= 'h';
+	}
+
+	private static boolean isRank(char c)
+	{
+		return c >= '1' && c <= '8';
+	}
+}
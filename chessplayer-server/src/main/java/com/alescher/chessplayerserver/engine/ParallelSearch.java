@@ -0,0 +1,98 @@
+package com.alescher.chessplayerserver.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Searches a position on several threads in the "Lazy SMP" style: every thread runs a complete {@link Search} of the same root,
+ * and all of them share one {@link TranspositionTable}. The helpers do not split the work explicitly, they fill the table with results
+ * the main search finds there a little later. Every other helper starts one ply deeper, so that the threads do not
+ * search the same nodes in lockstep.
+ * <p>
+ * The calling thread runs the main search, whose result is returned. The helpers are stopped as soon as it is done.
+ * Each search starts a new age of the table unless another search is still running, so results of earlier searches are replaced first,
+ * see {@link TranspositionTable#startSearch()}. Concurrent searches of different games still compete for the entries of the table.
+ *
+ * @author AlEscher
+ */
+public final class ParallelSearch
+{
+	private final TranspositionTable table;
+	private final ExecutorService helpers;
+
+	/**
+	 * @param table The table shared by all threads
+	 * @param helpers The threads the helper searches run on, the more threads a search uses the more this needs
+	 */
+	public ParallelSearch(@NotNull TranspositionTable table, @NotNull ExecutorService helpers)
+	{
+		this.table = table;
+		this.helpers = helpers;
+	}
+
+	/**
+	 * Searches a position until the time budget is used up or the main search reached the maximum depth
+	 * @param position The position, which is not modified
+	 * @param timeMillis The time budget
+	 * @param maxDepth The maximum depth in plies, at most {@link Search#MAX_DEPTH}
+	 * @param threads The number of threads including the calling one
+	 * @return The result of the main search, with the nodes of all threads
+	 */
+	public SearchResult search(@NotNull Position position, long timeMillis, int maxDepth, int threads)
+	{
+		Assert.isTrue(threads > 0, "At least one thread is needed");
+		table.startSearch();
+		try
+		{
+			return searchInParallel(position, timeMillis, maxDepth, threads);
+		} finally
+		{
+			table.finishSearch();
+		}
+	}
+
+	private SearchResult searchInParallel(Position position, long timeMillis, int maxDepth, int threads)
+	{
+		List<Search> helperSearches = new ArrayList<>(threads - 1);
+		List<Future<SearchResult>> helperResults = new ArrayList<>(threads - 1);
+		for (int i = 1; i < threads; i++)
+		{
+			Search helper = new Search(position, table);
+			int firstDepth = Math.min(maxDepth, 1 + i % 2);
+			helperSearches.add(helper);
+			helperResults.add(helpers.submit(() -> helper.search(timeMillis, maxDepth, firstDepth)));
+		}
+
+		SearchResult main;
+		try
+		{
+			main = new Search(position, table).search(timeMillis, maxDepth);
+		} finally
+		{
+			helperSearches.forEach(Search::stop);
+		}
+
+		long nodes = main.nodes();
+		for (Future<SearchResult> helperResult : helperResults)
+		{
+			try
+			{
+				nodes += helperResult.get().nodes();
+			} catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e)
+			{
+				throw new IllegalStateException("Helper search failed", e.getCause());
+			}
+		}
+		return new SearchResult(main.bestMove(), main.score(), main.depth(), nodes, main.timeMillis());
+	}
+}
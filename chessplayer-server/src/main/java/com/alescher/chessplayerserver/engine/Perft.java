@@ -0,0 +1,233 @@
+package com.alescher.chessplayerserver.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree up to a given depth ("perft").
+ * Comparing the counts of well known positions against their reference values verifies the move generator,
+ * and the nodes per second are a measure of its speed.
+ * <p>
+ * Optionally, subtree counts are cached in a hash table, and the root moves can be split across a {@link ForkJoinPool}.
+ *
+ * @author AlEscher
+ */
+public final class Perft
+{
+	private final Table table;
+
+	/** Creates a perft counter without a hash table */
+	public Perft()
+	{
+		this(0);
+	}
+
+	/**
+	 * @param hashSizeMb The size of the hash table for subtree counts in megabytes, 0 to disable it
+	 */
+	public Perft(int hashSizeMb)
+	{
+		this.table = hashSizeMb > 0 ? new Table(hashSizeMb) : null;
+	}
+
+	/**
+	 * Counts the leaf nodes of a position
+	 * @param position The position, which is not modified
+	 * @param depth The depth in plies
+	 * @return The number of leaf nodes
+	 */
+	public long perft(Position position, int depth)
+	{
+		Position copy = position.copy();
+		return count(copy, new MoveGenerator(copy), depth, 0);
+	}
+
+	/**
+	 * Counts the leaf nodes below each legal move of a position
+	 * @param position The position, which is not modified
+	 * @param depth The depth in plies, at least 1
+	 * @return The number of leaf nodes for each root move in UCI notation, in generation order
+	 */
+	public Map<String, Long> divide(Position position, int depth)
+	{
+		Map<String, Long> result = new LinkedHashMap<>();
+		for (int move : rootMoves(position))
+		{
+			result.put(Move.toUCI(move), countAfter(position, move, depth));
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the leaf nodes below each legal move of a position, with each root move counted as a separate task
+	 * @param position The position, which is not modified
+	 * @param depth The depth in plies, at least 1
+	 * @param pool The pool the root moves are split across
+	 * @return The number of leaf nodes for each root move in UCI notation, in generation order
+	 */
+	public Map<String, Long> divide(Position position, int depth, ForkJoinPool pool)
+	{
+		int[] moves = rootMoves(position);
+		List<RecursiveTask<Long>> tasks = new ArrayList<>(moves.length);
+		for (int move : moves)
+		{
+			tasks.add(new RecursiveTask<>()
+			{
+				@Override
+				protected Long compute()
+				{
+					return countAfter(position, move, depth);
+				}
+			});
+		}
+		pool.invoke(new RecursiveTask<Void>()
+		{
+			@Override
+			protected Void compute()
+			{
+				ForkJoinTask.invokeAll(tasks);
+				return null;
+			}
+		});
+
+		Map<String, Long> result = new LinkedHashMap<>();
+		for (int i = 0; i < moves.length; i++)
+		{
+			result.put(Move.toUCI(moves[i]), tasks.get(i).join());
+		}
+		return result;
+	}
+
+	/**
+	 * Plays a root move on a private copy of the position, so that root moves can be counted in parallel
+	 */
+	private long countAfter(Position position, int rootMove, int depth)
+	{
+		Position copy = position.copy();
+		copy.makeMove(rootMove);
+		return count(copy, new MoveGenerator(copy), depth - 1, 1);
+	}
+
+	private long count(Position position, MoveGenerator generator, int depth, int ply)
+	{
+		if (depth == 0)
+			return 1;
+
+		long hash = 0;
+		if (table != null && depth > 1)
+		{
+			hash = position.getHash();
+			long nodes = table.get(hash, depth);
+			if (nodes >= 0)
+				return nodes;
+		}
+
+		MoveList moves = MoveList.ofPly(ply);
+		generator.update();
+		generator.generate(moves);
+		// Bulk counting
+		if (depth == 1)
+			return moves.size();
+
+		long nodes = 0;
+		for (int i = 0; i < moves.size(); i++)
+		{
+			position.makeMove(moves.get(i));
+			nodes += count(position, generator, depth - 1, ply + 1);
+			position.unmakeMove();
+		}
+
+		if (table != null)
+			table.put(hash, depth, nodes);
+		return nodes;
+	}
+
+	private static int[] rootMoves(Position position)
+	{
+		MoveList moves = new MoveList();
+		new MoveGenerator(position).generate(moves);
+		int[] rootMoves = new int[moves.size()];
+		for (int i = 0; i < rootMoves.length; i++)
+			rootMoves[i] = moves.get(i);
+		return rootMoves;
+	}
+
+	/**
+	 * A hash table of subtree counts that can be shared between threads without locking.
+	 * Each entry stores the key XOR the data, so an entry torn by a concurrent write fails verification
+	 * and is treated as a miss instead of returning a wrong count.
+	 */
+	private static final class Table
+	{
+		private final long[] keys;
+		private final long[] data;
+		private final int mask;
+
+		Table(int sizeMb)
+		{
+			// 16 bytes per entry, rounded down to a power of two
+			int entries = Integer.highestOneBit((int) Math.min(Integer.MAX_VALUE, sizeMb * (1L << 20) / 16));
+			keys = new long[entries];
+			data = new long[entries];
+			mask = entries - 1;
+		}
+
+		/** @return The stored count, -1 if there is none */
+		long get(long hash, int depth)
+		{
+			int index = (int) hash & mask;
+			long entry = data[index];
+			if ((keys[index] ^ entry) != hash || (entry & 0xFF) != depth)
+				return -1;
+			return entry >>> 8;
+		}
+
+		void put(long hash, int depth, long nodes)
+		{
+			int index = (int) hash & mask;
+			long entry = (nodes << 8) | depth;
+			data[index] = entry;
+			keys[index] = hash ^ entry;
+		}
+	}
+
+	/**
+	 * Runs perft from the command line and prints the divide output and nodes per second.
+	 * Arguments: depth, optionally followed by a FEN (default: start position), the number of threads and the hash size in MB.
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length < 1)
+		{
+			System.err.println("Usage: Perft <depth> [fen] [threads] [hashMb]");
+			return;
+		}
+		int depth = Integer.parseInt(args[0]);
+		Position position = Position.fromFEN(args.length > 1 ? args[1] : Position.START_FEN);
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int hashSizeMb = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+		Perft perft = new Perft(hashSizeMb);
+		long start = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		Map<String, Long> divide = perft.divide(position, depth, pool);
+		pool.shutdown();
+		long elapsed = System.nanoTime() - start;
+
+		long nodes = 0;
+		for (Map.Entry<String, Long> entry : divide.entrySet())
+		{
+			System.out.println(entry.getKey() + ": " + entry.getValue());
+			nodes += entry.getValue();
+		}
+		System.out.println();
+		System.out.println("Nodes: " + nodes);
+		System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+		System.out.printf("NPS: %d%n", (long) (nodes / Math.max(elapsed / 1e9, 1e-9)));
+	}
+}
@@ -0,0 +1,79 @@
+package com.alescher.chessplayerserver.engine;
+
+import com.alescher.chessplayerserver.model.Color;
+
+/**
+ * Integer encoding of colors, piece types and colored pieces used by the {@link Position}.
+ * A colored piece is encoded as <code>color * 6 + type</code>, so it can directly index the piece bitboards.
+ *
+ * @author AlEscher
+ */
+public final class Piece
+{
+	public static final int WHITE = 0;
+	public static final int BLACK = 1;
+
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+
+	/** Number of different colored pieces */
+	public static final int COUNT = 12;
+	/** Marker for an empty square */
+	public static final int NONE = -1;
+
+	private static final String SYMBOLS = "PNBRQKpnbrqk";
+
+	private Piece() {}
+
+	public static int make(int color, int type)
+	{
+		return color * 6 + type;
+	}
+
+	public static int typeOf(int piece)
+	{
+		return piece % 6;
+	}
+
+	public static int colorOf(int piece)
+	{
+		return piece / 6;
+	}
+
+	public static int opposite(int color)
+	{
+		return color ^ 1;
+	}
+
+	/**
+	 * @param piece The piece
+	 * @return The FEN symbol of the piece, upper case for white and lower case for black
+	 */
+	public static char toChar(int piece)
+	{
+		return SYMBOLS.charAt(piece);
+	}
+
+	/**
+	 * @param symbol The FEN symbol of a piece
+	 * @return The piece, or {@link Piece#NONE} if the symbol is unknown
+	 */
+	public static int fromChar(char symbol)
+	{
+		return SYMBOLS.indexOf(symbol);
+	}
+
+	public static int fromColor(Color color)
+	{
+		return color == Color.WHITE ? WHITE : BLACK;
+	}
+
+	public static Color toColor(int color)
+	{
+		return color == WHITE ? Color.WHITE : Color.BLACK;
+	}
+}
@@ -0,0 +1,661 @@
+package com.alescher.chessplayerserver.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+
+/**
+ * A chess position stored as bitboards.
+ * There is one bitboard per colored piece, plus one occupancy mask per color and one for all pieces.
+ * A small mailbox mirrors the bitboards so that the piece on a given square can be looked up in constant time.
+ *
+ * @author AlEscher
+ */
+public final class Position
+{
+	public static final int WHITE_KINGSIDE = 1;
+	public static final int WHITE_QUEENSIDE = 2;
+	public static final int BLACK_KINGSIDE = 4;
+	public static final int BLACK_QUEENSIDE = 8;
+	public static final int ALL_CASTLING_RIGHTS = 15;
+
+	/** The castling rights that are lost when a piece moves from or to a square */
+	private static final int[] CASTLING_RIGHTS_LOST = new int[64];
+
+	static
+	{
+		CASTLING_RIGHTS_LOST[Square.E1] = WHITE_KINGSIDE | WHITE_QUEENSIDE;
+		CASTLING_RIGHTS_LOST[Square.H1] = WHITE_KINGSIDE;
+		CASTLING_RIGHTS_LOST[Square.A1] = WHITE_QUEENSIDE;
+		CASTLING_RIGHTS_LOST[Square.E8] = BLACK_KINGSIDE | BLACK_QUEENSIDE;
+		CASTLING_RIGHTS_LOST[Square.H8] = BLACK_KINGSIDE;
+		CASTLING_RIGHTS_LOST[Square.A8] = BLACK_QUEENSIDE;
+	}
+
+	private static final int INITIAL_UNDO_CAPACITY = 256;
+	// Bit offsets of the fields of an undo record, the from square is stored in the lowest 6 bits
+	private static final int UNDO_TO = 6;
+	private static final int UNDO_CAPTURED = 12;
+	private static final int UNDO_CASTLING = 16;
+	private static final int UNDO_EN_PASSANT = 20;
+	private static final int UNDO_PROMOTED = 27;
+	private static final int UNDO_HALFMOVE_CLOCK = 28;
+
+	public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+	/** The number of bytes of a position packed with {@link #pack()} */
+	public static final int PACKED_SIZE = 38;
+
+	/** One bitboard per colored piece, indexed by {@link Piece#make(int, int)} */
+	private final long[] pieces = new long[Piece.COUNT];
+	/** All pieces of a color */
+	private final long[] occupancy = new long[2];
+	private long occupied;
+	/** The piece on each square, {@link Piece#NONE} if empty */
+	private final byte[] board = new byte[64];
+	private int sideToMove = Piece.WHITE;
+	private int castlingRights;
+	private int enPassant = Square.NONE;
+	private int halfmoveClock;
+	private int fullmoveNumber = 1;
+	/** Which squares each color attacks, updated incrementally whenever a piece is put or removed */
+	private final AttackMap attackMap = new AttackMap();
+	/** The Zobrist hash, updated incrementally whenever the position changes */
+	private long hash;
+	/** The sums of the {@link Evaluation} scores of all pieces and the game phase, updated like the hash */
+	private int middlegameScore;
+	private int endgameScore;
+	private int phase;
+	/** One packed undo record per move that can be taken back */
+	private long[] undoStack = new long[INITIAL_UNDO_CAPACITY];
+	/** The hash before each move that can be taken back */
+	private long[] hashStack = new long[INITIAL_UNDO_CAPACITY];
+	private int undoCount;
+
+	public Position()
+	{
+		Arrays.fill(board, (byte) Piece.NONE);
+	}
+
+	public static Position startPosition()
+	{
+		return fromFEN(START_FEN);
+	}
+
+	/**
+	 * Create a position from a FEN string.
+	 * The halfmove clock and the fullmove number may be "-", in which case they default to 0 and 1.
+	 * Castling rights and the en passant square have to fit the board, since moves are generated from them without checking it again.
+	 * @param fen The FEN string
+	 * @return The position described by the FEN
+	 * @throws IllegalArgumentException in case of malformed FEN string, or castling rights or an en passant square the board does not allow
+	 * @see <a href="https://www.chess.com/terms/fen-chess">FEN</a>
+	 */
+	public static Position fromFEN(@NotNull String fen) throws IllegalArgumentException
+	{
+		String[] sections = fen.trim().split("\\s+");
+		Assert.isTrue(sections.length == 6, "Malformed FEN string");
+		Position position = new Position();
+		int rank = 7, file = 0;
+		for (char c : sections[0].toCharArray())
+		{
+			if (Character.isDigit(c))
+			{
+				file += Character.getNumericValue(c);
+			} else if (c == '/')
+			{
+				file = 0;
+				rank--;
+			} else
+			{
+				int piece = Piece.fromChar(c);
+				if (piece == Piece.NONE)
+					throw new IllegalArgumentException("Unknown piece specifier " + c);
+				Assert.isTrue(file < 8 && rank >= 0, "Malformed FEN string");
+				position.putPiece(piece, Square.of(file++, rank));
+			}
+		}
+		Assert.isTrue(Bitboards.count(position.pieces(Piece.WHITE, Piece.KING)) == 1
+				&& Bitboards.count(position.pieces(Piece.BLACK, Piece.KING)) == 1, "Both players need exactly one king");
+
+		Assert.isTrue(sections[1].equals("w") || sections[1].equals("b"), "Malformed FEN string");
+		position.sideToMove = sections[1].equals("w") ? Piece.WHITE : Piece.BLACK;
+		if (sections[2].contains("K")) position.castlingRights |= WHITE_KINGSIDE;
+		if (sections[2].contains("Q")) position.castlingRights |= WHITE_QUEENSIDE;
+		if (sections[2].contains("k")) position.castlingRights |= BLACK_KINGSIDE;
+		if (sections[2].contains("q")) position.castlingRights |= BLACK_QUEENSIDE;
+		position.checkCastlingRight(WHITE_KINGSIDE, Piece.WHITE, Square.E1, Square.H1);
+		position.checkCastlingRight(WHITE_QUEENSIDE, Piece.WHITE, Square.E1, Square.A1);
+		position.checkCastlingRight(BLACK_KINGSIDE, Piece.BLACK, Square.E8, Square.H8);
+		position.checkCastlingRight(BLACK_QUEENSIDE, Piece.BLACK, Square.E8, Square.A8);
+		position.enPassant = sections[3].equals("-") ? Square.NONE : Square.fromTile(sections[3]);
+		if (position.enPassant != Square.NONE)
+			position.checkEnPassant();
+		position.halfmoveClock = sections[4].equals("-") ? 0 : Integer.parseInt(sections[4]);
+		position.fullmoveNumber = sections[5].equals("-") ? 1 : Integer.parseInt(sections[5]);
+		position.hash = Zobrist.hash(position);
+
+		return position;
+	}
+
+	/**
+	 * A castling right moves the rook from its start square, so the king and the rook need to stand on their start squares
+	 */
+	private void checkCastlingRight(int right, int color, int kingSquare, int rookSquare)
+	{
+		if ((castlingRights & right) == 0)
+			return;
+		Assert.isTrue(board[kingSquare] == Piece.make(color, Piece.KING) && board[rookSquare] == Piece.make(color, Piece.ROOK),
+				"Castling rights need the king and the rook on their start squares");
+	}
+
+	/**
+	 * The en passant square is the square a pawn of the player who is not to move just passed:
+	 * on the third or sixth rank, empty, with that pawn directly in front of it
+	 */
+	private void checkEnPassant()
+	{
+		int them = Piece.opposite(sideToMove);
+		int rank = Square.rank(enPassant);
+		int pawnSquare = sideToMove == Piece.WHITE ? enPassant - 8 : enPassant + 8;
+		Assert.isTrue(rank == (sideToMove == Piece.WHITE ? 5 : 2) && board[enPassant] == Piece.NONE
+				&& board[pawnSquare] == Piece.make(them, Piece.PAWN), "The en passant square needs a pawn that just moved two squares");
+	}
+
+	/**
+	 * Generate a FEN string that represents this position.
+	 * @return The FEN string
+	 * @see <a href="https://www.chess.com/terms/fen-chess">FEN</a>
+	 */
+	public String toFEN()
+	{
+		return String.format("%s %c %s %s %d %d", boardFEN(), sideToMove == Piece.WHITE ? 'w' : 'b', castlingFEN(),
+				enPassant == Square.NONE ? "-" : Square.toFEN(enPassant), halfmoveClock, fullmoveNumber);
+	}
+
+	/** @return The piece placement section of the FEN string */
+	public String boardFEN()
+	{
+		StringBuilder fen = new StringBuilder();
+		for (int rank = 7; rank >= 0; rank--)
+		{
+			int emptyTiles = 0;
+			for (int file = 0; file < 8; file++)
+			{
+				int piece = board[Square.of(file, rank)];
+				if (piece == Piece.NONE)
+				{
+					emptyTiles++;
+					continue;
+				}
+				if (emptyTiles != 0)
+				{
+					fen.append(emptyTiles);
+					emptyTiles = 0;
+				}
+				fen.append(Piece.toChar(piece));
+			}
+			if (emptyTiles != 0)
+			{
+				fen.append(emptyTiles);
+			}
+			if (rank > 0)
+			{
+				fen.append('/');
+			}
+		}
+		return fen.toString();
+	}
+
+	/** @return The castling section of the FEN string */
+	public String castlingFEN()
+	{
+		if (castlingRights == 0)
+			return "-";
+
+		StringBuilder fen = new StringBuilder(4);
+		if ((castlingRights & WHITE_KINGSIDE) != 0) fen.append('K');
+		if ((castlingRights & WHITE_QUEENSIDE) != 0) fen.append('Q');
+		if ((castlingRights & BLACK_KINGSIDE) != 0) fen.append('k');
+		if ((castlingRights & BLACK_QUEENSIDE) != 0) fen.append('q');
+		return fen.toString();
+	}
+
+	/** @return An independent copy of this position, without the moves that could be taken back */
+	public Position copy()
+	{
+		Position copy = new Position();
+		System.arraycopy(pieces, 0, copy.pieces, 0, pieces.length);
+		System.arraycopy(occupancy, 0, copy.occupancy, 0, occupancy.length);
+		System.arraycopy(board, 0, copy.board, 0, board.length);
+		copy.occupied = occupied;
+		copy.sideToMove = sideToMove;
+		copy.castlingRights = castlingRights;
+		copy.enPassant = enPassant;
+		copy.halfmoveClock = halfmoveClock;
+		copy.fullmoveNumber = fullmoveNumber;
+		copy.hash = hash;
+		copy.middlegameScore = middlegameScore;
+		copy.endgameScore = endgameScore;
+		copy.phase = phase;
+		copy.attackMap.copyFrom(attackMap);
+		return copy;
+	}
+
+	/**
+	 * Packs this position into {@link #PACKED_SIZE} bytes: one nibble per square, followed by the turn,
+	 * castling rights, en passant square and both clocks. The moves that could be taken back are not included.
+	 * @return The packed position
+	 * @see #unpack(byte[])
+	 */
+	public byte[] pack()
+	{
+		byte[] packed = new byte[PACKED_SIZE];
+		for (int square = 0; square < 64; square += 2)
+			packed[square / 2] = (byte) ((board[square] + 1) | (board[square + 1] + 1) << 4);
+		packed[32] = (byte) sideToMove;
+		packed[33] = (byte) castlingRights;
+		packed[34] = (byte) enPassant;
+		packed[35] = (byte) Math.min(halfmoveClock, 255);
+		packed[36] = (byte) fullmoveNumber;
+		packed[37] = (byte) (fullmoveNumber >>> 8);
+		return packed;
+	}
+
+	/**
+	 * Restores a position that was packed with {@link #pack()}
+	 * @param packed The packed position
+	 * @return The position
+	 * @throws IllegalArgumentException If the data is not a packed position
+	 */
+	public static Position unpack(byte[] packed) throws IllegalArgumentException
+	{
+		Assert.isTrue(packed.length == PACKED_SIZE, "Malformed packed position");
+		Position position = new Position();
+		for (int square = 0; square < 64; square++)
+		{
+			int piece = (packed[square / 2] >>> (4 * (square & 1)) & 0xF) - 1;
+			Assert.isTrue(piece < Piece.COUNT, "Malformed packed position");
+			if (piece != Piece.NONE)
+				position.putPiece(piece, square);
+		}
+		position.sideToMove = packed[32];
+		position.castlingRights = packed[33];
+		position.enPassant = packed[34];
+		position.halfmoveClock = packed[35] & 0xFF;
+		position.fullmoveNumber = (packed[36] & 0xFF) | (packed[37] & 0xFF) << 8;
+		position.hash = Zobrist.hash(position);
+		return position;
+	}
+
+	/**
+	 * Plays a move and applies all of its side effects: captures (including en passant), promotion,
+	 * moving the rook when castling, castling rights, the en passant square, both clocks and the turn.
+	 * The move can be taken back exactly with {@link #unmakeMove()}.
+	 * Assumes that the move is legal.
+	 * @param from The square of the piece to be moved
+	 * @param to The destination square
+	 * @param promotion The piece type a pawn promotes to when reaching the last rank, ignored for other moves
+	 * @return The captured piece, {@link Piece#NONE} if nothing was captured
+	 */
+	public int makeMove(int from, int to, int promotion)
+	{
+		long previousHash = hash;
+		int piece = removePiece(from);
+		int type = Piece.typeOf(piece);
+		int captured = removePiece(to);
+		boolean promoted = false;
+		if (type == Piece.PAWN)
+		{
+			// The pawn captured en passant stands behind the destination square
+			if (to == enPassant)
+				captured = removePiece(to ^ 8);
+			if (Square.rank(to) == 0 || Square.rank(to) == 7)
+			{
+				piece = Piece.make(sideToMove, promotion);
+				promoted = true;
+			}
+		}
+		pushUndo(from, to, captured, promoted, previousHash);
+		putPiece(piece, to);
+		if (type == Piece.KING && Math.abs(to - from) == 2)
+		{
+			// Castling, move the rook to the other side of the king
+			boolean kingside = to > from;
+			putPiece(removePiece(kingside ? from + 3 : from - 4), kingside ? from + 1 : from - 1);
+		}
+
+		halfmoveClock = (type == Piece.PAWN || captured != Piece.NONE) ? 0 : halfmoveClock + 1;
+		hash ^= Zobrist.enPassant(enPassant) ^ Zobrist.castling(castlingRights);
+		enPassant = (type == Piece.PAWN && Math.abs(to - from) == 16) ? (from + to) / 2 : Square.NONE;
+		castlingRights &= ~(CASTLING_RIGHTS_LOST[from] | CASTLING_RIGHTS_LOST[to]);
+		hash ^= Zobrist.enPassant(enPassant) ^ Zobrist.castling(castlingRights);
+		if (sideToMove == Piece.BLACK)
+			fullmoveNumber++;
+		sideToMove = Piece.opposite(sideToMove);
+		hash ^= Zobrist.sideToMove(Piece.WHITE) ^ Zobrist.sideToMove(Piece.BLACK);
+		return captured;
+	}
+
+	/**
+	 * Plays a packed move, see {@link #makeMove(int, int, int)}
+	 * @param move The move, which must be legal
+	 * @return The captured piece, {@link Piece#NONE} if nothing was captured
+	 */
+	public int makeMove(int move)
+	{
+		return makeMove(Move.from(move), Move.to(move), Move.promotion(move));
+	}
+
+	/**
+	 * Takes back the last move played with {@link #makeMove(int, int, int)}, restoring the position exactly
+	 * @throws IllegalStateException If there is no move to take back
+	 */
+	public void unmakeMove() throws IllegalStateException
+	{
+		if (undoCount == 0)
+			throw new IllegalStateException("No move to unmake");
+
+		long undo = undoStack[--undoCount];
+		int from = (int) (undo & 0x3F);
+		int to = (int) ((undo >>> UNDO_TO) & 0x3F);
+		int captured = (int) ((undo >>> UNDO_CAPTURED) & 0xF) - 1;
+		castlingRights = (int) ((undo >>> UNDO_CASTLING) & 0xF);
+		enPassant = (int) ((undo >>> UNDO_EN_PASSANT) & 0x7F) - 1;
+		boolean promoted = ((undo >>> UNDO_PROMOTED) & 1) != 0;
+		halfmoveClock = (int) (undo >>> UNDO_HALFMOVE_CLOCK);
+
+		sideToMove = Piece.opposite(sideToMove);
+		if (sideToMove == Piece.BLACK)
+			fullmoveNumber--;
+
+		int piece = removePiece(to);
+		if (promoted)
+			piece = Piece.make(sideToMove, Piece.PAWN);
+		putPiece(piece, from);
+		if (Piece.typeOf(piece) == Piece.KING && Math.abs(to - from) == 2)
+		{
+			boolean kingside = to > from;
+			putPiece(removePiece(kingside ? from + 1 : from - 1), kingside ? from + 3 : from - 4);
+		}
+		if (captured != Piece.NONE)
+		{
+			boolean capturedEnPassant = Piece.typeOf(piece) == Piece.PAWN && to == enPassant;
+			putPiece(captured, capturedEnPassant ? to ^ 8 : to);
+		}
+		// Moving the pieces back changed the hash, restore it as a whole
+		hash = hashStack[undoCount];
+	}
+
+	/**
+	 * Checks whether the current position occurred before since the last capture or pawn move.
+	 * Only moves that can still be taken back are considered.
+	 * @return <code>true</code> if the position is a repetition
+	 */
+	public boolean isRepetition()
+	{
+		// Positions with the other side to move can not be equal, and none before the last irreversible move
+		int oldest = Math.max(0, undoCount - halfmoveClock);
+		for (int i = undoCount - 2; i >= oldest; i -= 2)
+		{
+			if (hashStack[i] == hash)
+				return true;
+		}
+		return false;
+	}
+
+	/** @return The number of moves that can be taken back with {@link #unmakeMove()} */
+	public int getUndoCount()
+	{
+		return undoCount;
+	}
+
+	/**
+	 * Saves everything that cannot be recomputed when a move is taken back.
+	 * The state before the move is packed into a single long, see the <code>UNDO_</code> constants.
+	 */
+	private void pushUndo(int from, int to, int captured, boolean promoted, long previousHash)
+	{
+		if (undoCount == undoStack.length)
+		{
+			undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+			hashStack = Arrays.copyOf(hashStack, hashStack.length * 2);
+		}
+		hashStack[undoCount] = previousHash;
+		undoStack[undoCount++] = from
+				| ((long) to << UNDO_TO)
+				| ((long) (captured + 1) << UNDO_CAPTURED)
+				| ((long) castlingRights << UNDO_CASTLING)
+				| ((long) (enPassant + 1) << UNDO_EN_PASSANT)
+				| ((promoted ? 1L : 0L) << UNDO_PROMOTED)
+				| ((long) halfmoveClock << UNDO_HALFMOVE_CLOCK);
+	}
+
+	/**
+	 * Places a piece on an empty square
+	 * @param piece The piece
+	 * @param square The square, which must be empty
+	 */
+	public void putPiece(int piece, int square)
+	{
+		attackMap.onPut(this, piece, square);
+		long b = Bitboards.bit(square);
+		pieces[piece] |= b;
+		occupancy[Piece.colorOf(piece)] |= b;
+		occupied |= b;
+		board[square] = (byte) piece;
+		hash ^= Zobrist.piece(piece, square);
+		middlegameScore += Evaluation.middlegame(piece, square);
+		endgameScore += Evaluation.endgame(piece, square);
+		phase += Evaluation.phase(piece);
+	}
+
+	/**
+	 * Removes the piece on a square
+	 * @param square The square
+	 * @return The removed piece, {@link Piece#NONE} if the square was empty
+	 */
+	public int removePiece(int square)
+	{
+		int piece = board[square];
+		if (piece == Piece.NONE)
+			return Piece.NONE;
+
+		long b = ~Bitboards.bit(square);
+		pieces[piece] &= b;
+		occupancy[Piece.colorOf(piece)] &= b;
+		occupied &= b;
+		board[square] = (byte) Piece.NONE;
+		hash ^= Zobrist.piece(piece, square);
+		middlegameScore -= Evaluation.middlegame(piece, square);
+		endgameScore -= Evaluation.endgame(piece, square);
+		phase -= Evaluation.phase(piece);
+		attackMap.onRemove(this, piece, square);
+		return piece;
+	}
+
+	/**
+	 * Moves a piece to another square, capturing the piece on the destination square if there is one
+	 * @param from The square of the piece
+	 * @param to The destination square
+	 * @return The captured piece, {@link Piece#NONE} if nothing was captured
+	 */
+	public int movePiece(int from, int to)
+	{
+		int captured = removePiece(to);
+		int piece = removePiece(from);
+		if (piece != Piece.NONE)
+			putPiece(piece, to);
+		return captured;
+	}
+
+	/** @return The piece on a square, {@link Piece#NONE} if the square is empty */
+	public int pieceAt(int square)
+	{
+		return board[square];
+	}
+
+	/** @return The bitboard of a colored piece */
+	public long pieces(int piece)
+	{
+		return pieces[piece];
+	}
+
+	public long pieces(int color, int type)
+	{
+		return pieces[Piece.make(color, type)];
+	}
+
+	public long occupancy(int color)
+	{
+		return occupancy[color];
+	}
+
+	public long occupied()
+	{
+		return occupied;
+	}
+
+	public int kingSquare(int color)
+	{
+		return Bitboards.lsb(pieces(color, Piece.KING));
+	}
+
+	/**
+	 * Computes all pieces of a color that attack a square
+	 * @param square The attacked square
+	 * @param byColor The color of the attacking pieces
+	 * @return A bitboard of all attackers
+	 */
+	public long attackersTo(int square, int byColor)
+	{
+		return attackersTo(square, byColor, occupied);
+	}
+
+	/**
+	 * Computes all pieces of a color that attack a square, with sliding attacks blocked by the given occupancy.
+	 * @param square The attacked square
+	 * @param byColor The color of the attacking pieces
+	 * @param occupied The squares that block sliding pieces
+	 * @return A bitboard of all attackers
+	 */
+	public long attackersTo(int square, int byColor, long occupied)
+	{
+		long queens = pieces(byColor, Piece.QUEEN);
+		return (Attacks.pawn(Piece.opposite(byColor), square) & pieces(byColor, Piece.PAWN))
+				| (Attacks.knight(square) & pieces(byColor, Piece.KNIGHT))
+				| (Attacks.king(square) & pieces(byColor, Piece.KING))
+				| (Attacks.bishop(square, occupied) & (pieces(byColor, Piece.BISHOP) | queens))
+				| (Attacks.rook(square, occupied) & (pieces(byColor, Piece.ROOK) | queens));
+	}
+
+	/**
+	 * Checks whether a square is attacked by any piece of a color.
+	 * @param square The square
+	 * @param byColor The color of the attacking pieces
+	 * @param occupied The squares that block sliding pieces, e.g. without the king that is about to move
+	 * @return <code>true</code> if at least one piece attacks the square
+	 */
+	public boolean isSquareAttacked(int square, int byColor, long occupied)
+	{
+		long queens = pieces(byColor, Piece.QUEEN);
+		return (Attacks.knight(square) & pieces(byColor, Piece.KNIGHT)) != 0
+				|| (Attacks.pawn(Piece.opposite(byColor), square) & pieces(byColor, Piece.PAWN)) != 0
+				|| (Attacks.king(square) & pieces(byColor, Piece.KING)) != 0
+				|| (Attacks.bishop(square, occupied) & (pieces(byColor, Piece.BISHOP) | queens)) != 0
+				|| (Attacks.rook(square, occupied) & (pieces(byColor, Piece.ROOK) | queens)) != 0;
+	}
+
+	/**
+	 * Checks whether a square is attacked by any piece of a color, in constant time using the attack map
+	 * @param square The square
+	 * @param byColor The color of the attacking pieces
+	 * @return <code>true</code> if at least one piece of the color attacks the square
+	 */
+	public boolean isSquareAttacked(int square, int byColor)
+	{
+		return attackMap.isAttacked(square, byColor);
+	}
+
+	/** @return <code>true</code> if the king of the side to move is in check */
+	public boolean isInCheck()
+	{
+		return attackMap.isAttacked(kingSquare(sideToMove), Piece.opposite(sideToMove));
+	}
+
+	/** @return The pieces giving check to the side to move */
+	public long checkers()
+	{
+		return isInCheck() ? attackersTo(kingSquare(sideToMove), Piece.opposite(sideToMove)) : Bitboards.EMPTY;
+	}
+
+	/** @return The number of attackers and the attacked squares of each color */
+	public AttackMap getAttackMap()
+	{
+		return attackMap;
+	}
+
+	/** @return The Zobrist hash of this position */
+	public long getHash()
+	{
+		return hash;
+	}
+
+	/** @return The middlegame score of all pieces, positive if white is ahead, see {@link Evaluation} */
+	public int getMiddlegameScore()
+	{
+		return middlegameScore;
+	}
+
+	/** @return The endgame score of all pieces, positive if white is ahead, see {@link Evaluation} */
+	public int getEndgameScore()
+	{
+		return endgameScore;
+	}
+
+	/** @return The game phase, from 0 with only kings and pawns left up to {@link Evaluation#MAX_PHASE} with all pieces */
+	public int getPhase()
+	{
+		return phase;
+	}
+
+	public int getSideToMove()
+	{
+		return sideToMove;
+	}
+
+	public int getCastlingRights()
+	{
+		return castlingRights;
+	}
+
+	/**
+	 * @param color The color
+	 * @param kingside Whether to check the kingside or queenside castle
+	 * @return <code>true</code> if the player may still castle to that side
+	 */
+	public boolean canCastle(int color, boolean kingside)
+	{
+		return (castlingRights & castlingRight(color, kingside)) != 0;
+	}
+
+	public static int castlingRight(int color, boolean kingside)
+	{
+		return (kingside ? WHITE_KINGSIDE : WHITE_QUEENSIDE) << (2 * color);
+	}
+
+	public int getEnPassant()
+	{
+		return enPassant;
+	}
+
+	public int getHalfmoveClock()
+	{
+		return halfmoveClock;
+	}
+
+	public int getFullmoveNumber()
+	{
+		return fullmoveNumber;
+	}
+}
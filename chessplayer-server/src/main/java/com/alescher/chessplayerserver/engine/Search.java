@@ -0,0 +1,331 @@
+package com.alescher.chessplayerserver.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.util.Assert;
+
+import java.util.Arrays;
+
+/**
+ * Finds the best move of a position with a negamax alpha-beta search and iterative deepening:
+ * the position is searched one ply deeper in every iteration until the time budget runs out, and the best move
+ * of the last iteration is searched first in the next one. The leaves are resolved by a quiescence search over captures.
+ * The moves of each node are ordered by a {@link MovePicker}, with the killer moves and the history table of this search.
+ * <p>
+ * The search works on its own copy of the position, so the game it was started from is never touched.
+ * Results are kept in a {@link TranspositionTable}, which may be shared with searches running in parallel on other threads,
+ * see {@link ParallelSearch}. A search itself is not thread-safe, apart from {@link #stop()}.
+ *
+ * @author AlEscher
+ */
+public final class Search
+{
+	/** The score of being checkmated at the root, mate in n plies scores <code>MATE - n</code> */
+	public static final int MATE = 32000;
+	public static final int MAX_DEPTH = 64;
+	private static final int INFINITY = MATE + 1;
+	/** How many nodes are searched between two looks at the clock */
+	private static final int CLOCK_INTERVAL = 1024;
+	/** The size of the table of a search that does not share one */
+	private static final int DEFAULT_TABLE_SIZE_MB = 1;
+	/** History scores are halved once one of them reaches this, so that recent cutoffs count more than old ones */
+	private static final int HISTORY_LIMIT = 1 << 20;
+
+	private final Position position;
+	private final MoveGenerator generator;
+	private final TranspositionTable table;
+	/** The move picker of each ply, created when the ply is first reached */
+	private final MovePicker[] pickers = new MovePicker[MoveList.MAX_PLY];
+	/** The two most recent quiet moves of each ply that caused a cutoff */
+	private final int[][] killers = new int[MoveList.MAX_PLY][2];
+	/** How often each piece moving to each square caused a cutoff, weighted by the depth */
+	private final int[][] history = new int[Piece.COUNT][64];
+	private long deadline;
+	private long nodes;
+	private boolean stopped;
+	private volatile boolean stopRequested;
+
+	/**
+	 * @param position The position to search, which is copied and not modified
+	 */
+	public Search(@NotNull Position position)
+	{
+		this(position, new TranspositionTable(DEFAULT_TABLE_SIZE_MB));
+	}
+
+	/**
+	 * @param position The position to search, which is copied and not modified
+	 * @param table The table to keep results in
+	 */
+	public Search(@NotNull Position position, @NotNull TranspositionTable table)
+	{
+		this.position = position.copy();
+		this.generator = new MoveGenerator(this.position);
+		this.table = table;
+	}
+
+	/**
+	 * Searches the position until the time budget is used up or the maximum depth is reached.
+	 * At least the first iteration is always completed, so a legal move is returned even for a tiny budget.
+	 * @param timeMillis The time budget
+	 * @param maxDepth The maximum depth in plies, at most {@link #MAX_DEPTH}
+	 * @return The best move and its score
+	 */
+	public SearchResult search(long timeMillis, int maxDepth)
+	{
+		return search(timeMillis, maxDepth, 1);
+	}
+
+	/**
+	 * Searches the position until the time budget is used up, the maximum depth is reached or the search is stopped
+	 * @param timeMillis The time budget
+	 * @param maxDepth The maximum depth in plies, at most {@link #MAX_DEPTH}
+	 * @param firstDepth The depth of the first iteration, helpers of a parallel search start deeper than the main thread
+	 * @return The best move and its score
+	 */
+	public SearchResult search(long timeMillis, int maxDepth, int firstDepth)
+	{
+		Assert.isTrue(maxDepth > 0 && maxDepth <= MAX_DEPTH, "The depth needs to be between 1 and " + MAX_DEPTH);
+		Assert.isTrue(firstDepth > 0 && firstDepth <= maxDepth, "The first depth needs to be between 1 and the maximum depth");
+		long start = System.nanoTime();
+		deadline = Long.MAX_VALUE;
+		nodes = 0;
+		stopped = false;
+		for (int[] plyKillers : killers)
+			Arrays.fill(plyKillers, Move.NONE);
+		ageHistory();
+
+		MoveList rootMoves = new MoveList();
+		generator.update();
+		generator.generate(rootMoves);
+		if (rootMoves.isEmpty())
+			return new SearchResult(Move.NONE, position.isInCheck() ? -MATE : 0, 0, 0, 0);
+
+		int bestMove = rootMoves.get(0);
+		int bestScore = -INFINITY;
+		int depth = 0;
+		for (int iteration = firstDepth; iteration <= maxDepth; iteration++)
+		{
+			int iterationMove = Move.NONE;
+			int iterationScore = -INFINITY;
+			// The best move so far is searched first, so a partial iteration can still improve on it.
+			// Before the first iteration that is the move of an earlier search or another thread, if the table has one.
+			orderRootMoves(rootMoves, iteration == firstDepth ? TranspositionTable.move(table.probe(position.getHash())) : bestMove);
+			for (int i = 0; i < rootMoves.size(); i++)
+			{
+				int move = rootMoves.get(i);
+				position.makeMove(move);
+				int score = -negamax(iteration - 1, 1, -INFINITY, -iterationScore);
+				position.unmakeMove();
+				if (stopped)
+					break;
+				if (score > iterationScore)
+				{
+					iterationScore = score;
+					iterationMove = move;
+				}
+			}
+			if (iterationMove != Move.NONE)
+			{
+				bestMove = iterationMove;
+				bestScore = iterationScore;
+			}
+			if (stopped)
+				break;
+			depth = iteration;
+			// A forced mate will not get any better
+			if (isMateScore(bestScore))
+				break;
+			// The deadline is only set after the first iteration, which is always completed
+			if (iteration == firstDepth)
+				deadline = start + timeMillis * 1_000_000;
+			if (System.nanoTime() >= deadline)
+				break;
+		}
+		return new SearchResult(bestMove, bestScore, depth, nodes, (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Makes a running search return as soon as possible, with the best move of the iterations it completed.
+	 * May be called from any thread. A stopped search stays stopped and cannot be used again.
+	 */
+	public void stop()
+	{
+		stopRequested = true;
+	}
+
+	/**
+	 * @param score A score returned by the search
+	 * @return <code>true</code> if the score means that one side can force checkmate
+	 */
+	public static boolean isMateScore(int score)
+	{
+		return Math.abs(score) >= MATE - MAX_DEPTH - MoveList.MAX_PLY;
+	}
+
+	private int negamax(int depth, int ply, int alpha, int beta)
+	{
+		if (depth <= 0)
+			return quiescence(ply, alpha, beta);
+		if (checkClock())
+			return 0;
+		if (position.isRepetition() || position.getHalfmoveClock() >= 100)
+			return 0;
+		if (ply >= MoveList.MAX_PLY - 1)
+			return Evaluation.evaluate(position);
+
+		long hash = position.getHash();
+		long entry = table.probe(hash);
+		int tableMove = Move.NONE;
+		if (entry != 0)
+		{
+			tableMove = TranspositionTable.move(entry);
+			if (TranspositionTable.depth(entry) >= depth)
+			{
+				int score = TranspositionTable.fromTable(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT || bound == TranspositionTable.LOWER && score >= beta
+						|| bound == TranspositionTable.UPPER && score <= alpha)
+					return score;
+			}
+		}
+
+		MovePicker picker = picker(ply);
+		picker.init(tableMove, killers[ply][0], killers[ply][1]);
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		int bestMove = Move.NONE;
+		for (int move = picker.next(); move != Move.NONE; move = picker.next())
+		{
+			position.makeMove(move);
+			int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+			position.unmakeMove();
+			if (stopped)
+				return 0;
+			if (score > best)
+			{
+				best = score;
+				bestMove = move;
+				if (score > alpha)
+					alpha = score;
+				if (alpha >= beta)
+				{
+					if (!Move.isCapture(move) && !Move.isPromotion(move))
+						rememberCutoff(move, depth, ply);
+					break;
+				}
+			}
+		}
+		if (bestMove == Move.NONE)
+			return position.isInCheck() ? -MATE + ply : 0;
+
+		int bound = best >= beta ? TranspositionTable.LOWER : best <= originalAlpha ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+		// Failing low does not tell which move is best
+		table.store(hash, bound == TranspositionTable.UPPER ? Move.NONE : bestMove, TranspositionTable.toTable(best, ply), depth, bound);
+		return best;
+	}
+
+	/**
+	 * Searches captures until the position is quiet, so that the evaluation is not taken in the middle of an exchange.
+	 * The side to move may always stand pat instead of capturing, unless it is in check.
+	 */
+	private int quiescence(int ply, int alpha, int beta)
+	{
+		if (checkClock())
+			return 0;
+
+		boolean inCheck = position.isInCheck();
+		int best = -INFINITY;
+		if (!inCheck)
+		{
+			best = Evaluation.evaluate(position);
+			if (best >= beta || ply >= MoveList.MAX_PLY - 1)
+				return best;
+			if (best > alpha)
+				alpha = best;
+		}
+
+		// In check, every evasion is searched
+		MovePicker picker = picker(ply);
+		if (inCheck)
+			picker.init(Move.NONE, Move.NONE, Move.NONE);
+		else
+			picker.initCaptures();
+		for (int move = picker.next(); move != Move.NONE; move = picker.next())
+		{
+			position.makeMove(move);
+			int score = -quiescence(ply + 1, -beta, -alpha);
+			position.unmakeMove();
+			if (stopped)
+				return 0;
+			if (score > best)
+			{
+				best = score;
+				if (score > alpha)
+					alpha = score;
+				if (alpha >= beta)
+					break;
+			}
+		}
+		// Only the captures of a position that is not in check are known, so stalemate is not detected here
+		if (inCheck && best == -INFINITY)
+			return -MATE + ply;
+		return best;
+	}
+
+	/**
+	 * Counts a node and looks at the clock every {@link #CLOCK_INTERVAL} nodes
+	 * @return <code>true</code> if the search has to stop
+	 */
+	private boolean checkClock()
+	{
+		if ((++nodes & (CLOCK_INTERVAL - 1)) == 0 && (stopRequested || System.nanoTime() >= deadline))
+			stopped = true;
+		return stopped;
+	}
+
+	/**
+	 * Makes a quiet move that caused a cutoff a killer move of its ply and counts it in the history table
+	 */
+	private void rememberCutoff(int move, int depth, int ply)
+	{
+		int[] plyKillers = killers[ply];
+		if (plyKillers[0] != move)
+		{
+			plyKillers[1] = plyKillers[0];
+			plyKillers[0] = move;
+		}
+		int[] pieceHistory = history[position.pieceAt(Move.from(move))];
+		pieceHistory[Move.to(move)] += depth * depth;
+		if (pieceHistory[Move.to(move)] >= HISTORY_LIMIT)
+			ageHistory();
+	}
+
+	/** Halves all history scores */
+	private void ageHistory()
+	{
+		for (int[] pieceHistory : history)
+		{
+			for (int square = 0; square < pieceHistory.length; square++)
+				pieceHistory[square] /= 2;
+		}
+	}
+
+	private MovePicker picker(int ply)
+	{
+		if (pickers[ply] == null)
+			pickers[ply] = new MovePicker(position, generator, history);
+		return pickers[ply];
+	}
+
+	/**
+	 * Orders the root moves like the moves of every other ply, but with the best move of the last iteration first
+	 */
+	private void orderRootMoves(MoveList moves, int bestMove)
+	{
+		MovePicker picker = picker(0);
+		picker.init(bestMove, killers[0][0], killers[0][1]);
+		moves.clear();
+		for (int move = picker.next(); move != Move.NONE; move = picker.next())
+			moves.add(move);
+	}
+}
@@ -0,0 +1,20 @@
+package com.alescher.chessplayerserver.engine;
+
+/**
+ * The outcome of a {@link Search}
+ * @param bestMove The best move found, {@link Move#NONE} if the side to move has no legal move
+ * @param score The score of the best move in centipawns from the point of view of the side to move, see {@link Search#isMateScore(int)}
+ * @param depth The depth of the last completed iteration
+ * @param nodes The number of positions visited
+ * @param timeMillis The time the search took
+ *
+ * @author AlEscher
+ */
+public record SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis)
+{
+	/** @return The nodes searched per second */
+	public long nodesPerSecond()
+	{
+		return nodes * 1000 / Math.max(1, timeMillis);
+	}
+}
@@ -0,0 +1,95 @@
+package com.alescher.chessplayerserver.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.Point;
+
+/**
+ * Helper functions for squares on a bitboard.
+ * A square is an index from 0 (A1) to 63 (H8), counted file by file and rank by rank.
+ *
+ * @author AlEscher
+ */
+public final class Square
+{
+	/** Marker for "no square", e.g. when no en passant capture is possible */
+	public static final int NONE = -1;
+
+	public static final int A1 = 0, B1 = 1, C1 = 2, D1 = 3, E1 = 4, F1 = 5, G1 = 6, H1 = 7;
+	public static final int A8 = 56, B8 = 57, C8 = 58, D8 = 59, E8 = 60, F8 = 61, G8 = 62, H8 = 63;
+
+	private Square() {}
+
+	public static int of(int file, int rank)
+	{
+		return rank * 8 + file;
+	}
+
+	public static int file(int square)
+	{
+		return square & 7;
+	}
+
+	public static int rank(int square)
+	{
+		return square >>> 3;
+	}
+
+	/**
+	 * Converts a point of the 2D board representation used by the REST layer into a square.
+	 * The origin of the 2D board is in the top left, so (0, 0) is A8 and (0, 7) is A1.
+	 * @param point The 2D coordinate
+	 * @return The corresponding square
+	 */
+	public static int fromPoint(@NotNull Point point)
+	{
+		return of(point.x, 7 - point.y);
+	}
+
+	/**
+	 * Converts a square into the 2D board representation used by the REST layer
+	 * @param square The square
+	 * @return The corresponding 2D coordinate
+	 * @see Square#fromPoint(Point)
+	 */
+	public static Point toPoint(int square)
+	{
+		return new Point(file(square), 7 - rank(square));
+	}
+
+	/**
+	 * Parses a tile in chess notation, e.g. "A1" or "e4"
+	 * @param tile The tile
+	 * @return The corresponding square
+	 * @throws IllegalArgumentException If the tile is malformed
+	 */
+	public static int fromTile(@NotNull String tile) throws IllegalArgumentException
+	{
+		if (tile.length() != 2)
+			throw new IllegalArgumentException(String.format("Malformed chess tile: %s", tile));
+		int file = Character.toUpperCase(tile.charAt(0)) - 'A';
+		int rank = tile.charAt(1) - '1';
+		if (file < 0 || file > 7 || rank < 0 || rank > 7)
+			throw new IllegalArgumentException(String.format("Malformed chess tile: %s", tile));
+
+		return of(file, rank);
+	}
+
+	/**
+	 * @param square The square
+	 * @return The tile in the notation used by the REST layer, e.g. "A1"
+	 */
+	public static String toTile(int square)
+	{
+		return String.valueOf((char) ('A' + file(square))) + (char) ('1' + rank(square));
+	}
+
+	/**
+	 * @param square The square
+	 * @return The square in FEN / UCI notation, e.g. "a1"
+	 */
+	public static String toFEN(int square)
+	{
+		return String.valueOf((char) ('a' + file(square))) + (char) ('1' + rank(square));
+	}
+}
@@ -0,0 +1,242 @@
+package com.alescher.chessplayerserver.engine;
+
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remembers the results of searched positions by their Zobrist hash, so that a position reached again by another move order,
+ * in the next iteration or by another search thread is not searched again and its best move is tried first.
+ * <p>
+ * The table lives off the heap in direct buffers, so even a table of several gigabytes neither counts towards the heap
+ * nor has to be scanned by the garbage collector. Its size is limited by <code>-XX:MaxDirectMemorySize</code> instead,
+ * which defaults to the maximum heap size. Probing and storing never allocate.
+ * <p>
+ * The table is made of buckets of {@link #BUCKET_ENTRIES} entries, 64 bytes each so that a bucket fills one cache line.
+ * A position may be stored in any entry of the bucket its hash selects. Each entry is two longs, the key XOR the data and the data,
+ * so an entry torn by concurrent writes of several search threads fails verification and is treated as a miss, without any locking.
+ * The data of an entry is packed into a single long:
+ * <pre>
+ * bits  0-18  best move, see {@link Move}
+ * bits 19-20  bound, see {@link #EXACT}, {@link #LOWER} and {@link #UPPER}
+ * bits 21-28  depth
+ * bit     31  set for every entry, so that an empty slot never verifies
+ * bits 32-47  score
+ * bits 48-55  age, the search the entry was stored in, see {@link #startSearch()}
+ * </pre>
+ *
+ * @author AlEscher
+ */
+public final class TranspositionTable
+{
+	/** The score is exact */
+	public static final int EXACT = 0;
+	/** The score is at least the stored one, the search failed high */
+	public static final int LOWER = 1;
+	/** The score is at most the stored one, the search failed low */
+	public static final int UPPER = 2;
+	public static final int BUCKET_ENTRIES = 4;
+
+	private static final int MOVE_MASK = (1 << 19) - 1;
+	private static final int BOUND_SHIFT = 19;
+	private static final int DEPTH_SHIFT = 21;
+	private static final long VALID = 1L << 31;
+	private static final int SCORE_SHIFT = 32;
+	private static final int AGE_SHIFT = 48;
+	private static final int AGE_MASK = 0xFF;
+	/** How many plies of depth an entry is worth less for every search it is older */
+	private static final int AGE_PENALTY = 8;
+
+	private static final int ENTRY_BYTES = 16;
+	private static final int BUCKET_BYTES = BUCKET_ENTRIES * ENTRY_BYTES;
+	/** A single buffer holds at most 1 GB, larger tables are split into several */
+	private static final int BUCKETS_PER_BUFFER_BITS = 30 - Integer.numberOfTrailingZeros(BUCKET_BYTES);
+
+	private final ByteBuffer[] buffers;
+	private final long mask;
+	private volatile int age;
+	/** The number of searches that are running, which all use the same age */
+	private final AtomicInteger runningSearches = new AtomicInteger();
+
+	/**
+	 * @param sizeMb The size of the table in megabytes, rounded down to a power of two buckets
+	 */
+	public TranspositionTable(int sizeMb)
+	{
+		Assert.isTrue(sizeMb > 0, "The table needs at least one megabyte");
+		long buckets = Long.highestOneBit(sizeMb * (1L << 20) / BUCKET_BYTES);
+		long bucketsPerBuffer = Math.min(buckets, 1L << BUCKETS_PER_BUFFER_BITS);
+		buffers = new ByteBuffer[(int) (buckets / bucketsPerBuffer)];
+		for (int i = 0; i < buffers.length; i++)
+			buffers[i] = ByteBuffer.allocateDirect((int) (bucketsPerBuffer * BUCKET_BYTES)).order(ByteOrder.nativeOrder());
+		mask = buckets - 1;
+	}
+
+	/**
+	 * Starts a search, entries of earlier searches are replaced before those of the current one.
+	 * Called once per search, not by every thread of a parallel search, and followed by {@link #finishSearch()}.
+	 * <p>
+	 * Searches of different games may share the table at the same time. A new age is only started when no other search is running,
+	 * otherwise every search would make the entries of the others look old and have them replaced first.
+	 * Overlapping searches therefore share an age, and as long as searches keep overlapping the table does not age at all.
+	 */
+	public void startSearch()
+	{
+		if (runningSearches.getAndIncrement() == 0)
+			age = (age + 1) & AGE_MASK;
+	}
+
+	/** Ends a search started by {@link #startSearch()} */
+	public void finishSearch()
+	{
+		runningSearches.decrementAndGet();
+	}
+
+	/**
+	 * @param hash The Zobrist hash of the position
+	 * @return The packed entry, 0 if the position is not in the table
+	 */
+	public long probe(long hash)
+	{
+		ByteBuffer buffer = bufferOf(hash);
+		int bucket = bucketOf(hash);
+		for (int offset = bucket; offset < bucket + BUCKET_BYTES; offset += ENTRY_BYTES)
+		{
+			long entry = buffer.getLong(offset + 8);
+			if ((buffer.getLong(offset) ^ entry) == hash && entry != 0)
+				return entry;
+		}
+		return 0;
+	}
+
+	/**
+	 * Stores the result of a search. A deeper result of the same position is only replaced by a result with an exact score.
+	 * Another position is stored in an empty entry of the bucket if there is one, otherwise in the entry that is worth the least,
+	 * by its depth and how many searches ago it was stored.
+	 * @param hash The Zobrist hash of the position
+	 * @param move The best move, {@link Move#NONE} if there is none
+	 * @param score The score, mate scores relative to the position, see {@link #toTable(int, int)}
+	 * @param depth The depth that was searched
+	 * @param bound Whether the score is {@link #EXACT}, a {@link #LOWER} or an {@link #UPPER} bound
+	 */
+	public void store(long hash, int move, int score, int depth, int bound)
+	{
+		ByteBuffer buffer = bufferOf(hash);
+		int bucket = bucketOf(hash);
+		int currentAge = age;
+		int target = bucket;
+		int targetWorth = Integer.MAX_VALUE;
+		for (int offset = bucket; offset < bucket + BUCKET_BYTES; offset += ENTRY_BYTES)
+		{
+			long old = buffer.getLong(offset + 8);
+			if (old == 0)
+			{
+				// An empty entry, the position cannot be in a later one
+				target = offset;
+				break;
+			}
+			if ((buffer.getLong(offset) ^ old) == hash)
+			{
+				if (depth < depth(old) && bound != EXACT && age(old) == currentAge)
+					return;
+				// Keep the best move of the position if this search did not find one
+				if (move == Move.NONE)
+					move = move(old);
+				target = offset;
+				break;
+			}
+			int worth = depth(old) - AGE_PENALTY * ((currentAge - age(old)) & AGE_MASK);
+			if (worth < targetWorth)
+			{
+				target = offset;
+				targetWorth = worth;
+			}
+		}
+		long entry = (move & MOVE_MASK) | ((long) bound << BOUND_SHIFT) | ((long) depth << DEPTH_SHIFT) | VALID
+				| ((long) (score & 0xFFFF) << SCORE_SHIFT) | ((long) currentAge << AGE_SHIFT);
+		buffer.putLong(target + 8, entry);
+		buffer.putLong(target, hash ^ entry);
+	}
+
+	/** Removes all entries */
+	public void clear()
+	{
+		for (ByteBuffer buffer : buffers)
+		{
+			for (int offset = 0; offset < buffer.capacity(); offset += 8)
+				buffer.putLong(offset, 0);
+		}
+	}
+
+	/** @return The size of the table in bytes */
+	public long sizeBytes()
+	{
+		return (mask + 1) * BUCKET_BYTES;
+	}
+
+	private ByteBuffer bufferOf(long hash)
+	{
+		return buffers[(int) ((hash & mask) >>> BUCKETS_PER_BUFFER_BITS)];
+	}
+
+	/** @return The offset of the bucket of the hash in its buffer */
+	private int bucketOf(long hash)
+	{
+		return (int) (hash & mask & ((1L << BUCKETS_PER_BUFFER_BITS) - 1)) * BUCKET_BYTES;
+	}
+
+	public static int move(long entry)
+	{
+		return (int) entry & MOVE_MASK;
+	}
+
+	public static int bound(long entry)
+	{
+		return (int) (entry >>> BOUND_SHIFT) & 0x3;
+	}
+
+	public static int depth(long entry)
+	{
+		return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	/** @return The stored score, see {@link #fromTable(int, int)} */
+	public static int score(long entry)
+	{
+		return (short) (entry >>> SCORE_SHIFT);
+	}
+
+	private static int age(long entry)
+	{
+		return (int) (entry >>> AGE_SHIFT) & AGE_MASK;
+	}
+
+	/**
+	 * Mate scores count the plies from the root, but a position can be reached at different distances from the root.
+	 * They are stored as the distance from the position instead.
+	 * @param score The score of a search
+	 * @param ply The distance of the position from the root
+	 * @return The score to store
+	 */
+	public static int toTable(int score, int ply)
+	{
+		if (Search.isMateScore(score))
+			return score > 0 ? score + ply : score - ply;
+		return score;
+	}
+
+	/**
+	 * @param score A stored score
+	 * @param ply The distance of the position from the root of the current search
+	 * @return The score relative to the root
+	 * @see #toTable(int, int)
+	 */
+	public static int fromTable(int score, int ply)
+	{
+		if (Search.isMateScore(score))
+			return score > 0 ? score - ply : score + ply;
+		return score;
+	}
+}
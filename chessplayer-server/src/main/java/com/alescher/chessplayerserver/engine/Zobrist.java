@@ -0,0 +1,76 @@
+package com.alescher.chessplayerserver.engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. The hash of a position is the XOR of the keys of
+ * all pieces on their squares, the side to move, the castling rights and the en passant file.
+ * {@link Position} keeps its hash up to date incrementally, {@link #hash(Position)} is only needed to set it up.
+ *
+ * @author AlEscher
+ */
+public final class Zobrist
+{
+	private static final long[][] PIECE_SQUARE = new long[Piece.COUNT][64];
+	private static final long[] CASTLING = new long[Position.ALL_CASTLING_RIGHTS + 1];
+	private static final long[] EN_PASSANT_FILE = new long[8];
+	private static final long BLACK_TO_MOVE;
+
+	static
+	{
+		// Fixed seed so that hashes are reproducible between runs
+		SplittableRandom random = new SplittableRandom(0x5EED_C0DEL);
+		for (long[] keys : PIECE_SQUARE)
+		{
+			for (int square = 0; square < 64; square++)
+				keys[square] = random.nextLong();
+		}
+		for (int rights = 1; rights < CASTLING.length; rights++)
+			CASTLING[rights] = random.nextLong();
+		for (int file = 0; file < 8; file++)
+			EN_PASSANT_FILE[file] = random.nextLong();
+		BLACK_TO_MOVE = random.nextLong();
+	}
+
+	private Zobrist() {}
+
+	public static long piece(int piece, int square)
+	{
+		return PIECE_SQUARE[piece][square];
+	}
+
+	/** @return The key of a combination of castling rights, 0 if there are none */
+	public static long castling(int castlingRights)
+	{
+		return CASTLING[castlingRights];
+	}
+
+	/** @return The key of an en passant square, 0 for {@link Square#NONE} */
+	public static long enPassant(int square)
+	{
+		return square == Square.NONE ? 0L : EN_PASSANT_FILE[Square.file(square)];
+	}
+
+	public static long sideToMove(int color)
+	{
+		return color == Piece.BLACK ? BLACK_TO_MOVE : 0L;
+	}
+
+	/**
+	 * Computes the hash of a position from scratch
+	 * @param position The position
+	 * @return The Zobrist hash of the position
+	 */
+	public static long hash(Position position)
+	{
+		long hash = sideToMove(position.getSideToMove())
+				^ castling(position.getCastlingRights())
+				^ enPassant(position.getEnPassant());
+		for (long occupied = position.occupied(); occupied != 0; occupied &= occupied - 1)
+		{
+			int square = Bitboards.lsb(occupied);
+			hash ^= piece(position.pieceAt(square), square);
+		}
+		return hash;
+	}
+}
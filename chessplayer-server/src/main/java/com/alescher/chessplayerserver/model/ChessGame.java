@@ -1,21 +1,29 @@
 package com.alescher.chessplayerserver.model;
 
+import com.alescher.chessplayerserver.engine.Bitboards;
+import com.alescher.chessplayerserver.engine.Move;
+import com.alescher.chessplayerserver.engine.MoveGenerator;
+import com.alescher.chessplayerserver.engine.MoveList;
+import com.alescher.chessplayerserver.engine.Notation;
+import com.alescher.chessplayerserver.engine.Piece;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.engine.Square;
 import com.alescher.chessplayerserver.helper.BoardUtility;
 import com.alescher.chessplayerserver.helper.CheckUtility;
 import com.alescher.chessplayerserver.helper.ChessPositionConverter;
-import com.alescher.chessplayerserver.helper.Move;
 import com.alescher.chessplayerserver.model.pieces.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.util.Assert;
 
 import java.awt.Point;
 import java.util.*;
 
 /**
- * Represents the chessboard and its current state
+ * Represents the chessboard and its current state.
+ * The state itself is kept in a bitboard {@link Position}, {@link ChessPiece} objects are only
+ * created as views for the REST layer.
  *
  * @author AlEscher
  */
@@ -27,26 +35,57 @@ public class ChessGame
 	//  - FEN support
 	//      - fromFEN (Frontend & Backend)
 	//  - Tests
-	//  - Promoting
+	//  - Promoting (Frontend, currently always promotes to a queen)
 	//  - Stalemate
-	//  - En passant
-	private final ChessPiece[][] gameBoard;
-	private final Stack<Move> pastMoves;
+	//  - En passant (Frontend)
+	private final Position position;
+	/** The position the game started from, packed so that the game can be replayed when it is hibernated */
+	private final byte[] startPosition;
+	/** The moves played so far, packed as {@link Move}s. The position keeps what is needed to take them back */
+	private int[] pastMoves;
+	private int pastMoveCount;
+	/** The number of moves that were performed or replayed, the moves on top of them were only simulated */
+	private int committedMoveCount;
+	private final MoveGenerator moveGenerator;
 	private final CheckUtility checkUtility;
-	private Color currentTurn;
+	/** The legal destination squares of each square for the current turn, see {@link #getLegalMoveCache()} */
+	private final long[] legalMoveCache = new long[64];
+	private boolean legalMoveCacheValid = false;
 	private Color checkMated = null;
 	private boolean gameOver = false;
-	private King whiteKing;
-	private King blackKing;
+	/** The state after the last committed move, replaced as a whole so that readers need no lock */
+	private volatile GameSnapshot snapshot;
+	private long snapshotVersion = 0;
+	private final List<GameListener> listeners = new ArrayList<>(1);
+	private static final int INITIAL_HISTORY_CAPACITY = 128;
 	private static final Logger logger = LoggerFactory.getLogger(ChessGame.class);
 
 	public ChessGame()
 	{
-		this.gameBoard = new ChessPiece[8][8];
-		setupBoard();
-		this.pastMoves = new Stack<>();
-		this.checkUtility = new CheckUtility(this, gameBoard);
-		this.currentTurn = Color.WHITE;
+		this(Position.startPosition(), new int[0], 1);
+	}
+
+	/**
+	 * @param position The start position
+	 * @param moves The moves to replay from the start position
+	 * @param snapshotVersion The version of the first snapshot
+	 */
+	private ChessGame(Position position, int[] moves, long snapshotVersion)
+	{
+		this.position = position;
+		this.startPosition = position.pack();
+		this.pastMoves = new int[Math.max(INITIAL_HISTORY_CAPACITY, moves.length)];
+		this.moveGenerator = new MoveGenerator(position);
+		this.checkUtility = new CheckUtility(position, moveGenerator);
+		for (int move : moves)
+		{
+			position.makeMove(move);
+			pushMove(move);
+		}
+		this.committedMoveCount = pastMoveCount;
+		this.checkUtility.updateState();
+		this.checkUtility.detectCheckMate().ifPresent(this::handleCheckMate);
+		publishSnapshot(snapshotVersion, false);
 	}
 
 	/**
@@ -57,54 +96,17 @@ public class ChessGame
 	public String toFEN()
 	{
 		StringBuilder fen = new StringBuilder();
-		for (int i = 0; i < 8; i++)
-		{
-			int emptyTiles = 0;
-			for (int j = 0; j < 8; j++)
-			{
-				ChessPiece piece = getPiece(j, i);
-				if (piece == null)
-				{
-					emptyTiles++;
-				} else
-				{
-					if (emptyTiles != 0)
-					{
-						fen.append(emptyTiles);
-					}
-					fen.append(piece);
-					emptyTiles = 0;
-				}
-			}
-			if (emptyTiles != 0)
-			{
-				fen.append(emptyTiles);
-			}
-			if (i < 7)
-			{
-				fen.append('/');
-			}
-		}
+		fen.append(position.boardFEN());
 		fen.append(' ');
-		fen.append(currentTurn == Color.WHITE ? 'w' : 'b');
+		fen.append(getCurrentTurn() == Color.WHITE ? 'w' : 'b');
 		fen.append(' ');
-		if (whiteKing.getPossibleCastles().contains(Castle.KINGSIDE))
-			fen.append('K');
-		if (whiteKing.getPossibleCastles().contains(Castle.QUEENSIDE))
-			fen.append('Q');
-		if (blackKing.getPossibleCastles().contains(Castle.KINGSIDE))
-			fen.append('k');
-		if (blackKing.getPossibleCastles().contains(Castle.QUEENSIDE))
-			fen.append('q');
+		fen.append(position.castlingFEN());
 		fen.append(' ');
-		// En passant not implemented yet
-		fen.append('-');
+		fen.append(position.getEnPassant() == Square.NONE ? "-" : Square.toFEN(position.getEnPassant()));
 		fen.append(' ');
-		// Halfmove clock not implemented yet
-		fen.append('-');
+		fen.append(position.getHalfmoveClock());
 		fen.append(' ');
-		// Fullmoves
-		fen.append(1 + pastMoves.stream().filter(move -> move.getMoveColor() == Color.BLACK).count());
+		fen.append(position.getFullmoveNumber());
 
 		return fen.toString();
 	}
@@ -118,56 +120,62 @@ public class ChessGame
 	 */
 	public static ChessGame fromFEN(@NotNull String fen) throws IllegalArgumentException
 	{
-		ChessGame game = new ChessGame();
-		// rank -> y; file -> x
-		int rank = 0, file = 0;
-		String[] sections = fen.split(" ");
-		Assert.state(sections.length == 6, "Malformed FEN string");
-		// Parse positions
-		for (char c : sections[0].toCharArray())
+		return new ChessGame(Position.fromFEN(fen), new int[0], 1);
+	}
+
+	/**
+	 * Plays a list of moves from a start position in one go, e.g. to import a game.
+	 * The moves are only validated against the legal moves of each position, nothing is logged
+	 * and checkmate is only looked for once at the end. Replaying stops at the first move that is not legal.
+	 * @param fen The start position
+	 * @param moves The moves in UCI notation or SAN, see {@link Notation}
+	 * @param snapshotVersion The version of the game's first snapshot
+	 * @return The game after the last legal move, and the index of the first illegal move if there was one
+	 * @throws IllegalArgumentException in case of malformed FEN string
+	 */
+	public static ReplayResult replay(@NotNull String fen, @NotNull List<String> moves, long snapshotVersion) throws IllegalArgumentException
+	{
+		Position position = Position.fromFEN(fen);
+		byte[] startPosition = position.pack();
+		MoveGenerator moveGenerator = new MoveGenerator(position);
+		MoveList legalMoves = new MoveList();
+		int[] packedMoves = new int[moves.size()];
+		int applied = 0;
+		for (; applied < moves.size(); applied++)
 		{
-			if (file > 7)
-			{
-				file = 0;
-			}
-			if (Character.isDigit(c))
-			{
-				int count = Character.getNumericValue(c);
-				for (int i = 0; i < count; i++) game.gameBoard[rank][file++] = null;
-			} else if (c == '/')
-			{
-				file = 0;
-				rank++;
-			} else
-			{
-				Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
-				Point position = new Point(file, rank);
-				ChessPieceFactory pieceFactory = switch(Character.toUpperCase(c))
-				{
-					case 'B' -> Bishop::new;
-					case 'K' -> King::new;
-					case 'N' -> Knight::new;
-					case 'P' -> Pawn::new;
-					case 'Q' -> Queen::new;
-					case 'R' -> Rook::new;
-					default -> throw new IllegalArgumentException("Unknown piece specifier " + c);
-				};
-				ChessPiece piece = pieceFactory.create(color, position, game);
-				game.gameBoard[rank][file] = piece;
-				game.whiteKing = (piece instanceof King && piece.getColor() == Color.WHITE) ? (King) piece : game.whiteKing;
-				game.whiteKing = (piece instanceof King && piece.getColor() == Color.BLACK) ? (King) piece : game.whiteKing;
-				file++;
-			}
+			moveGenerator.generate(legalMoves);
+			int move = Notation.parse(moves.get(applied), position, legalMoves);
+			if (move == Move.NONE)
+				break;
+			position.makeMove(move);
+			moveGenerator.update();
+			packedMoves[applied] = move;
 		}
-		// Parse current turn
-		game.currentTurn = sections[1].equals("w") ? Color.WHITE : Color.BLACK;
-		// Parse castling rights
-		if (!sections[2].contains("K")) game.whiteKing.removeCastleOption(Castle.KINGSIDE);
-		if (!sections[2].contains("Q")) game.whiteKing.removeCastleOption(Castle.QUEENSIDE);
-		if (!sections[2].contains("k")) game.blackKing.removeCastleOption(Castle.KINGSIDE);
-		if (!sections[2].contains("q")) game.blackKing.removeCastleOption(Castle.QUEENSIDE);
+		ChessGame game = new ChessGame(Position.unpack(startPosition), Arrays.copyOf(packedMoves, applied), snapshotVersion);
+		return new ReplayResult(game, applied, applied < moves.size() ? applied : -1);
+	}
 
-		return game;
+	/**
+	 * Packs this game into its compact form, which is all that needs to be kept while nobody plays it.
+	 * Simulated moves that were not undone are included like performed moves.
+	 * @return The hibernated game
+	 * @see #rehydrate(HibernatedGame)
+	 */
+	public HibernatedGame hibernate()
+	{
+		return new HibernatedGame(startPosition, Arrays.copyOf(pastMoves, pastMoveCount), snapshotVersion);
+	}
+
+	/**
+	 * Restores a hibernated game by replaying its moves.
+	 * The game publishes a snapshot with the same version as before it was hibernated, since its state did not change.
+	 * @param hibernated The hibernated game
+	 * @return The game, in the same state as when it was hibernated
+	 * @throws IllegalArgumentException If the start position is malformed
+	 */
+	public static ChessGame rehydrate(@NotNull HibernatedGame hibernated) throws IllegalArgumentException
+	{
+		return new ChessGame(Position.unpack(hibernated.getStartPosition()), hibernated.getMoves(), hibernated.getSnapshotVersion());
 	}
 
 	/**
@@ -178,7 +186,7 @@ public class ChessGame
 	 */
 	public List<Point> getLegalMoves(@NotNull Point moveFrom)
 	{
-		return getLegalMoves(gameBoard[moveFrom.y][moveFrom.x]);
+		return Bitboards.toPoints(getLegalMoves(Square.fromPoint(moveFrom)));
 	}
 
 	/**
@@ -191,10 +199,18 @@ public class ChessGame
 	{
 		if (piece == null) return new ArrayList<>();
 
-		return piece.getPossibleMoves()
-				.stream()
-				.filter(move -> isLegalMove(piece.getPosition(), move, false))
-				.toList();
+		return getLegalMoves(piece.getPosition());
+	}
+
+	/**
+	 * Get all legal moves for the piece on a square
+	 *
+	 * @param square The square of the chess piece
+	 * @return A bitboard of all squares the piece can move to, empty if it is not this piece's turn
+	 */
+	public long getLegalMoves(int square)
+	{
+		return getLegalMoveCache()[square];
 	}
 
 	public List<String> getLegalMoveTiles(@NotNull Point moveFrom)
@@ -207,22 +223,46 @@ public class ChessGame
 	 * After the move is performed, it is checked whether the move resulted in a checkmate.
 	 * @param fromTile The starting tile
 	 * @param toTile The destination tile
-	 * @return An optional map of additional moves that need to be performed (e.g. for a castle)
+	 * @return Whether the move was legal, the packed move and captured piece, and an optional map of additional moves that need to be performed (e.g. for a castle)
 	 */
 	public MoveResult performMove(@NotNull String fromTile, @NotNull String toTile)
 	{
-		Point from = ChessPositionConverter.tileToPoint(fromTile);
-		Point to = ChessPositionConverter.tileToPoint(toTile);
-		boolean isLegal = isLegalMove(fromTile, toTile);
-		Optional<Map<String, String>> extraMove = Optional.empty();
-		if (isLegal)
-		{
-			extraMove = handleCastle(from, to);
-			simulateMove(from, to);
-			swapTurn();
-			checkUtility.detectCheckMate().ifPresent(this::handleCheckMate);
-		}
-		return new MoveResult(isLegal, extraMove);
+		if (!isLegalMove(fromTile, toTile))
+			return new MoveResult(false, Optional.empty(), Move.NONE, Piece.NONE);
+
+		int from = Square.fromPoint(ChessPositionConverter.tileToPoint(fromTile));
+		int to = Square.fromPoint(ChessPositionConverter.tileToPoint(toTile));
+		// The frontend does not offer a choice yet, so pawns always promote to a queen
+		return commitMove(moveGenerator.pack(from, to, Piece.QUEEN));
+	}
+
+	/**
+	 * Performs a packed move, e.g. one found by the engine, including its promotion piece
+	 * @param move The packed move
+	 * @return Whether the move was legal, the packed move and captured piece, and an optional map of additional moves that need to be performed (e.g. for a castle)
+	 */
+	public MoveResult performMove(int move)
+	{
+		if (gameOver || move == Move.NONE || !isLegalMove(Move.from(move), Move.to(move)))
+			return new MoveResult(false, Optional.empty(), Move.NONE, Piece.NONE);
+
+		return commitMove(moveGenerator.pack(Move.from(move), Move.to(move), Move.isPromotion(move) ? Move.promotion(move) : Piece.QUEEN));
+	}
+
+	private MoveResult commitMove(int move)
+	{
+		Optional<Map<String, String>> extraMove = handleCastle(move);
+		int captured = position.makeMove(move);
+		pushMove(move);
+		committedMoveCount = pastMoveCount;
+		legalMoveCacheValid = false;
+		for (GameListener listener : listeners)
+			listener.onMove(pastMoveCount - 1, move);
+		logger.info(String.valueOf(this));
+		checkUtility.updateState();
+		checkUtility.detectCheckMate().ifPresent(this::handleCheckMate);
+		publishSnapshot(false);
+		return new MoveResult(true, extraMove, move, captured);
 	}
 
 	/**
@@ -244,188 +284,186 @@ public class ChessGame
 		if (!BoardUtility.checkBounds(fromPoint) || !BoardUtility.checkBounds(toPoint))
 			return false;
 
-		boolean isLegal = isLegalMove(fromPoint, toPoint);
+		boolean isLegal = isLegalMove(Square.fromPoint(fromPoint), Square.fromPoint(toPoint));
 
 		logger.info(String.format("Move checked. Legal: %b", isLegal));
 		return isLegal;
 	}
 
-	private boolean isLegalMove(Point moveFrom, Point moveTo)
-	{
-		return isLegalMove(moveFrom, moveTo, true);
-	}
-
 	/**
 	 * Checks whether a move can be performed on the chessboard.
-	 * @param moveFrom The starting tile
-	 * @param moveTo The destination tile
-	 * @param keepState Whether to update the CheckUtility's state after checking this move
+	 * @param moveFrom The starting square
+	 * @param moveTo The destination square
 	 * @return True if the move is allowed to be performed, false otherwise
 	 */
-	private boolean isLegalMove(Point moveFrom, Point moveTo, boolean keepState)
+	private boolean isLegalMove(int moveFrom, int moveTo)
 	{
-		if (gameBoard[moveFrom.y][moveFrom.x] == null)
-			return false;
-		if (moveFrom.equals(moveTo))
-			return false;
-		if (!checkTurn(moveFrom))
-			return false;
-		if (BoardUtility.checkFriendlyFire(moveFrom, moveTo, gameBoard))
-			return false;
-		if (!gameBoard[moveFrom.y][moveFrom.x].isPossibleMove(moveTo))
-			return false;
-
-
-		return checkUtility.isMoveLegal(moveFrom, moveTo, keepState);
+		// The cache only contains moves of the player whose turn it is
+		return Bitboards.contains(getLegalMoveCache()[moveFrom], moveTo);
 	}
 
 	/**
-	 * Undoes the last move that was performed.
-	 * Removes the undone move and sets the currentTurn back to the previous value
+	 * The legal moves of the side to move are generated once per turn, the first time they are needed,
+	 * and kept until the next move is made. Picking up pieces and validating moves are then simple lookups.
+	 * @return The legal destination squares indexed by the square of the piece, empty for pieces of the other player
 	 */
-	public void undoMove()
+	private long[] getLegalMoveCache()
 	{
-		Move move = pastMoves.pop();
-		gameBoard[move.getFrom().y][move.getFrom().x] = gameBoard[move.getTo().y][move.getTo().x];
-		BoardUtility.updatePiecePosition(move.getFrom(), gameBoard);
-		gameBoard[move.getTo().y][move.getTo().x] = move.getCapturedPiece();
-		BoardUtility.updatePiecePosition(move.getTo(), gameBoard);
+		if (!legalMoveCacheValid)
+		{
+			Arrays.fill(legalMoveCache, Bitboards.EMPTY);
+			for (long pieces = position.occupancy(position.getSideToMove()); pieces != 0; pieces &= pieces - 1)
+			{
+				int square = Bitboards.lsb(pieces);
+				legalMoveCache[square] = moveGenerator.getLegalMoves(square);
+			}
+			legalMoveCacheValid = true;
+		}
+		return legalMoveCache;
 	}
 
-	private void handleCheckMate(Color checkMated)
+	/**
+	 * Undoes the last move that was performed or simulated.
+	 * The position is restored exactly, including the turn, castling rights, en passant and the clocks.
+	 * Only undoing a performed move is passed on to the listeners and published, a simulated move was never visible.
+	 * @throws IllegalStateException If no move has been played yet
+	 */
+	public void undoMove() throws IllegalStateException
 	{
-		this.checkMated = checkMated;
-		this.gameOver = true;
+		position.unmakeMove();
+		pastMoveCount--;
+		legalMoveCacheValid = false;
+		checkUtility.updateState();
+		if (pastMoveCount >= committedMoveCount)
+			return;
+
+		committedMoveCount = pastMoveCount;
+		checkMated = null;
+		gameOver = false;
+		for (GameListener listener : listeners)
+			listener.onUndo(pastMoveCount);
+		publishSnapshot(true);
 	}
 
 	/**
-	 * Checks that the piece to be moved belongs to the player whose turn it currently is.
-	 *
-	 * @param moveFrom The piece to be moved
-	 * @return True if it's the correct player's turn, false otherwise
+	 * Publishes the current state as a new snapshot. Must be called by the thread that changed the game.
+	 * @param undo Whether the state was reached by taking back a move
 	 */
-	private boolean checkTurn(Point moveFrom)
+	private void publishSnapshot(boolean undo)
 	{
-		return gameBoard[moveFrom.y][moveFrom.x].getColor() == currentTurn;
+		publishSnapshot(snapshotVersion + 1, undo);
 	}
 
-	/** Updates the current turn to the next player */
-	private void swapTurn()
+	private void publishSnapshot(long version, boolean undo)
 	{
-		currentTurn = (currentTurn == Color.WHITE) ? Color.BLACK : Color.WHITE;
+		snapshotVersion = version;
+		int lastMove = pastMoveCount > 0 ? pastMoves[pastMoveCount - 1] : Move.NONE;
+		snapshot = new GameSnapshot(version, pastMoveCount, lastMove, toFEN(), getCurrentTurn(), getLegalMoveCache(), checkMated, gameOver, undo);
+		for (GameListener listener : listeners)
+			listener.onSnapshot(snapshot);
 	}
 
 	/**
-	 * Updates the gameboard by performing the specified move. Also logs the
-	 * updated gameboard to the console and updates the piece's positions.
-	 * The simulated move can be undone by calling undoMove
-	 *
-	 * @param from The position of the piece to be moved
-	 * @param to   The position where the piece should be moved to
-	 * @param log  If true, the updated chessboard will be logged to the console
-	 * @see ChessGame#undoMove() undoMove
+	 * Get the state of the game after the last committed move. Simulated moves are not visible in it.
+	 * This does not need any synchronization, the snapshot is immutable.
+	 * @return The latest snapshot
 	 */
-	public void simulateMove(Point from, Point to, boolean log)
+	public GameSnapshot getSnapshot()
 	{
-		// TODO: Handle capture (points update, etc...)
-		pastMoves.push(new Move(from, to, gameBoard[to.y][to.x], currentTurn));
-
-		if (gameBoard[to.y][to.x] != null)
-			gameBoard[to.y][to.x].setPosition(null);
-		gameBoard[to.y][to.x] = gameBoard[from.y][from.x];
-		gameBoard[from.y][from.x] = null;
-		BoardUtility.updatePiecePosition(to, gameBoard);
-
-		if (log) logger.info(String.valueOf(this));
+		return snapshot;
 	}
 
-	private void simulateMove(Point from, Point to)
+	/**
+	 * Registers a listener for the moves that are performed and undone from now on
+	 * @param listener The listener
+	 */
+	public void addListener(@NotNull GameListener listener)
 	{
-		simulateMove(from, to, true);
+		listeners.add(listener);
 	}
 
-	private void setupBoard()
+	private void pushMove(int move)
 	{
-		for (int i = 0; i < 8; i++)
-		{
-			gameBoard[6][i] = new Pawn(Color.WHITE, new Point(i, 6), this);
-			gameBoard[1][i] = new Pawn(Color.BLACK, new Point(i, 1), this);
-		}
-		gameBoard[0][0] = new Rook(Color.BLACK, new Point(0, 0), this);
-		gameBoard[0][1] = new Knight(Color.BLACK, new Point(1, 0), this);
-		gameBoard[0][2] = new Bishop(Color.BLACK, new Point(2, 0), this);
-		gameBoard[0][3] = new Queen(Color.BLACK, new Point(3, 0), this);
-		gameBoard[0][4] = blackKing = new King(Color.BLACK, new Point(4, 0), this);
-		gameBoard[0][5] = new Bishop(Color.BLACK, new Point(5, 0), this);
-		gameBoard[0][6] = new Knight(Color.BLACK, new Point(6, 0), this);
-		gameBoard[0][7] = new Rook(Color.BLACK, new Point(7, 0), this);
+		if (pastMoveCount == pastMoves.length)
+			pastMoves = Arrays.copyOf(pastMoves, pastMoveCount * 2);
+		pastMoves[pastMoveCount++] = move;
+	}
 
-		gameBoard[7][0] = new Rook(Color.WHITE, new Point(0, 7), this);
-		gameBoard[7][1] = new Knight(Color.WHITE, new Point(1, 7), this);
-		gameBoard[7][2] = new Bishop(Color.WHITE, new Point(2, 7), this);
-		gameBoard[7][3] = new Queen(Color.WHITE, new Point(3, 7), this);
-		gameBoard[7][4] = whiteKing = new King(Color.WHITE, new Point(4, 7), this);
-		gameBoard[7][5] = new Bishop(Color.WHITE, new Point(5, 7), this);
-		gameBoard[7][6] = new Knight(Color.WHITE, new Point(6, 7), this);
-		gameBoard[7][7] = new Rook(Color.WHITE, new Point(7, 7), this);
+	private void handleCheckMate(Color checkMated)
+	{
+		this.checkMated = checkMated;
+		this.gameOver = true;
 	}
 
-	/** Get a piece from the chessboard. Assumes that the point is within bounds. */
-	private ChessPiece getPiece(@NotNull Point point)
+	/**
+	 * Updates the gameboard by performing the specified move, without checking whether it is legal.
+	 * Also logs the updated gameboard to the console.
+	 * The simulated move can be undone by calling undoMove
+	 *
+	 * @param from The square of the piece to be moved
+	 * @param to   The square where the piece should be moved to
+	 * @param log  If true, the updated chessboard will be logged to the console
+	 * @see ChessGame#undoMove() undoMove
+	 */
+	public void simulateMove(int from, int to, boolean log)
 	{
-		return getPiece(point.x, point.y);
+		// The position removes a captured piece and updates the material and evaluation, undoMove restores them
+		// Recorded with its promotion and flags, so that a hibernated game replays exactly the same move
+		int move = moveGenerator.pack(from, to, Piece.QUEEN);
+		position.makeMove(move);
+		pushMove(move);
+		legalMoveCacheValid = false;
+		checkUtility.updateState();
+
+		if (log) logger.info(String.valueOf(this));
 	}
 
-	/** Get a piece from the chessboard. Assumes that the point is within bounds. */
-	private ChessPiece getPiece(int x, int y)
+	/**
+	 * Creates a view of the piece on a square
+	 * @param square The square
+	 * @return The piece, <code>null</code> if the square is empty
+	 */
+	private ChessPiece getPiece(int square)
 	{
-		// Y is our vertical coordinate (file) and x horizontal (rank)
-		return gameBoard[y][x];
+		int piece = position.pieceAt(square);
+		if (piece == Piece.NONE)
+			return null;
+
+		ChessPieceFactory pieceFactory = switch (Piece.typeOf(piece))
+		{
+			case Piece.BISHOP -> Bishop::new;
+			case Piece.KING -> King::new;
+			case Piece.KNIGHT -> Knight::new;
+			case Piece.PAWN -> Pawn::new;
+			case Piece.QUEEN -> Queen::new;
+			default -> Rook::new;
+		};
+		return pieceFactory.create(Piece.toColor(Piece.colorOf(piece)), Square.toPoint(square), this);
 	}
 
 	/**
-	 * Check whether a move is a castle. If so, move the rook accordingly and update the castle status.
-	 * If a king or rook is moving, updates castling status accordingly.
-	 * Assumes that the move is legal.
-	 * @param from The point from where the piece is moving
-	 * @param to The point to which the piece is moving
+	 * Check whether a move is a castle. If so, returns the move the rook has to make,
+	 * the position moves the rook itself when the move is played.
+	 * @param move The packed move
 	 * @return An optional pair containing the tile from where the rook moved and to where it moved
 	 */
-	private Optional<Map<String, String>> handleCastle(Point from, Point to)
+	private Optional<Map<String, String>> handleCastle(int move)
 	{
-		ChessPiece piece = getPiece(from);
-		Optional<Map<String, String>> extraMoves = Optional.empty();
-		if (piece instanceof King king)
+		if (!Move.isCastle(move))
+			return Optional.empty();
+
+		int from = Move.from(move);
+		int to = Move.to(move);
+		if (to - from == 2)
 		{
-			if (to.x - from.x == 2)
-			{
-				// Move the king side rook 2 to the left
-				Point fromRook = new Point(from.x + 3, from.y);
-				Point toRook = new Point(from.x + 1, from.y);
-				simulateMove(fromRook, toRook, false);
-				extraMoves = Optional.of(Map.of(ChessPositionConverter.pointToTile(fromRook), ChessPositionConverter.pointToTile(toRook)));
-			} else if (to.x - from.x == -2)
-			{
-				// Move the queen side rook 3 to the right
-				Point fromRook = new Point(from.x - 4, from.y);
-				Point toRook = new Point(from.x - 1, from.y);
-				simulateMove(fromRook, toRook, false);
-				extraMoves = Optional.of(Map.of(ChessPositionConverter.pointToTile(fromRook), ChessPositionConverter.pointToTile(toRook)));
-			}
-			// If the king has moved, castling is not possible anymore
-			king.removeCastleOption(Castle.KINGSIDE, Castle.QUEENSIDE);
-		} else if (piece instanceof Rook rook)
+			// The king side rook moves 2 to the left
+			return Optional.of(Map.of(Square.toTile(from + 3), Square.toTile(from + 1)));
+		} else if (to - from == -2)
 		{
-			if (rook.getColor() == Color.WHITE)
-			{
-				whiteKing.removeCastleOption(rook.getSide());
-			} else
-			{
-				blackKing.removeCastleOption(rook.getSide());
-			}
+			// The queen side rook moves 3 to the right
+			return Optional.of(Map.of(Square.toTile(from - 4), Square.toTile(from - 1)));
 		}
-
-		return extraMoves;
+		return Optional.empty();
 	}
 
 	@Override
@@ -438,8 +476,9 @@ public class ChessGame
 		{
 			for (int j = 0; j < 8; j++)
 			{
-				String piece = (gameBoard[i][j] != null) ? gameBoard[i][j].toString() : " ";
-				builder.append(String.format("| %s ", piece));
+				int piece = position.pieceAt(Square.of(j, 7 - i));
+				String symbol = (piece != Piece.NONE) ? String.valueOf(Piece.toChar(piece)) : " ";
+				builder.append(String.format("| %s ", symbol));
 			}
 			builder.append("|\n");
 		}
@@ -450,7 +489,7 @@ public class ChessGame
 
 	public Color getCurrentTurn()
 	{
-		return currentTurn;
+		return Piece.toColor(position.getSideToMove());
 	}
 
 	public Color getCheckMated()
@@ -458,9 +497,22 @@ public class ChessGame
 		return checkMated;
 	}
 
-	public ChessPiece[][] getGameBoard()
+	/**
+	 * @return The Zobrist hash of the current position, equal for equal positions regardless of how they were reached
+	 */
+	public long getHash()
+	{
+		return position.getHash();
+	}
+
+	public Position getPosition()
+	{
+		return position;
+	}
+
+	public MoveGenerator getMoveGenerator()
 	{
-		return gameBoard;
+		return moveGenerator;
 	}
 
 	public CheckUtility getCheckUtility()
@@ -470,17 +522,17 @@ public class ChessGame
 
 	public ChessPiece getPiece(String tile)
 	{
-		return getPiece(ChessPositionConverter.tileToPoint(tile));
+		return getPiece(Square.fromPoint(ChessPositionConverter.tileToPoint(tile)));
 	}
 
 	public King getWhiteKing()
 	{
-		return whiteKing;
+		return (King) getPiece(position.kingSquare(Piece.WHITE));
 	}
 
 	public King getBlackKing()
 	{
-		return blackKing;
+		return (King) getPiece(position.kingSquare(Piece.BLACK));
 	}
 
 	public boolean isGameOver()
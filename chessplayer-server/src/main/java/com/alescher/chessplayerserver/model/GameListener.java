@@ -0,0 +1,29 @@
+package com.alescher.chessplayerserver.model;
+
+/**
+ * Gets notified about the committed changes of a {@link ChessGame}. Simulated moves are not reported.
+ * Listeners are called by the thread that changes the game, while it holds the game's lock, so they should return quickly.
+ *
+ * @author AlEscher
+ */
+public interface GameListener
+{
+	/**
+	 * Called after a move was performed
+	 * @param ply The number of moves played before this move
+	 * @param move The packed move
+	 */
+	void onMove(int ply, int move);
+
+	/**
+	 * Called after a move was taken back
+	 * @param ply The number of moves that are left
+	 */
+	void onUndo(int ply);
+
+	/**
+	 * Called after the game published a new snapshot, i.e. after every committed move and undo
+	 * @param snapshot The new snapshot
+	 */
+	default void onSnapshot(GameSnapshot snapshot) {}
+}
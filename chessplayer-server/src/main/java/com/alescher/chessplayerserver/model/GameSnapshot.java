@@ -0,0 +1,140 @@
+package com.alescher.chessplayerserver.model;
+
+import com.alescher.chessplayerserver.engine.Bitboards;
+import com.alescher.chessplayerserver.engine.Move;
+import com.alescher.chessplayerserver.engine.Square;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable view of a {@link ChessGame} after a committed move or after a move was taken back.
+ * A game publishes a new snapshot after every move, so readers never have to wait for a game that is busy
+ * and never see a half-applied move.
+ *
+ * @author AlEscher
+ */
+public final class GameSnapshot
+{
+	private final long version;
+	private final int ply;
+	private final int lastMove;
+	private final String fen;
+	private final Color currentTurn;
+	/** The legal destination squares indexed by the square of the piece to be moved */
+	private final long[] legalMoves;
+	private final Color checkMated;
+	private final boolean gameOver;
+	private final boolean undo;
+	/** Built the first time it is needed, building it twice in a race gives the same result */
+	private Map<String, String> legalMoveMasks;
+
+	GameSnapshot(long version, int ply, int lastMove, @NotNull String fen, @NotNull Color currentTurn, long[] legalMoves,
+				 @Nullable Color checkMated, boolean gameOver, boolean undo)
+	{
+		this.version = version;
+		this.ply = ply;
+		this.lastMove = lastMove;
+		this.fen = fen;
+		this.currentTurn = currentTurn;
+		this.legalMoves = legalMoves.clone();
+		this.checkMated = checkMated;
+		this.gameOver = gameOver;
+		this.undo = undo;
+	}
+
+	/** @return A number that increases with every snapshot the game publishes */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/** @return The number of moves played */
+	public int getPly()
+	{
+		return ply;
+	}
+
+	/** @return The last move that was played, packed as a {@link Move}, {@link Move#NONE} if there is none */
+	public int getLastMove()
+	{
+		return lastMove;
+	}
+
+	public String getFen()
+	{
+		return fen;
+	}
+
+	public Color getCurrentTurn()
+	{
+		return currentTurn;
+	}
+
+	/**
+	 * @param square The square of a piece
+	 * @return A bitboard of all squares the piece can legally move to, empty if it is not the piece's turn
+	 */
+	public long getLegalMoves(int square)
+	{
+		return legalMoves[square];
+	}
+
+	/**
+	 * @param fromTile The tile of a piece, e.g. "E2"
+	 * @return The tiles the piece can legally move to
+	 * @throws IllegalArgumentException If the tile is malformed
+	 */
+	public List<String> getLegalMoveTiles(@NotNull String fromTile) throws IllegalArgumentException
+	{
+		long targets = legalMoves[Square.fromTile(fromTile)];
+		List<String> tiles = new ArrayList<>(Bitboards.count(targets));
+		for (; targets != 0; targets &= targets - 1)
+			tiles.add(Square.toTile(Bitboards.lsb(targets)));
+		return tiles;
+	}
+
+	/**
+	 * All legal moves of the side to move as bitmasks of their destination squares, keyed by the tile of the piece.
+	 * Bit <code>n</code> stands for the square on file <code>n % 8</code> and rank <code>n / 8</code>, i.e. A1 is bit 0 and H8 is bit 63.
+	 * The masks are hex strings, since JSON numbers cannot hold 64 bits. Pieces without legal moves are left out.
+	 * @return The masks, e.g. <code>"E2" -> "10100000"</code> for a pawn that can move to E3 and E4
+	 */
+	public Map<String, String> getLegalMoveMasks()
+	{
+		Map<String, String> masks = legalMoveMasks;
+		if (masks == null)
+		{
+			masks = new LinkedHashMap<>();
+			for (int square = 0; square < 64; square++)
+			{
+				if (legalMoves[square] != Bitboards.EMPTY)
+					masks.put(Square.toTile(square), Long.toHexString(legalMoves[square]));
+			}
+			legalMoveMasks = masks = Collections.unmodifiableMap(masks);
+		}
+		return masks;
+	}
+
+	/** @return The player that has been checkmated, <code>null</code> if there is none */
+	public Color getCheckMated()
+	{
+		return checkMated;
+	}
+
+	public boolean isGameOver()
+	{
+		return gameOver;
+	}
+
+	/** @return <code>true</code> if the snapshot was published because a move was taken back */
+	public boolean isUndo()
+	{
+		return undo;
+	}
+}
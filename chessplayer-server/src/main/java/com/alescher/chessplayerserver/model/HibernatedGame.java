@@ -0,0 +1,97 @@
+package com.alescher.chessplayerserver.model;
+
+import com.alescher.chessplayerserver.engine.Position;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The compact form of a {@link ChessGame} that is not being played at the moment.
+ * It only keeps the packed start position and the packed moves played since, which is enough to replay the game
+ * including everything needed to take moves back. A game of 40 moves needs about 400 bytes instead of a full game object.
+ *
+ * @author AlEscher
+ */
+public final class HibernatedGame
+{
+	/** Marks the binary format, "CPG" followed by the format version */
+	private static final int FORMAT = 0x43504701;
+
+	private final byte[] startPosition;
+	private final int[] moves;
+	private final long snapshotVersion;
+
+	/**
+	 * @param startPosition The start position, packed with {@link Position#pack()}
+	 * @param moves The packed moves played from the start position
+	 * @param snapshotVersion The version of the last snapshot the game published
+	 */
+	public HibernatedGame(byte[] startPosition, int[] moves, long snapshotVersion)
+	{
+		this.startPosition = startPosition;
+		this.moves = moves;
+		this.snapshotVersion = snapshotVersion;
+	}
+
+	/** @return The start position, packed with {@link Position#pack()} */
+	public byte[] getStartPosition()
+	{
+		return startPosition;
+	}
+
+	/** @return The packed moves played from the start position */
+	public int[] getMoves()
+	{
+		return moves;
+	}
+
+	/** @return The version of the last snapshot the game published */
+	public long getSnapshotVersion()
+	{
+		return snapshotVersion;
+	}
+
+	public int getMoveCount()
+	{
+		return moves.length;
+	}
+
+	/**
+	 * Writes the game in a binary format that can be read with {@link #readFrom(DataInput)}
+	 * @param out The output
+	 * @throws IOException If writing fails
+	 */
+	public void writeTo(@NotNull DataOutput out) throws IOException
+	{
+		out.writeInt(FORMAT);
+		out.writeLong(snapshotVersion);
+		out.write(startPosition);
+		out.writeInt(moves.length);
+		for (int move : moves)
+			out.writeInt(move);
+	}
+
+	/**
+	 * Reads a game that was written with {@link #writeTo(DataOutput)}
+	 * @param in The input
+	 * @return The game
+	 * @throws IOException If reading fails or the data is not a hibernated game
+	 */
+	public static HibernatedGame readFrom(@NotNull DataInput in) throws IOException
+	{
+		if (in.readInt() != FORMAT)
+			throw new IOException("Not a hibernated game");
+		long snapshotVersion = in.readLong();
+		byte[] startPosition = new byte[Position.PACKED_SIZE];
+		in.readFully(startPosition);
+		int moveCount = in.readInt();
+		if (moveCount < 0)
+			throw new IOException("Malformed hibernated game");
+		int[] moves = new int[moveCount];
+		for (int i = 0; i < moveCount; i++)
+			moves[i] = in.readInt();
+		return new HibernatedGame(startPosition, moves, snapshotVersion);
+	}
+}
@@ -3,7 +3,13 @@ package com.alescher.chessplayerserver.model;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * @param legal Whether the move was legal and has been performed
+ * @param extraMoves Additional moves the client has to perform, e.g. the rook of a castle
+ * @param move The packed move, {@link com.alescher.chessplayerserver.engine.Move#NONE} if it was not legal
+ * @param captured The captured piece, {@link com.alescher.chessplayerserver.engine.Piece#NONE} if there was none
+ */
 public record MoveResult(
-		boolean legal, Optional<Map<String, String>> extraMoves
+		boolean legal, Optional<Map<String, String>> extraMoves, int move, int captured
 )
 {}
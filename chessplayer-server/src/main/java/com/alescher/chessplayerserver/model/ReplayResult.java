@@ -0,0 +1,17 @@
+package com.alescher.chessplayerserver.model;
+
+/**
+ * The result of replaying a list of moves, see {@link ChessGame#replay(String, java.util.List, long)}
+ * @param game The game after the last legal move of the list
+ * @param appliedMoves The number of moves that were played
+ * @param illegalMoveIndex The index of the first move that could not be played, -1 if all moves were legal
+ *
+ * @author AlEscher
+ */
+public record ReplayResult(ChessGame game, int appliedMoves, int illegalMoveIndex)
+{
+	public boolean isComplete()
+	{
+		return illegalMoveIndex < 0;
+	}
+}
@@ -1,11 +1,9 @@
 package com.alescher.chessplayerserver.model.pieces;
 
-import com.alescher.chessplayerserver.helper.BoardUtility;
 import com.alescher.chessplayerserver.model.ChessGame;
 import com.alescher.chessplayerserver.model.Color;
 
 import java.awt.Point;
-import java.util.List;
 
 public class Bishop extends ChessPiece
 {
@@ -14,28 +12,6 @@ public class Bishop extends ChessPiece
 		super(color, position, game);
 	}
 
-	@Override
-	public boolean checkMove(Point moveTo)
-	{
-		if (!BoardUtility.isDiagonal(getPosition(), moveTo))
-			return false;
-		if (!checkPathUnobstructed(getPosition(), moveTo))
-			return false;
-
-		return true;
-	}
-
-	@Override
-	public List<Point> calculatePossibleMoves()
-	{
-		// Create directional vectors in 4 diagonal directions
-		List<Point> directions = List.of(
-				new Point(1, 1), new Point(1, -1), new Point(-1, 1), new Point(-1, -1)
-		);
-
-		return generatePossibleMoves(directions);
-	}
-
 	@Override
 	public int getValue()
 	{
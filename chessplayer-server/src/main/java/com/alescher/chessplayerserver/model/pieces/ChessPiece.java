@@ -1,28 +1,23 @@
 package com.alescher.chessplayerserver.model.pieces;
 
-import com.alescher.chessplayerserver.helper.BoardUtility;
-import com.alescher.chessplayerserver.helper.CheckUtility;
 import com.alescher.chessplayerserver.model.ChessGame;
 import com.alescher.chessplayerserver.model.Color;
-import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.awt.Point;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
 
 /**
- * An interface that every chess piece implements.
- * It offers functionality such as {@link ChessPiece#isPossibleMove}
- * and {@link ChessPiece#getPossibleMoves}
+ * A read-only view of a piece on the chessboard, created for the REST layer.
+ * The game state itself is kept in the {@link com.alescher.chessplayerserver.engine.Position} of a {@link ChessGame},
+ * so a view reflects the board at the time it was created.
  *
  * @author AlEscher
  */
 public abstract class ChessPiece
 {
-	/** The current position of the chess piece */
-	protected Point position;
-	protected Color color;
+	/** The position of the chess piece */
+	protected final Point position;
+	protected final Color color;
 	protected final ChessGame game;
 
 	public ChessPiece(Color color, Point position, ChessGame game)
@@ -42,30 +37,11 @@ public abstract class ChessPiece
 		ChessPiece piece = (ChessPiece)o;
 		return piece.getPosition().equals(this.getPosition()) && piece.getColor() == this.getColor();
 	}
-	
-	/**
-	 * Checks whether the move to be performed is allowed for this particular chess piece
-	 * @param moveTo The position we want to move to
-	 * @return True if the move is allowed, False otherwise
-	 */
-	public boolean isPossibleMove(@NotNull Point moveTo)
-	{
-		if (position == null)
-			return false;
-
-		return checkMove(moveTo);
-	}
 
-	/**
-	 * Calculates all moves that this piece could perform
-	 * @return A list of all tiles the piece can move to
-	 */
-	public List<Point> getPossibleMoves()
+	@Override
+	public int hashCode()
 	{
-		if (position == null)
-			return new ArrayList<>();
-
-		return calculatePossibleMoves();
+		return Objects.hash(getClass(), position, color);
 	}
 
 	public Color getColor()
@@ -73,7 +49,7 @@ public abstract class ChessPiece
 		return color;
 	}
 
-	/**@return The piece's position, <code>null</code> if this piece is no longer on the board */
+	/** @return The piece's position */
 	public Point getPosition()
 	{
 		return position;
@@ -81,15 +57,6 @@ public abstract class ChessPiece
 
 	public abstract int getValue();
 
-	/**
-	 * Update the piece's position
-	 * @param position The new position, <code>null</code> if this piece was captured
-	 */
-	public void setPosition(@Nullable Point position)
-	{
-		this.position = position;
-	}
-
 	public boolean isWhite()
 	{
 		return getColor() == Color.WHITE;
@@ -99,33 +66,4 @@ public abstract class ChessPiece
 	{
 		return getColor() == Color.BLACK;
 	}
-
-	protected abstract List<Point> calculatePossibleMoves();
-
-	protected abstract boolean checkMove(Point to);
-
-	protected ChessPiece[][] getGameBoard()
-	{
-		return game.getGameBoard();
-	}
-
-	protected CheckUtility getCheckUtility()
-	{
-		return game.getCheckUtility();
-	}
-
-	protected boolean checkPathUnobstructed(Point from, Point to)
-	{
-		return BoardUtility.checkPathUnobstructed(from, to, getGameBoard());
-	}
-
-	protected List<Point> generatePossibleMoves(List<Point> directions)
-	{
-		return BoardUtility.generatePossibleMoves(position, directions, this, getGameBoard());
-	}
-
-	protected void removeImpossibleMoves(List<Point> possibleMoves)
-	{
-		BoardUtility.removeImpossibleMoves(possibleMoves, this, position, getGameBoard());
-	}
 }
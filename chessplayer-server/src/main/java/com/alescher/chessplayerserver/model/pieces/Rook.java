@@ -1,13 +1,10 @@
 package com.alescher.chessplayerserver.model.pieces;
 
-import com.alescher.chessplayerserver.helper.BoardUtility;
 import com.alescher.chessplayerserver.model.Castle;
 import com.alescher.chessplayerserver.model.ChessGame;
 import com.alescher.chessplayerserver.model.Color;
-import com.alescher.chessplayerserver.model.pieces.ChessPiece;
 
 import java.awt.Point;
-import java.util.List;
 
 public class Rook extends ChessPiece
 {
@@ -19,28 +16,6 @@ public class Rook extends ChessPiece
 		side = getPosition().x == 0 ? Castle.QUEENSIDE : Castle.KINGSIDE;
 	}
 
-	@Override
-	public boolean checkMove(Point moveTo)
-	{
-		if (!BoardUtility.isHorizontalOrVertical(getPosition(), moveTo))
-			return false;
-		if (!checkPathUnobstructed(getPosition(), moveTo))
-			return false;
-
-		return true;
-	}
-
-	@Override
-	public List<Point> calculatePossibleMoves()
-	{
-		// Create directional vectors in vertical and horizontal directions
-		List<Point> directions = List.of(
-				new Point(0, 1), new Point(0, -1), new Point(-1, 0), new Point(1, 0)
-		);
-
-		return generatePossibleMoves(directions);
-	}
-
 	@Override
 	public int getValue()
 	{
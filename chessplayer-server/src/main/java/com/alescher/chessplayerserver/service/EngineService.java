@@ -0,0 +1,73 @@
+package com.alescher.chessplayerserver.service;
+
+import com.alescher.chessplayerserver.engine.ParallelSearch;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.engine.Search;
+import com.alescher.chessplayerserver.engine.SearchResult;
+import com.alescher.chessplayerserver.engine.TranspositionTable;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs engine searches for all games. All searches share one transposition table, and each search may use several threads,
+ * up to the number of threads configured for this node. The helper threads are shared by all searches as well.
+ *
+ * @author AlEscher
+ */
+@Service
+public class EngineService
+{
+	private final int maxThreads;
+	private final ExecutorService helpers;
+	private final ParallelSearch parallelSearch;
+	private static final Logger logger = LoggerFactory.getLogger(EngineService.class);
+
+	/**
+	 * @param maxThreads The most threads a single search may use, 0 for one per available processor
+	 * @param tableSizeMb The size of the shared transposition table in megabytes, allocated off the heap
+	 */
+	public EngineService(@Value("${chessplayer.engine.threads:0}") int maxThreads,
+						 @Value("${chessplayer.engine.table-size-mb:64}") int tableSizeMb)
+	{
+		this.maxThreads = maxThreads > 0 ? maxThreads : Runtime.getRuntime().availableProcessors();
+		this.helpers = Executors.newFixedThreadPool(Math.max(1, this.maxThreads - 1), runnable ->
+		{
+			Thread thread = new Thread(runnable, "search-helper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.parallelSearch = new ParallelSearch(new TranspositionTable(tableSizeMb), helpers);
+		logger.info("Engine searches use up to {} threads and a {} MB table", this.maxThreads, tableSizeMb);
+	}
+
+	/**
+	 * Searches a position until the time budget is used up
+	 * @param position The position, which is not modified
+	 * @param timeMillis The time budget
+	 * @param threads The number of threads to use, limited to the configured maximum
+	 * @return The best move and its score
+	 */
+	public SearchResult search(@NotNull Position position, long timeMillis, int threads)
+	{
+		return parallelSearch.search(position, timeMillis, Search.MAX_DEPTH, Math.max(1, Math.min(threads, maxThreads)));
+	}
+
+	/** @return The most threads a single search may use */
+	public int getMaxThreads()
+	{
+		return maxThreads;
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		helpers.shutdownNow();
+	}
+}
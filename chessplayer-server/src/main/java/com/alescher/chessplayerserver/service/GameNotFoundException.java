@@ -0,0 +1,18 @@
+package com.alescher.chessplayerserver.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request refers to a game ID that does not exist
+ *
+ * @author AlEscher
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class GameNotFoundException extends RuntimeException
+{
+	public GameNotFoundException(String id)
+	{
+		super(String.format("No game with ID %s", id));
+	}
+}
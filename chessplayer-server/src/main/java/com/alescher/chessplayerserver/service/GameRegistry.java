@@ -0,0 +1,598 @@
+package com.alescher.chessplayerserver.service;
+
+import com.alescher.chessplayerserver.model.ChessGame;
+import com.alescher.chessplayerserver.model.GameListener;
+import com.alescher.chessplayerserver.model.GameSnapshot;
+import com.alescher.chessplayerserver.model.HibernatedGame;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Keeps all running games by their ID.
+ * Requests for different games run in parallel, while all access to a single game is serialized through its own lock,
+ * so a game is never changed by two requests at once. Read-only requests use the game's snapshot and do not lock at all.
+ * <p>
+ * Only games that are being played are kept as {@link ChessGame}s. A game that has been idle for a while is
+ * hibernated into its compact in-heap form, and after a longer while it is written to the storage directory
+ * and forgotten. The number of active games is bounded as well, if there are too many the least recently used
+ * ones are hibernated early. Hibernated games are rehydrated transparently the next time they are requested.
+ * <p>
+ * Every committed change is written to the {@link MoveJournal}, and the games in it are recovered on startup.
+ * A request that changed a game returns only after its records were written, but without holding the game's lock meanwhile.
+ *
+ * @author AlEscher
+ */
+@Service
+public class GameRegistry
+{
+	private static final String FILE_SUFFIX = ".game";
+
+	private final ConcurrentMap<String, GameEntry> games = new ConcurrentHashMap<>();
+	private final AtomicInteger activeGames = new AtomicInteger();
+	/** Set while the least recently used games are hibernated, so that only one thread does it at a time */
+	private final AtomicBoolean evicting = new AtomicBoolean();
+	private final int maxActiveGames;
+	private final long idleTtlMillis;
+	private final long hibernatedTtlMillis;
+	private final Path storageDirectory;
+	private final Clock clock;
+	private final MoveJournal journal;
+	private final List<SnapshotListener> snapshotListeners = new CopyOnWriteArrayList<>();
+	private static final Logger logger = LoggerFactory.getLogger(GameRegistry.class);
+
+	@Autowired
+	public GameRegistry(@Value("${chessplayer.games.max-active:10000}") int maxActiveGames,
+						@Value("${chessplayer.games.idle-ttl:10m}") Duration idleTtl,
+						@Value("${chessplayer.games.hibernated-ttl:1h}") Duration hibernatedTtl,
+						@Value("${chessplayer.games.storage-dir:${java.io.tmpdir}/chessplayer-games}") String storageDirectory,
+						MoveJournal journal)
+	{
+		this(maxActiveGames, idleTtl, hibernatedTtl, Path.of(storageDirectory), Clock.systemUTC(), journal);
+	}
+
+	/**
+	 * @param maxActiveGames The maximum number of games that are kept as {@link ChessGame}s
+	 * @param idleTtl How long a game may be idle before it is hibernated
+	 * @param hibernatedTtl How long a game may be idle before it is moved to disk, at least <code>idleTtl</code>
+	 * @param storageDirectory The directory for games moved to disk, created when needed
+	 * @param clock The clock used to measure idle time
+	 * @param journal The journal to recover the games from and to write all changes to, <code>null</code> to keep games only in memory
+	 * @throws UncheckedIOException If the journal cannot be recovered
+	 */
+	public GameRegistry(int maxActiveGames, @NotNull Duration idleTtl, @NotNull Duration hibernatedTtl,
+						@NotNull Path storageDirectory, @NotNull Clock clock, @Nullable MoveJournal journal) throws UncheckedIOException
+	{
+		Assert.isTrue(maxActiveGames > 0, "At least one game needs to be active");
+		Assert.isTrue(hibernatedTtl.compareTo(idleTtl) >= 0, "Games need to be hibernated before they are moved to disk");
+		this.maxActiveGames = maxActiveGames;
+		this.idleTtlMillis = idleTtl.toMillis();
+		this.hibernatedTtlMillis = hibernatedTtl.toMillis();
+		this.storageDirectory = storageDirectory;
+		this.clock = clock;
+		this.journal = journal;
+		if (journal != null)
+			recover();
+	}
+
+	/**
+	 * Adds the games of the journal as hibernated games. Their state in the journal is newer than a file they may have left.
+	 */
+	private void recover() throws UncheckedIOException
+	{
+		try
+		{
+			for (Map.Entry<String, HibernatedGame> recovered : journal.recover().entrySet())
+			{
+				Files.deleteIfExists(fileOf(recovered.getKey()));
+				GameEntry entry = new GameEntry(null, clock.millis());
+				entry.hibernated = recovered.getValue();
+				games.put(recovered.getKey(), entry);
+			}
+		} catch (IOException e)
+		{
+			throw new UncheckedIOException("Could not recover the games from the move journal", e);
+		}
+	}
+
+	/**
+	 * Creates a new game with the given ID, unless it already exists.
+	 * Returns only once the new game is in the journal, so that no move of it is acknowledged before the game itself is durable.
+	 * @param id The ID of the game
+	 * @return <code>true</code> if a new game was created
+	 * @throws JournalUnavailableException If the game could not be written to the journal in time
+	 */
+	public boolean createIfAbsent(@NotNull String id) throws JournalUnavailableException
+	{
+		boolean[] created = { false };
+		long[] journalSequence = { 0 };
+		games.computeIfAbsent(id, key ->
+		{
+			if (Files.exists(fileOf(key)))
+				return new GameEntry(null, clock.millis());
+
+			logger.info("Setting up new ChessBoard for Game-ID: {}", key);
+			created[0] = true;
+			GameEntry entry = new GameEntry(null, clock.millis());
+			entry.game = attach(key, entry, new ChessGame());
+			if (journal != null)
+				entry.journalSequence = journalSequence[0] = journal.appendGame(key, entry.game.hibernate());
+			return entry;
+		});
+		if (created[0] && activeGames.incrementAndGet() > maxActiveGames)
+			hibernateLeastRecentlyUsed();
+		// Awaited outside of computeIfAbsent, which blocks other updates of the map
+		if (journal != null)
+			journal.awaitFlushed(journalSequence[0]);
+		return created[0];
+	}
+
+	/**
+	 * @param id The ID of the game
+	 * @return <code>true</code> if the game exists, no matter whether it is active, hibernated or on disk
+	 */
+	public boolean contains(@NotNull String id)
+	{
+		return games.containsKey(id) || Files.exists(fileOf(id));
+	}
+
+	/**
+	 * Registers a listener for the snapshots of all games
+	 * @param listener The listener
+	 */
+	public void addSnapshotListener(@NotNull SnapshotListener listener)
+	{
+		snapshotListeners.add(listener);
+	}
+
+	/** @return The number of games kept in memory, either active or hibernated */
+	public int size()
+	{
+		return games.size();
+	}
+
+	/** @return The number of games that are kept as {@link ChessGame}s */
+	public int getActiveCount()
+	{
+		return activeGames.get();
+	}
+
+	/**
+	 * Reads the latest snapshot of a game without waiting for requests that are currently changing it.
+	 * Only a hibernated game needs to be locked, to rehydrate it.
+	 * @param id The ID of the game
+	 * @return The snapshot after the last committed move
+	 * @throws GameNotFoundException If there is no game with this ID
+	 */
+	public GameSnapshot getSnapshot(@NotNull String id) throws GameNotFoundException
+	{
+		GameEntry entry = games.get(id);
+		ChessGame game = entry != null ? entry.game : null;
+		if (game == null)
+			return withGame(id, ChessGame::getSnapshot);
+
+		entry.lastAccess = clock.millis();
+		return game.getSnapshot();
+	}
+
+	/**
+	 * Runs an action on a game while holding the game's lock, rehydrating the game first if needed.
+	 * The game must not be used outside of the action.
+	 * @param id The ID of the game
+	 * @param action The action, which may read and change the game
+	 * @return The result of the action
+	 * @throws GameNotFoundException If there is no game with this ID
+	 * @throws JournalUnavailableException If the changes of the action could not be written to the journal in time
+	 */
+	public <T> T withGame(@NotNull String id, @NotNull Function<ChessGame, T> action) throws GameNotFoundException, JournalUnavailableException
+	{
+		GameEntry entry = lockActive(id);
+		T result;
+		long journalSequence;
+		try
+		{
+			result = action.apply(entry.game);
+		} finally
+		{
+			journalSequence = entry.journalSequence;
+			entry.lock.unlock();
+			if (activeGames.get() > maxActiveGames)
+				hibernateLeastRecentlyUsed();
+		}
+		// Other requests for the game can go on while the journal is written
+		if (journal != null)
+			journal.awaitFlushed(journalSequence);
+		return result;
+	}
+
+	/**
+	 * Replaces a game with a new one, e.g. an imported game. The game is created first if it does not exist.
+	 * The new game is written to the journal as a whole and its snapshot is passed on to the snapshot listeners.
+	 * @param id The ID of the game
+	 * @param factory Creates the new game from the version its first snapshot needs, which is newer than any snapshot of the old game
+	 * @return The new game's snapshot
+	 */
+	public GameSnapshot replaceGame(@NotNull String id, @NotNull LongFunction<ChessGame> factory)
+	{
+		createIfAbsent(id);
+		return withGame(id, old ->
+		{
+			GameEntry entry = games.get(id);
+			ChessGame game = attach(id, entry, factory.apply(old.getSnapshot().getVersion() + 1));
+			entry.game = game;
+			if (journal != null)
+				entry.journalSequence = journal.appendGame(id, game.hibernate());
+			for (SnapshotListener listener : snapshotListeners)
+				listener.onSnapshot(id, game.getSnapshot());
+			return game.getSnapshot();
+		});
+	}
+
+	/**
+	 * Hibernates games that have been idle for longer than the idle TTL
+	 * and moves games that have been idle for longer than the hibernated TTL to disk.
+	 * Games that are in use right now are skipped.
+	 */
+	@Scheduled(fixedDelayString = "${chessplayer.games.sweep-interval:60000}")
+	public void evictIdleGames()
+	{
+		long now = clock.millis();
+		for (Map.Entry<String, GameEntry> mapping : games.entrySet())
+		{
+			GameEntry entry = mapping.getValue();
+			long idle = now - entry.lastAccess;
+			if (idle < idleTtlMillis || !entry.lock.tryLock())
+				continue;
+			try
+			{
+				if (!entry.removed && idle >= hibernatedTtlMillis)
+					moveToDisk(mapping.getKey(), entry);
+				else if (!entry.removed)
+					hibernate(mapping.getKey(), entry);
+			} finally
+			{
+				entry.lock.unlock();
+			}
+		}
+		if (journal != null)
+			journal.awaitFlushed();
+	}
+
+	/**
+	 * Compacts the journal if it grew too much: a new segment with the full state of every game in memory replaces the older segments.
+	 * Games on disk need no records, they are recovered from their files.
+	 */
+	@Scheduled(fixedDelayString = "${chessplayer.journal.compaction-interval:60000}")
+	public void compactJournal()
+	{
+		if (journal == null || !journal.needsCompaction())
+			return;
+
+		try
+		{
+			// Records written from now on go to the new segment, so every change after a game's state was written is kept
+			long segment = journal.startNewSegment();
+			int compacted = 0;
+			for (Map.Entry<String, GameEntry> mapping : games.entrySet())
+			{
+				GameEntry entry = mapping.getValue();
+				entry.lock.lock();
+				try
+				{
+					HibernatedGame state = entry.game != null ? entry.game.hibernate() : entry.hibernated;
+					if (!entry.removed && state != null)
+					{
+						entry.journalSequence = journal.appendGame(mapping.getKey(), state);
+						compacted++;
+					}
+				} finally
+				{
+					entry.lock.unlock();
+				}
+			}
+			journal.awaitFlushed();
+			journal.deleteSegmentsBefore(segment);
+			logger.info("Compacted the move journal to {} games", compacted);
+		} catch (IOException | UncheckedIOException e)
+		{
+			logger.warn("Could not compact the move journal", e);
+		}
+	}
+
+	/**
+	 * Finds a game and locks it, rehydrating it if it is hibernated or on disk
+	 * @return The entry, locked and with an active game
+	 */
+	private GameEntry lockActive(String id) throws GameNotFoundException
+	{
+		while (true)
+		{
+			GameEntry entry = games.get(id);
+			if (entry == null)
+			{
+				if (!Files.exists(fileOf(id)))
+					throw new GameNotFoundException(id);
+				entry = games.computeIfAbsent(id, key -> new GameEntry(null, clock.millis()));
+			}
+
+			entry.lock.lock();
+			// The game was moved to disk while waiting for the lock
+			if (entry.removed)
+			{
+				entry.lock.unlock();
+				continue;
+			}
+			try
+			{
+				activate(id, entry);
+			} catch (RuntimeException e)
+			{
+				entry.lock.unlock();
+				throw e;
+			}
+			entry.lastAccess = clock.millis();
+			return entry;
+		}
+	}
+
+	/**
+	 * Rehydrates the game of a locked entry if it is not active
+	 */
+	private void activate(String id, GameEntry entry) throws GameNotFoundException
+	{
+		if (entry.game != null)
+			return;
+
+		HibernatedGame hibernated = entry.hibernated;
+		if (hibernated == null)
+		{
+			Path file = fileOf(id);
+			try
+			{
+				hibernated = readFromDisk(file);
+				// The file may only be deleted once the game is safe in the journal again
+				if (journal != null)
+				{
+					entry.journalSequence = journal.appendGame(id, hibernated);
+					journal.awaitFlushed(entry.journalSequence);
+				}
+				Files.delete(file);
+			} catch (NoSuchFileException e)
+			{
+				forget(id, entry);
+				throw new GameNotFoundException(id);
+			} catch (IOException e)
+			{
+				throw new UncheckedIOException("Could not read game " + id, e);
+			}
+		}
+		entry.game = attach(id, entry, ChessGame.rehydrate(hibernated));
+		entry.hibernated = null;
+		activeGames.incrementAndGet();
+		logger.info("Rehydrated game {} with {} moves", id, hibernated.getMoveCount());
+	}
+
+	/**
+	 * Turns the game of a locked entry into its compact form
+	 */
+	private void hibernate(String id, GameEntry entry)
+	{
+		if (entry.game == null)
+			return;
+
+		entry.hibernated = entry.game.hibernate();
+		entry.game = null;
+		activeGames.decrementAndGet();
+		logger.info("Hibernated game {}", id);
+	}
+
+	/**
+	 * Writes the game of a locked entry to disk and removes the entry.
+	 * If writing fails, the game stays hibernated in memory.
+	 */
+	private void moveToDisk(String id, GameEntry entry)
+	{
+		hibernate(id, entry);
+		if (entry.hibernated != null)
+		{
+			try
+			{
+				writeToDisk(id, entry.hibernated);
+			} catch (IOException e)
+			{
+				logger.warn("Could not move game {} to disk, keeping it in memory", id, e);
+				return;
+			}
+			entry.hibernated = null;
+			if (journal != null)
+				journal.appendStored(id);
+			logger.info("Moved game {} to disk", id);
+		}
+		forget(id, entry);
+	}
+
+	private void forget(String id, GameEntry entry)
+	{
+		entry.removed = true;
+		games.remove(id, entry);
+	}
+
+	/**
+	 * Hibernates the least recently used active games until there are less than the maximum.
+	 * A tenth of the maximum is hibernated on top of that, so that this does not run again for every new game.
+	 */
+	private void hibernateLeastRecentlyUsed()
+	{
+		if (!evicting.compareAndSet(false, true))
+			return;
+		try
+		{
+			int excess = activeGames.get() - maxActiveGames;
+			if (excess <= 0)
+				return;
+
+			// The access times keep changing, so they are copied before sorting
+			List<Candidate> candidates = new ArrayList<>();
+			games.forEach((id, entry) ->
+			{
+				if (entry.game != null)
+					candidates.add(new Candidate(id, entry, entry.lastAccess));
+			});
+			candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+
+			int remaining = excess + maxActiveGames / 10;
+			for (int i = 0; i < candidates.size() && remaining > 0; i++)
+			{
+				GameEntry entry = candidates.get(i).entry();
+				if (!entry.lock.tryLock())
+					continue;
+				try
+				{
+					if (!entry.removed && entry.game != null)
+					{
+						hibernate(candidates.get(i).id(), entry);
+						remaining--;
+					}
+				} finally
+				{
+					entry.lock.unlock();
+				}
+			}
+		} finally
+		{
+			evicting.set(false);
+		}
+	}
+
+	private static HibernatedGame readFromDisk(Path file) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+		{
+			return HibernatedGame.readFrom(in);
+		}
+	}
+
+	/**
+	 * Writes a game to a temporary file first and moves it in place afterwards, so that there are no partially written games
+	 */
+	private void writeToDisk(String id, HibernatedGame hibernated) throws IOException
+	{
+		Files.createDirectories(storageDirectory);
+		Path file = fileOf(id);
+		Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile))))
+		{
+			hibernated.writeTo(out);
+		}
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Writes the committed changes of a game to the journal and passes its snapshots on to the snapshot listeners
+	 * @return The game
+	 */
+	private ChessGame attach(String id, GameEntry entry, ChessGame game)
+	{
+		game.addListener(new EntryListener(id, entry));
+		return game;
+	}
+
+	/**
+	 * Game IDs come from the URL, so they are encoded before being used as file names
+	 */
+	private Path fileOf(String id)
+	{
+		String name = Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+		return storageDirectory.resolve(name + FILE_SUFFIX);
+	}
+
+	/**
+	 * A game in one of three states: active, hibernated in memory, or on disk when both are <code>null</code>.
+	 * The state may only be changed while holding the lock.
+	 */
+	private static final class GameEntry
+	{
+		private volatile ChessGame game;
+		private HibernatedGame hibernated;
+		/** Set when the entry was removed from the registry, a new entry has to be looked up */
+		private boolean removed;
+		private volatile long lastAccess;
+		/** The sequence number of the last journal record of this game */
+		private long journalSequence;
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private GameEntry(ChessGame game, long lastAccess)
+		{
+			this.game = game;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	private final class EntryListener implements GameListener
+	{
+		private final String id;
+		private final GameEntry entry;
+
+		private EntryListener(String id, GameEntry entry)
+		{
+			this.id = id;
+			this.entry = entry;
+		}
+
+		@Override
+		public void onMove(int ply, int move)
+		{
+			if (journal != null)
+				entry.journalSequence = journal.appendMove(id, ply, move);
+		}
+
+		@Override
+		public void onUndo(int ply)
+		{
+			if (journal != null)
+				entry.journalSequence = journal.appendUndo(id, ply);
+		}
+
+		@Override
+		public void onSnapshot(GameSnapshot snapshot)
+		{
+			for (SnapshotListener listener : snapshotListeners)
+				listener.onSnapshot(id, snapshot);
+		}
+	}
+
+	private record Candidate(String id, GameEntry entry, long lastAccess) {}
+}
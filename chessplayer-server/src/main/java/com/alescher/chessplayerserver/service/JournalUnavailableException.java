@@ -0,0 +1,22 @@
+package com.alescher.chessplayerserver.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Thrown when a change to a game could not be written to the {@link MoveJournal} in time.
+ * The change is applied in memory and still written once the journal can be written again, but it was not acknowledged as durable.
+ *
+ * @author AlEscher
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class JournalUnavailableException extends UncheckedIOException
+{
+	public JournalUnavailableException(String message, IOException cause)
+	{
+		super(message, cause);
+	}
+}
@@ -0,0 +1,622 @@
+package com.alescher.chessplayerserver.service;
+
+import com.alescher.chessplayerserver.model.HibernatedGame;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead journal of all committed changes to games, so that games survive a restart of the server.
+ * <p>
+ * Every change is one small binary record in the current segment file. Callers only enqueue their encoded record,
+ * a single writer thread takes everything that queued up while it was busy, writes it with one gathering write
+ * through a {@link FileChannel} and forces it to disk once, so that concurrent moves share one sync (group commit).
+ * A record is laid out as: int length, int CRC32, byte type, short length of the game ID, the game ID in UTF-8,
+ * and the payload. The checksum lets recovery detect a record that was torn by a crash.
+ * <p>
+ * If a batch cannot be written, the writer cuts off whatever part of it reached the segment and writes the same batch again
+ * after a growing delay, so that the journal never has a hole. Callers wait for their records only up to a timeout,
+ * so that a disk that stays full or read-only does not hold every request thread of the server.
+ * <p>
+ * The journal grows until it is compacted: {@link GameRegistry} starts a new segment, writes the full state of every
+ * game in memory into it and deletes the older segments, which bounds the time needed for recovery.
+ *
+ * @author AlEscher
+ */
+@Component
+public class MoveJournal
+{
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	/** The length and checksum in front of every record */
+	private static final int HEADER_SIZE = 8;
+	// Record types
+	/** The full state of a game: the packed start position and all moves, written when a game is created, loaded or compacted */
+	private static final byte GAME = 1;
+	/** A move: the ply and the packed move */
+	private static final byte MOVE = 2;
+	/** Moves taken back: the number of moves that are left */
+	private static final byte UNDO = 3;
+	/** The game was moved to its own file and no longer needs to be recovered from the journal */
+	private static final byte STORED = 4;
+	/** The delays before a batch that could not be written is written again, doubled after every attempt */
+	private static final long FIRST_RETRY_DELAY_MILLIS = 10;
+	private static final long MAX_RETRY_DELAY_MILLIS = 5000;
+
+	private final Path directory;
+	private final long compactionThreshold;
+	private final boolean sync;
+	private final long flushTimeoutMillis;
+
+	/** The encoded records waiting for the writer, guarded by <code>this</code> like the fields below */
+	private List<ByteBuffer> pending = new ArrayList<>();
+	private long appendedSequence;
+	private long flushedSequence;
+	/** Set if the writer stopped: the journal was closed while a batch could still not be written, or the writer failed unexpectedly */
+	private IOException failure;
+	/** The error of the last attempt to write, <code>null</code> once a batch was written */
+	private IOException lastError;
+	private boolean closed;
+	private Thread writer;
+
+	/** Guards the current segment, which is used by the writer and replaced by {@link #startNewSegment()} */
+	private final Object segmentLock = new Object();
+	private FileChannel segment;
+	private long segmentNumber;
+	/** Whether the current segment ends with part of a batch that could not be cut off, so that the next batch needs a new segment */
+	private boolean segmentTorn;
+	private final AtomicLong bytesSinceCompaction = new AtomicLong();
+	private volatile boolean hasOldSegments;
+	private static final Logger logger = LoggerFactory.getLogger(MoveJournal.class);
+
+	@Autowired
+	public MoveJournal(@Value("${chessplayer.journal.directory:${java.io.tmpdir}/chessplayer-games/journal}") String directory,
+					   @Value("${chessplayer.journal.compaction-threshold:16777216}") long compactionThreshold,
+					   @Value("${chessplayer.journal.sync:true}") boolean sync,
+					   @Value("${chessplayer.journal.flush-timeout:10000}") long flushTimeoutMillis)
+	{
+		this(Path.of(directory), compactionThreshold, sync, flushTimeoutMillis);
+	}
+
+	/**
+	 * @param directory The directory of the segment files, created when needed
+	 * @param compactionThreshold The number of bytes written since the last compaction after which the journal should be compacted
+	 * @param sync Whether every group commit is forced to disk. Without it, moves survive a crash of the server but not of the machine
+	 * @param flushTimeoutMillis How long {@link #awaitFlushed(long)} waits for a record at most
+	 */
+	public MoveJournal(@NotNull Path directory, long compactionThreshold, boolean sync, long flushTimeoutMillis)
+	{
+		Assert.isTrue(compactionThreshold > 0, "The compaction threshold needs to be positive");
+		Assert.isTrue(flushTimeoutMillis > 0, "The flush timeout needs to be positive");
+		this.directory = directory;
+		this.compactionThreshold = compactionThreshold;
+		this.sync = sync;
+		this.flushTimeoutMillis = flushTimeoutMillis;
+	}
+
+	/**
+	 * Replays all segments and opens a new segment for appending. Needs to be called once before anything is appended.
+	 * Torn records at the end of a segment are skipped.
+	 * @return The state of every game in the journal by its ID
+	 * @throws IOException If the segments cannot be read or the new segment cannot be created
+	 */
+	public synchronized Map<String, HibernatedGame> recover() throws IOException
+	{
+		Assert.state(writer == null, "The journal was already recovered");
+		Files.createDirectories(directory);
+		List<Long> segments = listSegments();
+		Map<String, RecoveredGame> games = new HashMap<>();
+		for (long number : segments)
+			replay(segmentFile(number), games);
+
+		synchronized (segmentLock)
+		{
+			segmentNumber = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+			segment = openSegment(segmentNumber);
+		}
+		hasOldSegments = !segments.isEmpty();
+		writer = new Thread(this::writeLoop, "move-journal");
+		writer.setDaemon(true);
+		writer.start();
+
+		Map<String, HibernatedGame> recovered = new HashMap<>(games.size());
+		games.forEach((id, game) -> recovered.put(id, game.toHibernatedGame()));
+		logger.info("Recovered {} games from {} journal segments", recovered.size(), segments.size());
+		return recovered;
+	}
+
+	/**
+	 * Appends the full state of a game, which replaces everything that was journaled for it before
+	 * @return The sequence number of the record, see {@link #awaitFlushed(long)}
+	 */
+	public long appendGame(@NotNull String id, @NotNull HibernatedGame game)
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		try
+		{
+			game.writeTo(new DataOutputStream(bytes));
+		} catch (IOException e)
+		{
+			// Writing to memory does not fail
+			throw new UncheckedIOException(e);
+		}
+		ByteBuffer record = newRecord(GAME, id, bytes.size());
+		record.put(bytes.toByteArray());
+		return append(record);
+	}
+
+	/**
+	 * @param ply The number of moves played before this move
+	 * @param move The packed move
+	 * @return The sequence number of the record, see {@link #awaitFlushed(long)}
+	 */
+	public long appendMove(@NotNull String id, int ply, int move)
+	{
+		ByteBuffer record = newRecord(MOVE, id, 8);
+		record.putInt(ply).putInt(move);
+		return append(record);
+	}
+
+	/**
+	 * @param ply The number of moves that are left
+	 * @return The sequence number of the record, see {@link #awaitFlushed(long)}
+	 */
+	public long appendUndo(@NotNull String id, int ply)
+	{
+		ByteBuffer record = newRecord(UNDO, id, 4);
+		record.putInt(ply);
+		return append(record);
+	}
+
+	/**
+	 * Marks a game as stored in its own file, so that it is not recovered from the journal
+	 * @return The sequence number of the record, see {@link #awaitFlushed(long)}
+	 */
+	public long appendStored(@NotNull String id)
+	{
+		return append(newRecord(STORED, id, 0));
+	}
+
+	/**
+	 * Waits until a record and all records before it have been written, which includes waiting for the writer to retry a failed batch
+	 * @param sequence The sequence number of the record, 0 returns immediately
+	 * @throws JournalUnavailableException If the record was not written within the flush timeout, or the writer stopped
+	 */
+	public synchronized void awaitFlushed(long sequence) throws JournalUnavailableException
+	{
+		boolean interrupted = false;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushTimeoutMillis);
+		while (flushedSequence < sequence && failure == null)
+		{
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+				break;
+			try
+			{
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			} catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (flushedSequence >= sequence)
+			return;
+		if (failure != null)
+			throw new JournalUnavailableException("The move journal could not be written", failure);
+		// The record stays queued and is written once the writer gets through
+		throw new JournalUnavailableException("The move journal could not be written within " + flushTimeoutMillis + " ms",
+				lastError != null ? lastError : new IOException("Writing the move journal is too slow"));
+	}
+
+	/**
+	 * Waits until everything that has been appended so far has been written
+	 * @throws JournalUnavailableException If not everything was written within the flush timeout, or the writer stopped
+	 */
+	public void awaitFlushed() throws JournalUnavailableException
+	{
+		long sequence;
+		synchronized (this)
+		{
+			sequence = appendedSequence;
+		}
+		awaitFlushed(sequence);
+	}
+
+	/** @return <code>true</code> if segments from before the last start or compaction are left, or too much was written since */
+	public boolean needsCompaction()
+	{
+		return hasOldSegments || bytesSinceCompaction.get() > compactionThreshold;
+	}
+
+	/**
+	 * Starts a new segment for all records that are written from now on, the first step of a compaction
+	 * @return The number of the new segment
+	 * @throws IOException If the segment cannot be created
+	 */
+	public long startNewSegment() throws IOException
+	{
+		synchronized (segmentLock)
+		{
+			replaceSegment();
+			bytesSinceCompaction.set(0);
+			return segmentNumber;
+		}
+	}
+
+	/**
+	 * Deletes the segments before a segment, the last step of a compaction
+	 * @param number The number of the first segment to keep
+	 * @throws IOException If a segment cannot be deleted
+	 */
+	public void deleteSegmentsBefore(long number) throws IOException
+	{
+		for (long old : listSegments())
+		{
+			if (old < number)
+				Files.delete(segmentFile(old));
+		}
+		synchronized (segmentLock)
+		{
+			hasOldSegments = number < segmentNumber;
+		}
+	}
+
+	/**
+	 * Writes all records that have been appended and closes the current segment.
+	 * A batch that still cannot be written is given up after one more attempt.
+	 * @throws IOException If the segment cannot be closed
+	 */
+	@PreDestroy
+	public void close() throws IOException
+	{
+		Thread writer;
+		synchronized (this)
+		{
+			if (closed || this.writer == null)
+				return;
+			closed = true;
+			writer = this.writer;
+			notifyAll();
+		}
+		try
+		{
+			writer.join();
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		synchronized (segmentLock)
+		{
+			segment.close();
+		}
+	}
+
+	private static ByteBuffer newRecord(byte type, String id, int payloadSize)
+	{
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		Assert.isTrue(idBytes.length <= 0xFFFF, "The game ID is too long");
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + 3 + idBytes.length + payloadSize);
+		record.position(HEADER_SIZE);
+		record.put(type).putShort((short) idBytes.length).put(idBytes);
+		return record;
+	}
+
+	/**
+	 * Fills in the header of a record and hands it to the writer
+	 */
+	private long append(ByteBuffer record)
+	{
+		int length = record.position() - HEADER_SIZE;
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), HEADER_SIZE, length);
+		record.putInt(0, length).putInt(4, (int) crc.getValue()).flip();
+		synchronized (this)
+		{
+			Assert.state(writer != null && !closed, "The move journal is not open");
+			pending.add(record);
+			notifyAll();
+			return ++appendedSequence;
+		}
+	}
+
+	private void writeLoop()
+	{
+		while (true)
+		{
+			List<ByteBuffer> batch;
+			long batchSequence;
+			synchronized (this)
+			{
+				while (pending.isEmpty() && !closed)
+				{
+					try
+					{
+						wait();
+					} catch (InterruptedException e)
+					{
+						// Only closing stops the writer
+					}
+				}
+				if (pending.isEmpty())
+					return;
+				batch = pending;
+				pending = new ArrayList<>();
+				batchSequence = appendedSequence;
+			}
+
+			// Records after the batch are only written once the batch is, so that the journal never has a hole
+			long delay = FIRST_RETRY_DELAY_MILLIS;
+			while (true)
+			{
+				try
+				{
+					write(batch);
+					break;
+				} catch (RuntimeException e)
+				{
+					// Retrying a bug does not help, the waiters fail instead of waiting for a writer that is gone
+					logger.error("The move journal writer failed, no more records are written", e);
+					synchronized (this)
+					{
+						failure = new IOException("The move journal writer failed", e);
+						notifyAll();
+					}
+					return;
+				} catch (IOException e)
+				{
+					synchronized (this)
+					{
+						lastError = e;
+						if (closed)
+						{
+							logger.error("Could not write the move journal while closing it, dropping {} records", batchSequence - flushedSequence, e);
+							failure = e;
+							notifyAll();
+							return;
+						}
+						logger.error("Could not write the move journal, retrying in {} ms", delay, e);
+						try
+						{
+							// Closing wakes the writer up for a last attempt
+							wait(delay);
+						} catch (InterruptedException interrupted)
+						{
+							// Only closing stops the writer
+						}
+					}
+					delay = Math.min(2 * delay, MAX_RETRY_DELAY_MILLIS);
+				}
+			}
+			synchronized (this)
+			{
+				flushedSequence = batchSequence;
+				lastError = null;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Writes a batch to the current segment. If that fails, the part of the batch that was written is cut off again,
+	 * so that the batch can be written as a whole by the next call.
+	 */
+	private void write(List<ByteBuffer> batch) throws IOException
+	{
+		ByteBuffer[] buffers = batch.toArray(ByteBuffer[]::new);
+		long size = 0;
+		for (ByteBuffer buffer : buffers)
+		{
+			// A failed attempt may have consumed the buffer
+			buffer.rewind();
+			size += buffer.remaining();
+		}
+		synchronized (segmentLock)
+		{
+			if (segmentTorn)
+			{
+				replaceSegment();
+				segmentTorn = false;
+			}
+			long start = segment.position();
+			try
+			{
+				for (long written = 0; written < size; )
+					written += writeSegment(segment, buffers);
+				if (sync)
+					segment.force(false);
+			} catch (IOException e)
+			{
+				try
+				{
+					segment.truncate(start);
+					segment.position(start);
+				} catch (IOException truncateError)
+				{
+					// Recovery stops reading the segment at the torn record, the batch is written again to a new segment
+					e.addSuppressed(truncateError);
+					segmentTorn = true;
+				}
+				throw e;
+			}
+		}
+		bytesSinceCompaction.addAndGet(size);
+	}
+
+	/**
+	 * Writes buffers to a segment file, the only place where the journal writes to disk
+	 * @return The number of bytes written
+	 */
+	protected long writeSegment(@NotNull FileChannel segment, @NotNull ByteBuffer[] buffers) throws IOException
+	{
+		return segment.write(buffers);
+	}
+
+	/** Continues in a new segment, callers hold {@link #segmentLock} */
+	private void replaceSegment() throws IOException
+	{
+		FileChannel previous = segment;
+		segment = openSegment(segmentNumber + 1);
+		segmentNumber++;
+		previous.close();
+		hasOldSegments = true;
+	}
+
+	/**
+	 * Applies all records of a segment, which is mapped into memory for reading
+	 */
+	private void replay(Path file, Map<String, RecoveredGame> games) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			while (buffer.remaining() >= HEADER_SIZE)
+			{
+				int length = buffer.getInt(buffer.position());
+				int checksum = buffer.getInt(buffer.position() + 4);
+				if (length <= 0 || length > buffer.remaining() - HEADER_SIZE)
+					break;
+				ByteBuffer record = buffer.slice(buffer.position() + HEADER_SIZE, length);
+				CRC32 crc = new CRC32();
+				crc.update(record.duplicate());
+				if ((int) crc.getValue() != checksum)
+					break;
+				apply(record, games);
+				buffer.position(buffer.position() + HEADER_SIZE + length);
+			}
+			if (buffer.hasRemaining())
+				logger.warn("Skipping {} bytes of torn records at the end of {}", buffer.remaining(), file);
+		}
+	}
+
+	private static void apply(ByteBuffer record, Map<String, RecoveredGame> games) throws IOException
+	{
+		byte type = record.get();
+		byte[] idBytes = new byte[record.getShort() & 0xFFFF];
+		record.get(idBytes);
+		String id = new String(idBytes, StandardCharsets.UTF_8);
+		switch (type)
+		{
+			case GAME ->
+			{
+				byte[] payload = new byte[record.remaining()];
+				record.get(payload);
+				games.put(id, new RecoveredGame(HibernatedGame.readFrom(new DataInputStream(new ByteArrayInputStream(payload)))));
+			}
+			case MOVE ->
+			{
+				RecoveredGame game = games.get(id);
+				int ply = record.getInt();
+				int move = record.getInt();
+				// Moves before the state of the game was written by a compaction are already part of that state
+				if (game != null && !game.play(ply, move))
+					logger.warn("Skipping move {} of game {}, the journal is missing earlier moves", ply, id);
+			}
+			case UNDO ->
+			{
+				RecoveredGame game = games.get(id);
+				if (game != null)
+					game.undo(record.getInt());
+			}
+			case STORED -> games.remove(id);
+			default -> throw new IOException("Unknown journal record type " + type);
+		}
+	}
+
+	private List<Long> listSegments() throws IOException
+	{
+		if (!Files.isDirectory(directory))
+			return List.of();
+		try (Stream<Path> files = Files.list(directory))
+		{
+			return files.map(file -> file.getFileName().toString())
+					.filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+					.map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+					.sorted()
+					.toList();
+		}
+	}
+
+	private Path segmentFile(long number)
+	{
+		return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+	}
+
+	private FileChannel openSegment(long number) throws IOException
+	{
+		return FileChannel.open(segmentFile(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * The state of a game while the journal is replayed
+	 */
+	private static final class RecoveredGame
+	{
+		private final byte[] startPosition;
+		private int[] moves;
+		private int moveCount;
+		private long snapshotVersion;
+
+		private RecoveredGame(HibernatedGame game)
+		{
+			this.startPosition = game.getStartPosition();
+			this.moves = game.getMoves();
+			this.moveCount = moves.length;
+			this.snapshotVersion = game.getSnapshotVersion();
+		}
+
+		/** @return <code>false</code> if earlier moves are missing */
+		private boolean play(int ply, int move)
+		{
+			if (ply > moveCount)
+				return false;
+			if (ply == moves.length)
+				moves = Arrays.copyOf(moves, Math.max(16, moves.length * 2));
+			moves[ply] = move;
+			moveCount = ply + 1;
+			// Every committed move and undo publishes one snapshot
+			snapshotVersion++;
+			return true;
+		}
+
+		private void undo(int ply)
+		{
+			moveCount = Math.min(moveCount, ply);
+			snapshotVersion++;
+		}
+
+		private HibernatedGame toHibernatedGame()
+		{
+			return new HibernatedGame(startPosition, Arrays.copyOf(moves, moveCount), snapshotVersion);
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.alescher.chessplayerserver.service;
+
+import com.alescher.chessplayerserver.model.GameSnapshot;
+
+/**
+ * Gets notified whenever a game of the {@link GameRegistry} publishes a new snapshot, i.e. after every committed move and undo.
+ * Listeners are called while the game's lock is held, so they must hand off any slow work such as network I/O.
+ *
+ * @author AlEscher
+ */
+public interface SnapshotListener
+{
+	/**
+	 * @param id The ID of the game
+	 * @param snapshot The new snapshot
+	 */
+	void onSnapshot(String id, GameSnapshot snapshot);
+}
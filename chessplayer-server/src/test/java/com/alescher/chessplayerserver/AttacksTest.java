@@ -0,0 +1,39 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.engine.Attacks;
+import com.alescher.chessplayerserver.engine.Bitboards;
+import com.alescher.chessplayerserver.engine.Square;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AttacksTest
+{
+	@Test
+	public void testMagicLookupsMatchRayWalk()
+	{
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++)
+		{
+			int square = random.nextInt(64);
+			long occupied = random.nextLong() & random.nextLong();
+			assertThat(Attacks.rook(square, occupied))
+					.isEqualTo(Bitboards.slidingAttacks(square, occupied, Bitboards.ROOK_DIRECTIONS));
+			assertThat(Attacks.bishop(square, occupied))
+					.isEqualTo(Bitboards.slidingAttacks(square, occupied, Bitboards.BISHOP_DIRECTIONS));
+		}
+	}
+
+	@Test
+	public void testBetweenAndLine()
+	{
+		int a1 = Square.A1, h8 = Square.H8, d4 = Square.fromTile("D4");
+		assertThat(Attacks.between(a1, h8)).isEqualTo(0x0040201008040200L);
+		assertThat(Attacks.between(a1, Square.fromTile("B3"))).isZero();
+		assertThat(Attacks.line(a1, d4)).isEqualTo(0x8040201008040201L);
+		assertThat(Attacks.line(Square.E1, Square.E8)).isEqualTo(Bitboards.FILE_A << 4);
+		assertThat(Attacks.line(a1, Square.fromTile("B3"))).isZero();
+	}
+}
@@ -0,0 +1,40 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.controller.BoardDeltaEntity;
+import com.alescher.chessplayerserver.model.ChessGame;
+import com.alescher.chessplayerserver.model.MoveResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BoardDeltaTest
+{
+	@Test
+	public void testEnPassant()
+	{
+		ChessGame game = ChessGame.fromFEN("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3");
+		BoardDeltaEntity delta = BoardDeltaEntity.create(game.performMove("E5", "D6"), game);
+		assertThat(delta).isNotNull();
+		assertThat(delta.getChangedTiles()).containsExactlyInAnyOrderEntriesOf(Map.of("E5", "", "D6", "P", "D5", ""));
+		assertThat(delta.getCapturedPiece()).isEqualTo("p");
+		assertThat(delta.getCapturedTile()).isEqualTo("D5");
+		assertThat(delta.getRookMove()).isEmpty();
+		assertThat(delta.getFen()).isEqualTo(game.toFEN());
+	}
+
+	@Test
+	public void testCastleAndIllegalMove()
+	{
+		ChessGame game = ChessGame.fromFEN("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+		BoardDeltaEntity delta = BoardDeltaEntity.create(game.performMove("E1", "G1"), game);
+		assertThat(delta).isNotNull();
+		assertThat(delta.getChangedTiles()).containsExactlyInAnyOrderEntriesOf(Map.of("E1", "", "G1", "K", "H1", "", "F1", "R"));
+		assertThat(delta.getRookMove()).containsExactlyEntriesOf(Map.of("H1", "F1"));
+		assertThat(delta.getCapturedPiece()).isNull();
+
+		MoveResult illegal = game.performMove("E1", "E2");
+		assertThat(BoardDeltaEntity.create(illegal, game)).isNull();
+	}
+}
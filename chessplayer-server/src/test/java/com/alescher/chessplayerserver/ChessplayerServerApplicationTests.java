@@ -1,11 +1,28 @@
 package com.alescher.chessplayerserver;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
 
 @SpringBootTest
+@DirtiesContext
 class ChessplayerServerApplicationTests {
 
+	/** Every run keeps its games and journal in its own directory, instead of recovering those of earlier runs */
+	@TempDir
+	static Path storageDirectory;
+
+	@DynamicPropertySource
+	static void storageProperties(DynamicPropertyRegistry registry) {
+		registry.add("chessplayer.games.storage-dir", storageDirectory::toString);
+		registry.add("chessplayer.journal.directory", () -> storageDirectory.resolve("journal").toString());
+	}
+
 	@Test
 	void contextLoads() {
 	}
@@ -0,0 +1,68 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.service.GameRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+public class ConditionalGetTest
+{
+	/** Every run keeps its games and journal in its own directory, instead of recovering those of earlier runs */
+	@TempDir
+	static Path storageDirectory;
+
+	@DynamicPropertySource
+	static void storageProperties(DynamicPropertyRegistry registry)
+	{
+		registry.add("chessplayer.games.storage-dir", storageDirectory::toString);
+		registry.add("chessplayer.journal.directory", () -> storageDirectory.resolve("journal").toString());
+	}
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private GameRegistry games;
+
+	@Test
+	public void testFenIsNotSentAgainWhileUnchanged() throws Exception
+	{
+		String id = UUID.randomUUID().toString();
+		games.createIfAbsent(id);
+		MvcResult first = mockMvc.perform(get("/game/{id}/fen", id))
+				.andExpect(status().isOk())
+				.andReturn();
+		String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(eTag).isNotNull();
+
+		mockMvc.perform(get("/game/{id}/fen", id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		// A move changes the position, so the FEN is sent again with a new ETag
+		games.withGame(id, game -> game.performMove("E2", "E4"));
+		MvcResult changed = mockMvc.perform(get("/game/{id}/fen", id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isOk())
+				.andReturn();
+		assertThat(changed.getResponse().getContentAsString()).startsWith("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b");
+		assertThat(changed.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(eTag);
+	}
+}
@@ -0,0 +1,70 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.engine.Evaluation;
+import com.alescher.chessplayerserver.engine.MoveGenerator;
+import com.alescher.chessplayerserver.engine.Piece;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.engine.Square;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EvaluationTest
+{
+	@Test
+	public void testSymmetry()
+	{
+		Position start = Position.startPosition();
+		assertThat(start.getPhase()).isEqualTo(Evaluation.MAX_PHASE);
+		assertThat(Evaluation.evaluate(start)).isZero();
+
+		// The same position with the colors swapped scores the same for the side to move
+		Position position = Position.fromFEN("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+		Position mirrored = Position.fromFEN("rnbqk2r/pppp1ppp/5n2/2b1p3/4P3/2N2N2/PPPP1PPP/R1BQKB1R b KQkq - 4 4");
+		assertThat(Evaluation.evaluate(position)).isEqualTo(Evaluation.evaluate(mirrored));
+		assertThat(Evaluation.evaluate(Position.fromFEN("4k3/8/8/8/8/8/8/3QK3 w - - 0 1"))).isPositive();
+		assertThat(Evaluation.evaluate(Position.fromFEN("4k3/8/8/8/8/8/8/3QK3 b - - 0 1"))).isNegative();
+	}
+
+	@Test
+	public void testTaperedByPhase()
+	{
+		// With only kings and pawns left, the king belongs in the center instead of the corner
+		Position endgame = Position.fromFEN("7k/pp6/8/8/8/8/PP6/K7 w - - 0 1");
+		assertThat(endgame.getPhase()).isZero();
+		Position centralized = Position.fromFEN("7k/pp6/8/8/3K4/8/PP6/8 w - - 0 1");
+		assertThat(Evaluation.evaluate(centralized)).isGreaterThan(Evaluation.evaluate(endgame));
+		assertThat(Evaluation.evaluate(endgame)).isEqualTo(endgame.getEndgameScore());
+
+		// An advanced pawn is worth much more in the endgame
+		Position passedPawn = Position.fromFEN("7k/1P6/8/8/8/8/8/K7 w - - 0 1");
+		Position homePawn = Position.fromFEN("7k/8/8/8/8/8/1P6/K7 w - - 0 1");
+		assertThat(Evaluation.evaluate(passedPawn) - Evaluation.evaluate(homePawn)).isGreaterThan(100);
+	}
+
+	@Test
+	public void testStaticExchange()
+	{
+		// The pawn on d5 is defended by the pawn on e6 and attacked by the knight and the queen
+		Position position = Position.fromFEN("4k3/8/4p3/3p4/8/2N5/8/3QK3 w - - 0 1");
+		MoveGenerator generator = new MoveGenerator(position);
+		int knightTakes = generator.pack(Square.of(2, 2), Square.of(3, 4), Piece.NONE);
+		assertThat(Evaluation.exchangeAtLeast(position, knightTakes, 0)).isFalse();
+		assertThat(Evaluation.exchangeAtLeast(position, knightTakes, -200)).isTrue();
+
+		// Undefended, the pawn is simply won
+		position = Position.fromFEN("4k3/8/8/3p4/8/2N5/8/3QK3 w - - 0 1");
+		generator = new MoveGenerator(position);
+		knightTakes = generator.pack(Square.of(2, 2), Square.of(3, 4), Piece.NONE);
+		assertThat(Evaluation.exchangeAtLeast(position, knightTakes, 100)).isTrue();
+		assertThat(Evaluation.exchangeAtLeast(position, knightTakes, 101)).isFalse();
+
+		// The queen behind the rook backs it up once the rook captured: Rxd5 Rxd5 Qxd5 wins a pawn
+		position = Position.fromFEN("3rk3/8/8/3p4/8/8/3R4/3QK3 w - - 0 1");
+		int rookTakes = new MoveGenerator(position).pack(Square.of(3, 1), Square.of(3, 4), Piece.NONE);
+		assertThat(Evaluation.exchangeAtLeast(position, rookTakes, 100)).isTrue();
+		position = Position.fromFEN("3rk3/8/8/3p4/8/8/3R4/4K3 w - - 0 1");
+		rookTakes = new MoveGenerator(position).pack(Square.of(3, 1), Square.of(3, 4), Piece.NONE);
+		assertThat(Evaluation.exchangeAtLeast(position, rookTakes, 0)).isFalse();
+	}
+}
@@ -22,7 +22,7 @@ public class FenTest
 		game.performMove("D1", "F3");
 		game.performMove("B8", "A6");
 		String actualFen = game.toFEN();
-		String expectedFen = "r1bqkb1r/pppp2pp/n4n2/4pp2/4P3/2NB1Q2/PPPP1PPP/R1B1K1NR w KQkq - - 5";
+		String expectedFen = "r1bqkb1r/pppp2pp/n4n2/4pp2/4P3/2NB1Q2/PPPP1PPP/R1B1K1NR w KQkq - 4 5";
 		assertThat(actualFen).isEqualTo(expectedFen);
 	}
 
@@ -0,0 +1,173 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.service.GameRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext
+public class GameEventStreamTest
+{
+	/** Every run keeps its games and journal in its own directory, instead of recovering those of earlier runs */
+	@TempDir
+	static Path storageDirectory;
+
+	@DynamicPropertySource
+	static void storageProperties(DynamicPropertyRegistry registry)
+	{
+		registry.add("chessplayer.games.storage-dir", storageDirectory::toString);
+		registry.add("chessplayer.journal.directory", () -> storageDirectory.resolve("journal").toString());
+		registry.add("chessplayer.events.heartbeat-interval", () -> "100");
+	}
+
+	@LocalServerPort
+	private int port;
+	@Autowired
+	private GameRegistry games;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	public void testLateJoinerCatchesUp() throws Exception
+	{
+		String id = UUID.randomUUID().toString();
+		games.createIfAbsent(id);
+		BlockingQueue<String> first = new LinkedBlockingQueue<>();
+		List<CompletableFuture<?>> streams = new ArrayList<>();
+		try
+		{
+			streams.add(connect(id, "", null, first));
+			assertThat(next(first).get("ply").asInt()).isZero();
+
+			games.withGame(id, game -> game.performMove("E2", "E4"));
+			games.withGame(id, game -> game.performMove("E7", "E5"));
+			games.withGame(id, game -> game.performMove("G1", "F3"));
+			assertThat(next(first).get("lastMove").asText()).isEqualTo("e2e4");
+			assertThat(next(first).get("lastMove").asText()).isEqualTo("e7e5");
+			assertThat(next(first).get("lastMove").asText()).isEqualTo("g1f3");
+
+			// A spectator that has seen the first move gets the moves after it from the buffer
+			BlockingQueue<String> late = new LinkedBlockingQueue<>();
+			streams.add(connect(id, "?ply=1", null, late));
+			assertThat(next(late).get("lastMove").asText()).isEqualTo("e7e5");
+			JsonNode latest = next(late);
+			assertThat(latest.get("lastMove").asText()).isEqualTo("g1f3");
+
+			// A reconnecting spectator continues after the last event it has seen
+			BlockingQueue<String> reconnected = new LinkedBlockingQueue<>();
+			streams.add(connect(id, "", latest.get("version").asLong() - 1, reconnected));
+			assertThat(next(reconnected).get("lastMove").asText()).isEqualTo("g1f3");
+
+			games.withGame(id, game -> game.performMove("B8", "C6"));
+			for (BlockingQueue<String> events : List.of(first, late, reconnected))
+				assertThat(next(events).get("lastMove").asText()).isEqualTo("b8c6");
+		} finally
+		{
+			streams.forEach(stream -> stream.cancel(true));
+		}
+	}
+
+	@Test
+	public void testUndoEventsAndHeartbeats() throws Exception
+	{
+		String id = UUID.randomUUID().toString();
+		games.createIfAbsent(id);
+		BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+		CompletableFuture<?> stream = open(id, "", null, lines::add);
+		try
+		{
+			assertThat(nextLine(lines, "event: ")).isEqualTo("event: move");
+			games.withGame(id, game -> game.performMove("E2", "E4"));
+			assertThat(nextLine(lines, "event: ")).isEqualTo("event: move");
+			games.withGame(id, game ->
+			{
+				game.undoMove();
+				return null;
+			});
+			assertThat(nextLine(lines, "event: ")).isEqualTo("event: undo");
+			// An idle stream gets comment lines
+			assertThat(nextLine(lines, ":")).isEqualTo(":");
+		} finally
+		{
+			stream.cancel(true);
+		}
+	}
+
+	@Test
+	public void testUnknownGame() throws Exception
+	{
+		HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/game/unknown/events")).build(),
+				HttpResponse.BodyHandlers.discarding());
+		assertThat(response.statusCode()).isEqualTo(404);
+	}
+
+	/**
+	 * Opens an event stream and collects the data of every event
+	 */
+	private CompletableFuture<?> connect(String id, String query, Long lastEventId, BlockingQueue<String> events)
+	{
+		return open(id, query, lastEventId, line ->
+		{
+			if (line.startsWith("data: "))
+				events.add(line.substring("data: ".length()));
+		});
+	}
+
+	/**
+	 * Opens an event stream and passes on every line
+	 */
+	private CompletableFuture<?> open(String id, String query, Long lastEventId, Consumer<String> lines)
+	{
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/game/" + id + "/events" + query))
+				.header("Accept", "text/event-stream");
+		if (lastEventId != null)
+			request.header("Last-Event-ID", String.valueOf(lastEventId));
+		return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofLines())
+				.thenAccept(response -> response.body().forEach(lines));
+	}
+
+	/**
+	 * @return The next line that starts with the prefix, skipping all other lines
+	 */
+	private String nextLine(BlockingQueue<String> lines, String prefix) throws Exception
+	{
+		while (true)
+		{
+			String line = lines.poll(5, TimeUnit.SECONDS);
+			assertThat(line).isNotNull();
+			if (line.startsWith(prefix))
+				return line;
+		}
+	}
+
+	private JsonNode next(BlockingQueue<String> events) throws Exception
+	{
+		String event = events.poll(5, TimeUnit.SECONDS);
+		assertThat(event).isNotNull();
+		return objectMapper.readTree(event);
+	}
+}
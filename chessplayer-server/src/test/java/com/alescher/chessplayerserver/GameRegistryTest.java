@@ -0,0 +1,243 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.helper.ChessPositionConverter;
+import com.alescher.chessplayerserver.engine.Square;
+import com.alescher.chessplayerserver.model.ChessGame;
+import com.alescher.chessplayerserver.model.Color;
+import com.alescher.chessplayerserver.model.GameSnapshot;
+import com.alescher.chessplayerserver.service.GameNotFoundException;
+import com.alescher.chessplayerserver.service.GameRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GameRegistryTest
+{
+	private static final String[][] KNIGHT_DANCE = { {"G1", "F3"}, {"G8", "F6"}, {"F3", "G1"}, {"F6", "G8"} };
+	private static final Duration IDLE_TTL = Duration.ofMinutes(10);
+	private static final Duration HIBERNATED_TTL = Duration.ofHours(1);
+
+	@TempDir
+	Path storageDirectory;
+	private final ManualClock clock = new ManualClock();
+
+	private GameRegistry newRegistry(int maxActiveGames)
+	{
+		return new GameRegistry(maxActiveGames, IDLE_TTL, HIBERNATED_TTL, storageDirectory, clock, null);
+	}
+
+	@Test
+	public void testCreateIfAbsent()
+	{
+		GameRegistry registry = newRegistry(10);
+		assertThat(registry.createIfAbsent("a")).isTrue();
+		assertThat(registry.createIfAbsent("a")).isFalse();
+		assertThat(registry.contains("a")).isTrue();
+		assertThatThrownBy(() -> registry.withGame("b", game -> game)).isInstanceOf(GameNotFoundException.class);
+	}
+
+	@Test
+	public void testSnapshotOnlyShowsCommittedMoves()
+	{
+		GameRegistry registry = newRegistry(10);
+		registry.createIfAbsent("game");
+		GameSnapshot start = registry.getSnapshot("game");
+		assertThat(start.getFen()).isEqualTo("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+		assertThat(start.getLegalMoveTiles("E2")).containsExactlyInAnyOrder("E3", "E4");
+
+		registry.withGame("game", game ->
+		{
+			game.simulateMove(Square.of(4, 1), Square.of(4, 3), false);
+			// A simulated move is not committed
+			assertThat(registry.getSnapshot("game")).isSameAs(start);
+			game.undoMove();
+			// Neither is undoing it
+			assertThat(registry.getSnapshot("game")).isSameAs(start);
+			assertThat(game.getSnapshot().getVersion()).isEqualTo(start.getVersion());
+			return game.performMove("E2", "E4");
+		});
+		GameSnapshot afterMove = registry.getSnapshot("game");
+		assertThat(afterMove.getVersion()).isEqualTo(start.getVersion() + 1);
+		assertThat(afterMove.getCurrentTurn()).isEqualTo(Color.BLACK);
+		assertThat(afterMove.getLegalMoveTiles("E2")).isEmpty();
+		// The old snapshot is unchanged
+		assertThat(start.getLegalMoveTiles("E2")).containsExactlyInAnyOrder("E3", "E4");
+	}
+
+	@Test
+	public void testSimulatedPromotionSurvivesHibernation()
+	{
+		ChessGame game = ChessGame.fromFEN("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1");
+		game.simulateMove(Square.of(1, 6), Square.of(1, 7), false);
+		String fen = game.toFEN();
+		assertThat(fen).startsWith("1Q2k3/8/8/8/8/8/8/4K3 b");
+
+		ChessGame rehydrated = ChessGame.rehydrate(game.hibernate());
+		assertThat(rehydrated.toFEN()).isEqualTo(fen);
+		rehydrated.undoMove();
+		assertThat(rehydrated.toFEN()).isEqualTo("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1");
+	}
+
+	@Test
+	public void testIdleGamesAreHibernatedAndMovedToDisk() throws Exception
+	{
+		GameRegistry registry = newRegistry(10);
+		registry.createIfAbsent("game");
+		// Scholar's mate, so that the rehydrated game has to detect the checkmate again
+		String[][] moves = { {"E2", "E4"}, {"E7", "E5"}, {"F1", "C4"}, {"B8", "C6"}, {"D1", "H5"}, {"G8", "F6"}, {"H5", "F7"} };
+		for (String[] move : moves)
+			registry.withGame("game", game -> game.performMove(move[0], move[1]));
+		GameSnapshot beforeHibernation = registry.getSnapshot("game");
+
+		clock.advance(IDLE_TTL);
+		registry.evictIdleGames();
+		assertThat(registry.getActiveCount()).isZero();
+		assertThat(registry.size()).isEqualTo(1);
+
+		clock.advance(HIBERNATED_TTL);
+		registry.evictIdleGames();
+		assertThat(registry.size()).isZero();
+		assertThat(registry.contains("game")).isTrue();
+		try (var files = Files.list(storageDirectory))
+		{
+			assertThat(files).hasSize(1);
+		}
+
+		// The game is rehydrated by the next request, unchanged
+		GameSnapshot rehydrated = registry.getSnapshot("game");
+		assertThat(registry.getActiveCount()).isEqualTo(1);
+		assertThat(rehydrated.getFen()).isEqualTo(beforeHibernation.getFen());
+		assertThat(rehydrated.getVersion()).isEqualTo(beforeHibernation.getVersion());
+		assertThat(rehydrated.getCheckMated()).isEqualTo(Color.BLACK);
+		assertThat(registry.createIfAbsent("game")).isFalse();
+		try (var files = Files.list(storageDirectory))
+		{
+			assertThat(files).isEmpty();
+		}
+
+		// Moves can still be taken back after replaying the game
+		registry.withGame("game", game ->
+		{
+			game.undoMove();
+			return game.performMove("H5", "F7");
+		});
+		assertThat(registry.getSnapshot("game").getFen()).isEqualTo(beforeHibernation.getFen());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedGamesAreHibernated()
+	{
+		GameRegistry registry = newRegistry(10);
+		for (int i = 0; i < 10; i++)
+		{
+			registry.createIfAbsent("game" + i);
+			clock.advance(Duration.ofSeconds(1));
+		}
+		registry.withGame("game0", game -> game.performMove("E2", "E4"));
+		assertThat(registry.getActiveCount()).isEqualTo(10);
+
+		// Exceeding the maximum hibernates the least recently used games, but never the game that was used last
+		registry.createIfAbsent("game10");
+		assertThat(registry.getActiveCount()).isLessThanOrEqualTo(10);
+		assertThat(registry.size()).isEqualTo(11);
+		assertThat(registry.getSnapshot("game0").getCurrentTurn()).isEqualTo(Color.BLACK);
+		assertThat(registry.getSnapshot("game1").getCurrentTurn()).isEqualTo(Color.WHITE);
+		assertThat(registry.getActiveCount()).isLessThanOrEqualTo(10);
+	}
+
+	@Test
+	public void testConcurrentRequestsOnOneGame() throws Exception
+	{
+		GameRegistry registry = newRegistry(10);
+		registry.createIfAbsent("game");
+		int rounds = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try
+		{
+			List<Future<?>> futures = new ArrayList<>();
+			// Several threads move the knights back and forth, each move is only legal if it is applied in turn
+			for (int thread = 0; thread < 4; thread++)
+			{
+				futures.add(executor.submit(() ->
+				{
+					int played = 0;
+					while (played < rounds)
+					{
+						boolean legal = registry.withGame("game", game ->
+						{
+							String[] move = KNIGHT_DANCE[game.getPosition().getUndoCount() % KNIGHT_DANCE.length];
+							return game.performMove(move[0], move[1]).legal();
+						});
+						assertThat(legal).isTrue();
+						played++;
+					}
+				}));
+			}
+			// Readers run at the same time and must always see a consistent game
+			for (int thread = 0; thread < 4; thread++)
+			{
+				futures.add(executor.submit(() ->
+				{
+					for (int i = 0; i < rounds; i++)
+					{
+						List<String> moves = registry.withGame("game", game ->
+								game.getLegalMoveTiles(ChessPositionConverter.tileToPoint(game.getCurrentTurn() == Color.WHITE ? "B1" : "B8")));
+						assertThat(moves).hasSize(2);
+						GameSnapshot snapshot = registry.getSnapshot("game");
+						assertThat(snapshot.getLegalMoveTiles(snapshot.getCurrentTurn() == Color.WHITE ? "B1" : "B8")).hasSize(2);
+					}
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} finally
+		{
+			executor.shutdown();
+		}
+		int played = registry.withGame("game", game -> game.getPosition().getUndoCount());
+		assertThat(played).isEqualTo(4 * rounds);
+	}
+
+	private static final class ManualClock extends Clock
+	{
+		private Instant now = Instant.EPOCH;
+
+		private void advance(Duration duration)
+		{
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone()
+		{
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone)
+		{
+			return this;
+		}
+
+		@Override
+		public Instant instant()
+		{
+			return now;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.service.GameRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext
+public class GameUpdatesTest
+{
+	/** Every run keeps its games and journal in its own directory, instead of recovering those of earlier runs */
+	@TempDir
+	static Path storageDirectory;
+
+	@DynamicPropertySource
+	static void storageProperties(DynamicPropertyRegistry registry)
+	{
+		registry.add("chessplayer.games.storage-dir", storageDirectory::toString);
+		registry.add("chessplayer.journal.directory", () -> storageDirectory.resolve("journal").toString());
+	}
+
+	@LocalServerPort
+	private int port;
+	@Autowired
+	private GameRegistry games;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void testMovesArePushedToAllSubscribers() throws Exception
+	{
+		String id = UUID.randomUUID().toString();
+		games.createIfAbsent(id);
+		BlockingQueue<String> player = new LinkedBlockingQueue<>();
+		BlockingQueue<String> spectator = new LinkedBlockingQueue<>();
+		WebSocketSession playerSession = connect(id, player);
+		WebSocketSession spectatorSession = connect(id, spectator);
+		try
+		{
+			// Every subscriber starts with the current state
+			assertThat(next(player).get("ply").asInt()).isZero();
+			assertThat(next(spectator).get("ply").asInt()).isZero();
+
+			games.withGame(id, game -> game.performMove("E2", "E4"));
+			JsonNode update = next(spectator);
+			assertThat(update.get("type").asText()).isEqualTo("move");
+			assertThat(update.get("lastMove").asText()).isEqualTo("e2e4");
+			assertThat(update.get("currentTurn").asText()).isEqualTo("BLACK");
+			assertThat(update.get("legalMoves").has("E7")).isTrue();
+			assertThat(next(player).get("fen").asText()).isEqualTo(update.get("fen").asText());
+		} finally
+		{
+			playerSession.close();
+			spectatorSession.close();
+		}
+	}
+
+	private WebSocketSession connect(String id, BlockingQueue<String> messages) throws Exception
+	{
+		return new StandardWebSocketClient().doHandshake(new TextWebSocketHandler()
+		{
+			@Override
+			protected void handleTextMessage(WebSocketSession session, TextMessage message)
+			{
+				messages.add(message.getPayload());
+			}
+		}, "ws://localhost:{port}/game/{id}/live", port, id).get(5, TimeUnit.SECONDS);
+	}
+
+	private JsonNode next(BlockingQueue<String> messages) throws Exception
+	{
+		String message = messages.poll(5, TimeUnit.SECONDS);
+		assertThat(message).isNotNull();
+		return objectMapper.readTree(message);
+	}
+}
@@ -0,0 +1,47 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.engine.Square;
+import com.alescher.chessplayerserver.helper.ChessPositionConverter;
+import com.alescher.chessplayerserver.model.ChessGame;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LegalMoveCacheTest
+{
+	private ChessGame game;
+
+	@Test
+	public void testCacheFollowsTurns()
+	{
+		game = new ChessGame();
+		assertThat(game.getLegalMoveTiles(ChessPositionConverter.tileToPoint("E2"))).containsExactlyInAnyOrder("E3", "E4");
+		// Black pieces have no moves while it is white's turn
+		assertThat(game.getLegalMoveTiles(ChessPositionConverter.tileToPoint("E7"))).isEmpty();
+		assertThat(game.isLegalMove("E7", "E5")).isFalse();
+
+		assertThat(game.performMove("E2", "E4").legal()).isTrue();
+		assertThat(game.getLegalMoveTiles(ChessPositionConverter.tileToPoint("E2"))).isEmpty();
+		assertThat(game.getLegalMoveTiles(ChessPositionConverter.tileToPoint("E7"))).containsExactlyInAnyOrder("E6", "E5");
+		// The bishop on F1 was freed by the pawn move, but it is black's turn
+		assertThat(game.isLegalMove("F1", "C4")).isFalse();
+
+		game.undoMove();
+		assertThat(game.getLegalMoveTiles(ChessPositionConverter.tileToPoint("E2"))).containsExactlyInAnyOrder("E3", "E4");
+		assertThat(game.getLegalMoveTiles(ChessPositionConverter.tileToPoint("E7"))).isEmpty();
+	}
+
+	@Test
+	public void testLegalMoveMasks()
+	{
+		game = new ChessGame();
+		// 8 pawns and 2 knights can move, E3 is bit 20 and E4 is bit 28
+		assertThat(game.getSnapshot().getLegalMoveMasks()).hasSize(10)
+				.containsEntry("E2", "10100000")
+				.containsEntry("G1", Long.toHexString(1L << Square.of(5, 2) | 1L << Square.of(7, 2)))
+				.doesNotContainKey("E7");
+
+		game.performMove("E2", "E4");
+		assertThat(game.getSnapshot().getLegalMoveMasks()).hasSize(10).containsKey("E7").doesNotContainKey("E2");
+	}
+}
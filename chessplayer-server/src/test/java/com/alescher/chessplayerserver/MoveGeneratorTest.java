@@ -0,0 +1,96 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.engine.Attacks;
+import com.alescher.chessplayerserver.engine.Bitboards;
+import com.alescher.chessplayerserver.engine.Move;
+import com.alescher.chessplayerserver.engine.MoveGenerator;
+import com.alescher.chessplayerserver.engine.MoveList;
+import com.alescher.chessplayerserver.engine.Piece;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.engine.Square;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MoveGeneratorTest
+{
+	@Test
+	public void testPinnedPieceMovesAlongPin()
+	{
+		// The white rook on e2 is pinned by the black rook on e8
+		Position position = Position.fromFEN("4r1k1/8/8/8/8/8/4R3/4K3 w - - 0 1");
+		MoveGenerator generator = new MoveGenerator(position);
+		assertThat(generator.getPinned()).isEqualTo(Bitboards.bit(Square.of(4, 1)));
+		assertThat(generator.getLegalMoves(Square.of(4, 1)))
+				.isEqualTo((Attacks.between(Square.E1, Square.E8) & ~Bitboards.bit(Square.of(4, 1))) | Bitboards.bit(Square.E8));
+	}
+
+	@Test
+	public void testOnlyEvasionsWhileInCheck()
+	{
+		// Fool's mate, nothing can block the black queen on h4
+		Position position = Position.fromFEN("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+		MoveGenerator generator = new MoveGenerator(position);
+		assertThat(Bitboards.count(generator.getCheckers())).isEqualTo(1);
+		assertThat(generator.hasLegalMoves()).isFalse();
+
+		// The knight on h1 can only block on f2 or g3
+		position = Position.fromFEN("4k3/8/8/8/7q/8/8/4K2N w - - 0 1");
+		generator = new MoveGenerator(position);
+		assertThat(generator.getLegalMoves(Square.H1)).isEqualTo(Bitboards.bit(Square.of(5, 1)) | Bitboards.bit(Square.of(6, 2)));
+		assertThat(generator.isLegal(Square.E1, Square.of(5, 1))).isFalse();
+		assertThat(generator.isLegal(Square.E1, Square.D1)).isTrue();
+	}
+
+	@Test
+	public void testEnPassant()
+	{
+		Position position = Position.fromFEN("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3");
+		MoveGenerator generator = new MoveGenerator(position);
+		int e5 = Square.of(4, 4);
+		int d6 = Square.of(3, 5);
+		assertThat(generator.isLegal(e5, d6)).isTrue();
+
+		position.makeMove(e5, d6, Piece.QUEEN);
+		assertThat(position.pieceAt(Square.of(3, 4))).isEqualTo(Piece.NONE);
+
+		// Capturing en passant would expose the king on a5 to the rook on h5
+		position = Position.fromFEN("8/8/8/KPp4r/8/8/8/4k3 w - c6 0 2");
+		generator = new MoveGenerator(position);
+		assertThat(generator.isLegal(Square.of(1, 4), Square.of(2, 5))).isFalse();
+	}
+
+	@Test
+	public void testCastlingThroughAttackedSquare()
+	{
+		// The black bishop on c4 attacks f1, so white may only castle queenside
+		Position position = Position.fromFEN("4k3/8/8/8/2b5/8/8/R3K2R w KQ - 0 1");
+		MoveGenerator generator = new MoveGenerator(position);
+		assertThat(generator.isLegal(Square.E1, Square.G1)).isFalse();
+		assertThat(generator.isLegal(Square.E1, Square.C1)).isTrue();
+	}
+
+	@Test
+	public void testGenerateFlags()
+	{
+		MoveList moves = new MoveList();
+		new MoveGenerator(Position.startPosition()).generate(moves);
+		assertThat(moves.size()).isEqualTo(20);
+		int e2 = Square.of(4, 1);
+		int e4 = Square.of(4, 3);
+		int doublePush = moves.find(e2, e4, Piece.NONE);
+		assertThat(doublePush).isEqualTo(Move.of(e2, e4, Piece.NONE, Move.DOUBLE_PUSH));
+		assertThat(Move.toUCI(doublePush)).isEqualTo("e2e4");
+
+		// A capture that promotes is one move per promotion piece
+		Position position = Position.fromFEN("1r2k3/P7/8/8/8/8/8/R3K2R w KQ - 0 1");
+		new MoveGenerator(position).generate(moves);
+		int a7 = Square.of(0, 6);
+		int knightPromotion = moves.find(a7, Square.B8, Piece.KNIGHT);
+		assertThat(Move.promotion(knightPromotion)).isEqualTo(Piece.KNIGHT);
+		assertThat(Move.isCapture(knightPromotion)).isTrue();
+		assertThat(Move.toUCI(knightPromotion)).isEqualTo("a7b8n");
+		assertThat(Move.isCastle(moves.find(Square.E1, Square.C1, Piece.NONE))).isTrue();
+		assertThat(moves.find(Square.E1, Square.E8, Piece.NONE)).isEqualTo(Move.NONE);
+	}
+}
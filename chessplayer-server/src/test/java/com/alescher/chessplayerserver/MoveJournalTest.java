@@ -0,0 +1,246 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.model.Color;
+import com.alescher.chessplayerserver.service.GameRegistry;
+import com.alescher.chessplayerserver.service.JournalUnavailableException;
+import com.alescher.chessplayerserver.service.MoveJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MoveJournalTest
+{
+	private static final String[][] SCHOLARS_MATE = { {"E2", "E4"}, {"E7", "E5"}, {"F1", "C4"}, {"B8", "C6"}, {"D1", "H5"}, {"G8", "F6"}, {"H5", "F7"} };
+
+	@TempDir
+	Path storageDirectory;
+	private final List<MoveJournal> journals = new ArrayList<>();
+
+	@AfterEach
+	public void closeJournals() throws IOException
+	{
+		for (MoveJournal journal : journals)
+			journal.close();
+	}
+
+	/** Starts a registry on the same directory, like the server does after a restart */
+	private GameRegistry restart()
+	{
+		return new GameRegistry(10, Duration.ofMinutes(10), Duration.ofHours(1), storageDirectory, Clock.systemUTC(), newJournal());
+	}
+
+	private static void play(GameRegistry registry, String id, String[][] moves)
+	{
+		for (String[] move : moves)
+			registry.withGame(id, game -> game.performMove(move[0], move[1]));
+	}
+
+	@Test
+	public void testGamesSurviveRestart()
+	{
+		GameRegistry registry = restart();
+		registry.createIfAbsent("mate");
+		registry.createIfAbsent("undo");
+		registry.createIfAbsent("new");
+		play(registry, "mate", SCHOLARS_MATE);
+		play(registry, "undo", new String[][] { {"D2", "D4"}, {"D7", "D5"} });
+		registry.withGame("undo", game ->
+		{
+			game.undoMove();
+			return null;
+		});
+		String mateFen = registry.getSnapshot("mate").getFen();
+		String undoFen = registry.getSnapshot("undo").getFen();
+
+		GameRegistry restarted = restart();
+		assertThat(restarted.size()).isEqualTo(3);
+		assertThat(restarted.getActiveCount()).isZero();
+		assertThat(restarted.getSnapshot("mate").getFen()).isEqualTo(mateFen);
+		assertThat(restarted.getSnapshot("mate").getCheckMated()).isEqualTo(Color.BLACK);
+		assertThat(restarted.getSnapshot("undo").getFen()).isEqualTo(undoFen);
+		assertThat(restarted.getSnapshot("new").getCurrentTurn()).isEqualTo(Color.WHITE);
+		// The history is replayed as well, so moves can still be taken back
+		int moves = restarted.withGame("mate", game -> game.getPosition().getUndoCount());
+		assertThat(moves).isEqualTo(SCHOLARS_MATE.length);
+	}
+
+	@Test
+	public void testNewGameIsInJournalOnceCreated()
+	{
+		GameRegistry registry = restart();
+		registry.createIfAbsent("game");
+
+		// No move was played yet, which would have waited for the journal as well
+		GameRegistry restarted = restart();
+		assertThat(restarted.size()).isEqualTo(1);
+		assertThat(restarted.getSnapshot("game").getCurrentTurn()).isEqualTo(Color.WHITE);
+	}
+
+	@Test
+	public void testTornRecordIsSkipped() throws IOException
+	{
+		GameRegistry registry = restart();
+		registry.createIfAbsent("game");
+		play(registry, "game", new String[][] { {"E2", "E4"} });
+		String fen = registry.getSnapshot("game").getFen();
+
+		// A crash in the middle of writing a record leaves part of it at the end of the segment
+		Path segment = segments().get(0);
+		Files.write(segment, new byte[] { 0, 0, 0, 42, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+		assertThat(restart().getSnapshot("game").getFen()).isEqualTo(fen);
+	}
+
+	@Test
+	public void testCompaction() throws IOException
+	{
+		GameRegistry registry = restart();
+		registry.createIfAbsent("game");
+		play(registry, "game", SCHOLARS_MATE);
+
+		// After a restart, the old segment is compacted into a new one with the full state of every game
+		GameRegistry restarted = restart();
+		restarted.createIfAbsent("other");
+		play(restarted, "other", new String[][] { {"E2", "E4"} });
+		restarted.compactJournal();
+		assertThat(segments()).hasSize(1);
+		play(restarted, "other", new String[][] { {"E7", "E5"} });
+		String fen = restarted.getSnapshot("other").getFen();
+
+		GameRegistry recovered = restart();
+		assertThat(recovered.getSnapshot("game").getCheckMated()).isEqualTo(Color.BLACK);
+		assertThat(recovered.getSnapshot("other").getFen()).isEqualTo(fen);
+	}
+
+	@Test
+	public void testGamesOnDiskAreNotRecoveredTwice()
+	{
+		GameRegistry registry = new GameRegistry(10, Duration.ZERO, Duration.ZERO, storageDirectory, Clock.systemUTC(), newJournal());
+		registry.createIfAbsent("game");
+		play(registry, "game", new String[][] { {"E2", "E4"} });
+		registry.evictIdleGames();
+		assertThat(registry.size()).isZero();
+
+		// The game is recovered from its file, then played on and recovered from the journal
+		GameRegistry restarted = restart();
+		assertThat(restarted.size()).isZero();
+		play(restarted, "game", new String[][] { {"E7", "E5"} });
+		String fen = restarted.getSnapshot("game").getFen();
+		GameRegistry recovered = restart();
+		assertThat(recovered.size()).isEqualTo(1);
+		assertThat(recovered.getSnapshot("game").getFen()).isEqualTo(fen);
+	}
+
+	@Test
+	public void testFailedWritesAreRetried()
+	{
+		AtomicInteger failingWrites = new AtomicInteger();
+		GameRegistry registry = new GameRegistry(10, Duration.ofMinutes(10), Duration.ofHours(1), storageDirectory, Clock.systemUTC(),
+				failingJournal(failingWrites, 10_000));
+		registry.createIfAbsent("game");
+		play(registry, "game", new String[][] { {"E2", "E4"} });
+
+		// The move is only acknowledged once the journal could be written again, and the moves after it follow without a hole
+		failingWrites.set(3);
+		play(registry, "game", new String[][] { {"E7", "E5"}, {"G1", "F3"} });
+		assertThat(failingWrites.get()).isNegative();
+		String fen = registry.getSnapshot("game").getFen();
+
+		GameRegistry restarted = restart();
+		assertThat(restarted.getSnapshot("game").getFen()).isEqualTo(fen);
+		int moves = restarted.withGame("game", game -> game.getPosition().getUndoCount());
+		assertThat(moves).isEqualTo(3);
+	}
+
+	@Test
+	public void testWaitingForFailedWritesTimesOut()
+	{
+		AtomicInteger failingWrites = new AtomicInteger();
+		GameRegistry registry = new GameRegistry(10, Duration.ofMinutes(10), Duration.ofHours(1), storageDirectory, Clock.systemUTC(),
+				failingJournal(failingWrites, 200));
+		registry.createIfAbsent("game");
+
+		// The disk stays full: the move is applied, but not acknowledged
+		failingWrites.set(Integer.MAX_VALUE);
+		assertThatThrownBy(() -> play(registry, "game", new String[][] { {"E2", "E4"} })).isInstanceOf(JournalUnavailableException.class);
+		assertThat(registry.getSnapshot("game").getCurrentTurn()).isEqualTo(Color.BLACK);
+
+		// Once the disk has space again, the queued move is written before the next one
+		failingWrites.set(0);
+		play(registry, "game", new String[][] { {"E7", "E5"} });
+		String fen = registry.getSnapshot("game").getFen();
+		assertThat(restart().getSnapshot("game").getFen()).isEqualTo(fen);
+	}
+
+	@Test
+	public void testWriterFailure()
+	{
+		MoveJournal journal = new MoveJournal(storageDirectory.resolve("journal"), 1 << 20, true, 10_000)
+		{
+			@Override
+			protected long writeSegment(FileChannel segment, ByteBuffer[] buffers)
+			{
+				throw new IllegalStateException("Bug in the writer");
+			}
+		};
+		journals.add(journal);
+		GameRegistry registry = new GameRegistry(10, Duration.ofMinutes(10), Duration.ofHours(1), storageDirectory, Clock.systemUTC(), journal);
+
+		// The waiting request fails right away instead of waiting for a writer that is gone
+		long start = System.nanoTime();
+		assertThatThrownBy(() -> registry.createIfAbsent("game")).isInstanceOf(JournalUnavailableException.class);
+		assertThatThrownBy(() -> play(registry, "game", new String[][] { {"E2", "E4"} })).isInstanceOf(JournalUnavailableException.class);
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+	}
+
+	private MoveJournal newJournal()
+	{
+		MoveJournal journal = new MoveJournal(storageDirectory.resolve("journal"), 1 << 20, true, 10_000);
+		journals.add(journal);
+		return journal;
+	}
+
+	/**
+	 * A journal on a disk that fails the given number of writes, after writing part of each batch
+	 */
+	private MoveJournal failingJournal(AtomicInteger failingWrites, long flushTimeoutMillis)
+	{
+		MoveJournal journal = new MoveJournal(storageDirectory.resolve("journal"), 1 << 20, true, flushTimeoutMillis)
+		{
+			@Override
+			protected long writeSegment(FileChannel segment, ByteBuffer[] buffers) throws IOException
+			{
+				if (failingWrites.getAndDecrement() <= 0)
+					return super.writeSegment(segment, buffers);
+				segment.write(buffers[0].slice(0, 3));
+				throw new IOException("No space left on device");
+			}
+		};
+		journals.add(journal);
+		return journal;
+	}
+
+	private List<Path> segments() throws IOException
+	{
+		try (Stream<Path> files = Files.list(storageDirectory.resolve("journal")))
+		{
+			return files.sorted().toList();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.engine.Move;
+import com.alescher.chessplayerserver.engine.MoveGenerator;
+import com.alescher.chessplayerserver.engine.MoveList;
+import com.alescher.chessplayerserver.engine.MovePicker;
+import com.alescher.chessplayerserver.engine.Piece;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.engine.Square;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MovePickerTest
+{
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	@Test
+	public void testPicksEveryMoveOnce()
+	{
+		String[] fens = {
+				Position.START_FEN,
+				KIWIPETE,
+				"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+				// In check
+				"rnbqkbnr/ppp2ppp/8/1B1pp3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 1 3"
+		};
+		for (String fen : fens)
+		{
+			Position position = Position.fromFEN(fen);
+			MoveGenerator generator = new MoveGenerator(position);
+			MoveList legalMoves = new MoveList();
+			generator.generate(legalMoves);
+			// A table move and killers from other positions, which are not legal here
+			int illegal = Move.of(Square.of(0, 3), Square.of(0, 4), Piece.NONE, 0);
+			MovePicker picker = new MovePicker(position, generator, new int[Piece.COUNT][64]);
+			picker.init(illegal, illegal, legalMoves.get(legalMoves.size() - 1));
+
+			List<Integer> picked = new ArrayList<>();
+			for (int move = picker.next(); move != Move.NONE; move = picker.next())
+			{
+				picked.add(move);
+				// Searching a move changes the generator, which the picker has to cope with
+				position.makeMove(move);
+				generator.update();
+				position.unmakeMove();
+			}
+			assertThat(picked).as(fen).doesNotHaveDuplicates().hasSize(legalMoves.size());
+			for (int i = 0; i < legalMoves.size(); i++)
+				assertThat(picked).as(fen).contains(legalMoves.get(i));
+		}
+	}
+
+	@Test
+	public void testOrder()
+	{
+		Position position = Position.fromFEN(KIWIPETE);
+		MoveGenerator generator = new MoveGenerator(position);
+		int[][] history = new int[Piece.COUNT][64];
+		int tableMove = generator.pack(Square.of(4, 1), Square.of(3, 2), Piece.NONE);
+		int killer = generator.pack(Square.of(0, 1), Square.of(0, 3), Piece.NONE);
+		int historyMove = generator.pack(Square.of(5, 2), Square.of(5, 4), Piece.NONE);
+		history[position.pieceAt(Square.of(5, 2))][Square.of(5, 4)] = 1000;
+
+		MovePicker picker = new MovePicker(position, generator, history);
+		picker.init(tableMove, killer, Move.NONE);
+		assertThat(picker.next()).isEqualTo(tableMove);
+		// The most valuable victim first: the bishop on a6, taken by the least valuable attacker, the bishop on e2
+		assertThat(Move.toUCI(picker.next())).isEqualTo("e2a6");
+		int move;
+		while (Move.isCapture(move = picker.next()))
+			assertThat(move).isNotEqualTo(tableMove);
+		assertThat(move).isEqualTo(killer);
+		assertThat(picker.next()).isEqualTo(historyMove);
+
+		// Quiescence only sees the captures that do not lose material
+		picker.initCaptures();
+		List<String> captures = new ArrayList<>();
+		for (move = picker.next(); move != Move.NONE; move = picker.next())
+			captures.add(Move.toUCI(move));
+		assertThat(captures).contains("e2a6", "d5e6", "g2h3").doesNotContain("f3f6", "e5f7");
+	}
+}
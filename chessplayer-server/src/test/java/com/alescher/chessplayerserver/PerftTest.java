@@ -0,0 +1,78 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.engine.Perft;
+import com.alescher.chessplayerserver.engine.Position;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reference positions and node counts from the Chess Programming Wiki
+ */
+public class PerftTest
+{
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	private static Stream<Arguments> referencePositions()
+	{
+		return Stream.of(
+				Arguments.of(Position.START_FEN, new long[] { 20, 400, 8902, 197281 }),
+				Arguments.of(KIWIPETE, new long[] { 48, 2039, 97862 }),
+				Arguments.of("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", new long[] { 14, 191, 2812, 43238, 674624 }),
+				Arguments.of("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", new long[] { 6, 264, 9467, 422333 }),
+				Arguments.of("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", new long[] { 44, 1486, 62379 }),
+				Arguments.of("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", new long[] { 46, 2079, 89890 })
+		);
+	}
+
+	@ParameterizedTest
+	@MethodSource("referencePositions")
+	public void testReferencePositions(String fen, long[] expectedNodes)
+	{
+		Perft perft = new Perft();
+		Position position = Position.fromFEN(fen);
+		for (int depth = 1; depth <= expectedNodes.length; depth++)
+		{
+			assertThat(perft.perft(position, depth)).as("%s at depth %d", fen, depth).isEqualTo(expectedNodes[depth - 1]);
+		}
+		assertThat(position.toFEN()).isEqualTo(fen);
+	}
+
+	@Test
+	public void testDivide()
+	{
+		Map<String, Long> divide = new Perft().divide(Position.startPosition(), 3);
+		assertThat(divide).hasSize(20);
+		assertThat(divide.get("e2e4")).isEqualTo(600);
+		assertThat(divide.get("g1f3")).isEqualTo(440);
+		assertThat(divide.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(8902);
+
+		// Promotions are listed once per piece
+		Map<String, Long> promotions = new Perft().divide(Position.fromFEN("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1"), 1);
+		assertThat(promotions).containsKeys("b7b8q", "b7b8r", "b7b8b", "b7b8n");
+	}
+
+	@Test
+	public void testParallelDivideWithHashTable()
+	{
+		Position position = Position.fromFEN(KIWIPETE);
+		Map<String, Long> sequential = new Perft().divide(position, 3);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			assertThat(new Perft(16).divide(position, 3, pool)).containsExactlyEntriesOf(sequential);
+			assertThat(new Perft(16).divide(position, 4, pool).values().stream().mapToLong(Long::longValue).sum())
+					.isEqualTo(4085603);
+		} finally
+		{
+			pool.shutdown();
+		}
+	}
+}
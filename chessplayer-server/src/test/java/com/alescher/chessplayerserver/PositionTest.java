@@ -0,0 +1,148 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.engine.Bitboards;
+import com.alescher.chessplayerserver.engine.MoveGenerator;
+import com.alescher.chessplayerserver.engine.MoveList;
+import com.alescher.chessplayerserver.engine.Piece;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.engine.Square;
+import com.alescher.chessplayerserver.engine.Zobrist;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PositionTest
+{
+	@Test
+	public void testFenRoundTrip()
+	{
+		String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+		assertThat(Position.fromFEN(fen).toFEN()).isEqualTo(fen);
+		String enPassantFen = "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3";
+		assertThat(Position.fromFEN(enPassantFen).toFEN()).isEqualTo(enPassantFen);
+	}
+
+	@Test
+	public void testPackRoundTrip()
+	{
+		String fen = "r3k2r/p1ppqpb1/bn2pnp1/3pN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R b Kq e3 12 300";
+		Position position = Position.fromFEN(fen);
+		byte[] packed = position.pack();
+		assertThat(packed).hasSize(Position.PACKED_SIZE);
+		Position unpacked = Position.unpack(packed);
+		assertThat(unpacked.toFEN()).isEqualTo(fen);
+		assertThat(unpacked.getHash()).isEqualTo(position.getHash());
+		assertAttackMapMatches(unpacked);
+	}
+
+	@Test
+	public void testOccupancyMatchesPieces()
+	{
+		Position position = Position.startPosition();
+		assertThat(Bitboards.count(position.occupied())).isEqualTo(32);
+		assertThat(position.occupancy(Piece.WHITE)).isEqualTo(Bitboards.RANK_1 | Bitboards.RANK_2);
+		assertThat(position.pieceAt(Square.E1)).isEqualTo(Piece.make(Piece.WHITE, Piece.KING));
+		assertThat(position.kingSquare(Piece.BLACK)).isEqualTo(Square.E8);
+
+		int captured = position.movePiece(Square.D1, Square.D8);
+		assertThat(captured).isEqualTo(Piece.make(Piece.BLACK, Piece.QUEEN));
+		assertThat(position.pieces(Piece.BLACK, Piece.QUEEN)).isZero();
+		assertThat(Bitboards.count(position.occupied())).isEqualTo(31);
+	}
+
+	@Test
+	public void testAttackersTo()
+	{
+		// Fool's mate, the queen on h4 is the only piece attacking the white king
+		Position position = Position.fromFEN("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+		assertThat(position.attackersTo(Square.E1, Piece.BLACK)).isEqualTo(Bitboards.bit(Square.fromTile("H4")));
+		assertThat(position.attackersTo(Square.E8, Piece.WHITE)).isZero();
+	}
+
+	@Test
+	public void testMalformedFen()
+	{
+		assertThatThrownBy(() -> Position.fromFEN("8/8/8/8/8/8/8/8 w - - 0")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Position.fromFEN("8/8/8/8/8/8/8/8 w - - 0 1")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testUnmakeRestoresPosition()
+	{
+		// Positions with castling, en passant, promotions and captures of castling rooks
+		String[] fens = {
+				"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+				"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+				"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"
+		};
+		MoveList moves = new MoveList();
+		for (String fen : fens)
+		{
+			Position position = Position.fromFEN(fen);
+			new MoveGenerator(position).generate(moves);
+			for (int i = 0; i < moves.size(); i++)
+			{
+				position.makeMove(moves.get(i));
+				assertThat(position.toFEN()).isNotEqualTo(fen);
+				assertThat(position.getHash()).isEqualTo(Zobrist.hash(position));
+				assertAttackMapMatches(position);
+				assertEvaluationMatches(position);
+				position.unmakeMove();
+				assertThat(position.getHash()).isEqualTo(Zobrist.hash(position));
+				assertAttackMapMatches(position);
+				assertEvaluationMatches(position);
+				assertThat(position.toFEN()).as("after unmaking %s", moves).isEqualTo(fen);
+				assertThat(position.occupied()).isEqualTo(Position.fromFEN(fen).occupied());
+			}
+		}
+		assertThatThrownBy(() -> Position.startPosition().unmakeMove()).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	public void testHashAndRepetition()
+	{
+		Position position = Position.startPosition();
+		long startHash = position.getHash();
+		int[][] knightMoves = { {Square.G1, Square.of(5, 2)}, {Square.G8, Square.of(5, 5)}, {Square.of(5, 2), Square.G1}, {Square.of(5, 5), Square.G8} };
+		for (int[] move : knightMoves)
+		{
+			assertThat(position.isRepetition()).isFalse();
+			position.makeMove(move[0], move[1], Piece.QUEEN);
+		}
+		// Same pieces on the same squares with the same side to move, only the clocks differ
+		assertThat(position.getHash()).isEqualTo(startHash);
+		assertThat(position.isRepetition()).isTrue();
+
+		// The en passant square and castling rights are part of the hash
+		assertThat(Position.fromFEN("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3").getHash())
+				.isNotEqualTo(Position.fromFEN("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq - 0 3").getHash())
+				.isNotEqualTo(Position.fromFEN("rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w Kkq d6 0 3").getHash());
+	}
+
+	/** Compares the incremental evaluation scores against those of the same position set up from scratch */
+	private static void assertEvaluationMatches(Position position)
+	{
+		Position fresh = Position.fromFEN(position.toFEN());
+		assertThat(position.getMiddlegameScore()).as(position.toFEN()).isEqualTo(fresh.getMiddlegameScore());
+		assertThat(position.getEndgameScore()).as(position.toFEN()).isEqualTo(fresh.getEndgameScore());
+		assertThat(position.getPhase()).as(position.toFEN()).isEqualTo(fresh.getPhase());
+	}
+
+	/** Compares the incremental attack map against attackers computed from scratch */
+	private static void assertAttackMapMatches(Position position)
+	{
+		for (int color = Piece.WHITE; color <= Piece.BLACK; color++)
+		{
+			long attacked = Bitboards.EMPTY;
+			for (int square = 0; square < 64; square++)
+			{
+				int attackers = Bitboards.count(position.attackersTo(square, color));
+				assertThat(position.getAttackMap().attackerCount(color, square)).as("%s square %d", position.toFEN(), square).isEqualTo(attackers);
+				if (attackers > 0)
+					attacked |= Bitboards.bit(square);
+			}
+			assertThat(position.getAttackMap().attacks(color)).isEqualTo(attacked);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.engine.Move;
+import com.alescher.chessplayerserver.engine.MoveGenerator;
+import com.alescher.chessplayerserver.engine.MoveList;
+import com.alescher.chessplayerserver.engine.Notation;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.model.ChessGame;
+import com.alescher.chessplayerserver.model.Color;
+import com.alescher.chessplayerserver.model.GameSnapshot;
+import com.alescher.chessplayerserver.model.ReplayResult;
+import com.alescher.chessplayerserver.service.GameRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReplayTest
+{
+	@TempDir
+	Path storageDirectory;
+
+	@Test
+	public void testParseNotation()
+	{
+		// White can take on d5 with the pawn and both knights, and promote on b8
+		Position position = Position.fromFEN("r3k3/1P6/8/3p4/1N2PN2/8/8/R3K2R w KQq - 0 1");
+		MoveList legalMoves = new MoveList();
+		new MoveGenerator(position).generate(legalMoves);
+
+		assertThat(Move.toUCI(Notation.parse("e4e5", position, legalMoves))).isEqualTo("e4e5");
+		assertThat(Move.toUCI(Notation.parse("exd5", position, legalMoves))).isEqualTo("e4d5");
+		assertThat(Move.toUCI(Notation.parse("Nbxd5", position, legalMoves))).isEqualTo("b4d5");
+		assertThat(Move.toUCI(Notation.parse("Nfd5+", position, legalMoves))).isEqualTo("f4d5");
+		assertThat(Move.toUCI(Notation.parse("bxa8=N", position, legalMoves))).isEqualTo("b7a8n");
+		assertThat(Move.toUCI(Notation.parse("b8Q", position, legalMoves))).isEqualTo("b7b8q");
+		assertThat(Move.toUCI(Notation.parse("b7b8r", position, legalMoves))).isEqualTo("b7b8r");
+		assertThat(Move.toUCI(Notation.parse("O-O", position, legalMoves))).isEqualTo("e1g1");
+		assertThat(Move.toUCI(Notation.parse("0-0-0", position, legalMoves))).isEqualTo("e1c1");
+		// Ambiguous, malformed and illegal moves
+		assertThat(Notation.parse("Nxd5", position, legalMoves)).isEqualTo(Move.NONE);
+		assertThat(Notation.parse("Nz5", position, legalMoves)).isEqualTo(Move.NONE);
+		assertThat(Notation.parse("e4e6", position, legalMoves)).isEqualTo(Move.NONE);
+		assertThat(Notation.parse("", position, legalMoves)).isEqualTo(Move.NONE);
+	}
+
+	@Test
+	public void testReplay()
+	{
+		List<String> scholarsMate = List.of("e4", "e7e5", "Bc4", "Nc6", "Qh5", "Nf6", "Qxf7#");
+		ReplayResult result = ChessGame.replay(Position.START_FEN, scholarsMate, 1);
+		assertThat(result.isComplete()).isTrue();
+		assertThat(result.appliedMoves()).isEqualTo(scholarsMate.size());
+		assertThat(result.game().getCheckMated()).isEqualTo(Color.BLACK);
+		assertThat(result.game().getPosition().getUndoCount()).isEqualTo(scholarsMate.size());
+
+		// Replaying stops at the first illegal move
+		result = ChessGame.replay(Position.START_FEN, List.of("d4", "d5", "Kd2", "Nf6", "O-O", "e6"), 1);
+		assertThat(result.isComplete()).isFalse();
+		assertThat(result.illegalMoveIndex()).isEqualTo(4);
+		assertThat(result.appliedMoves()).isEqualTo(4);
+		assertThat(result.game().getCurrentTurn()).isEqualTo(Color.WHITE);
+	}
+
+	@Test
+	public void testStartPositionMustFitTheBoard()
+	{
+		// Castling rights without the rook on its start square
+		assertThatThrownBy(() -> ChessGame.replay("4k3/8/8/8/8/8/8/4K3 w K - 0 1", List.of("O-O"), 1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Position.fromFEN("4k2r/8/8/8/8/8/8/R3K3 w Qq - 0 1")).isInstanceOf(IllegalArgumentException.class);
+		// An en passant square without a pawn that could be captured
+		assertThatThrownBy(() -> ChessGame.replay("4k3/8/8/8/3p4/8/8/4K3 b - e3 0 1", List.of("dxe3"), 1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Position.fromFEN("4k3/8/8/8/3pP3/8/8/4K3 w - e3 0 1")).isInstanceOf(IllegalArgumentException.class);
+
+		// Positions that fit are accepted
+		assertThat(Position.fromFEN("4k2r/8/8/8/8/8/8/R3K3 w Qk - 0 1").castlingFEN()).isEqualTo("Qk");
+		ReplayResult result = ChessGame.replay("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1", List.of("dxe3"), 1);
+		assertThat(result.isComplete()).isTrue();
+		assertThat(result.game().getPosition().boardFEN()).isEqualTo("4k3/8/8/8/8/4p3/8/4K3");
+	}
+
+	@Test
+	public void testReplaceGame()
+	{
+		GameRegistry registry = new GameRegistry(10, Duration.ofMinutes(10), Duration.ofHours(1), storageDirectory, Clock.systemUTC(), null);
+		registry.createIfAbsent("game");
+		registry.withGame("game", game -> game.performMove("E2", "E4"));
+		long version = registry.getSnapshot("game").getVersion();
+
+		GameSnapshot snapshot = registry.replaceGame("game", next -> ChessGame.replay(Position.START_FEN, List.of("d4", "d5"), next).game());
+		assertThat(snapshot.getVersion()).isGreaterThan(version);
+		assertThat(snapshot.getPly()).isEqualTo(2);
+		assertThat(registry.getSnapshot("game")).isSameAs(snapshot);
+		// The imported game is played on like any other game
+		registry.withGame("game", game -> game.performMove("C1", "F4"));
+		assertThat(registry.getSnapshot("game").getFen()).startsWith("rnbqkbnr/ppp1pppp/8/3p4/3P1B2/8/PPP1PPPP/RN1QKBNR b");
+	}
+}
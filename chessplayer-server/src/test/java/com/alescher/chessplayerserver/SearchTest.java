@@ -0,0 +1,102 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.engine.Move;
+import com.alescher.chessplayerserver.engine.ParallelSearch;
+import com.alescher.chessplayerserver.engine.Position;
+import com.alescher.chessplayerserver.engine.Search;
+import com.alescher.chessplayerserver.engine.SearchResult;
+import com.alescher.chessplayerserver.engine.TranspositionTable;
+import com.alescher.chessplayerserver.model.ChessGame;
+import com.alescher.chessplayerserver.model.Color;
+import com.alescher.chessplayerserver.model.MoveResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchTest
+{
+	@Test
+	public void testFindsMateInOne()
+	{
+		Position position = Position.fromFEN("r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4");
+		SearchResult result = new Search(position).search(1000, 4);
+		assertThat(Move.toUCI(result.bestMove())).isEqualTo("h5f7");
+		assertThat(Search.isMateScore(result.score())).isTrue();
+		assertThat(result.score()).isPositive();
+		// The position the search was started from is not touched
+		assertThat(position.toFEN()).isEqualTo("r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4");
+	}
+
+	@Test
+	public void testFindsMateInTwo()
+	{
+		// The rooks cut off the king, e.g. 1. Rb7 Kg8 2. Ra8#
+		Position position = Position.fromFEN("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1");
+		SearchResult result = new Search(position).search(5000, 4);
+		assertThat(result.score()).isEqualTo(Search.MATE - 3);
+	}
+
+	@Test
+	public void testWinsHangingQueen()
+	{
+		Position position = Position.fromFEN("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+		SearchResult result = new Search(position).search(1000, 3);
+		assertThat(Move.toUCI(result.bestMove())).isEqualTo("d2d5");
+		assertThat(result.score()).isGreaterThan(300);
+	}
+
+	@Test
+	public void testNoMoveWhenMated()
+	{
+		Position position = Position.fromFEN("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+		SearchResult result = new Search(position).search(100, 4);
+		assertThat(result.bestMove()).isEqualTo(Move.NONE);
+		assertThat(result.score()).isEqualTo(-Search.MATE);
+	}
+
+	@Test
+	public void testRespectsTimeBudget()
+	{
+		SearchResult result = new Search(Position.startPosition()).search(100, Search.MAX_DEPTH);
+		assertThat(result.bestMove()).isNotEqualTo(Move.NONE);
+		assertThat(result.depth()).isGreaterThanOrEqualTo(1);
+		assertThat(result.timeMillis()).isLessThan(1000);
+	}
+
+	@Test
+	public void testEngineMoveIsPlayedInGame()
+	{
+		ChessGame game = new ChessGame();
+		for (String[] move : new String[][] { {"E2", "E4"}, {"E7", "E5"}, {"F1", "C4"}, {"B8", "C6"}, {"D1", "H5"}, {"G8", "F6"} })
+			game.performMove(move[0], move[1]);
+		SearchResult result = new Search(game.getPosition()).search(500, 4);
+		MoveResult played = game.performMove(result.bestMove());
+		assertThat(played.legal()).isTrue();
+		assertThat(game.getCheckMated()).isEqualTo(Color.BLACK);
+	}
+
+	@Test
+	public void testParallelSearch()
+	{
+		ExecutorService helpers = Executors.newFixedThreadPool(3);
+		try
+		{
+			ParallelSearch search = new ParallelSearch(new TranspositionTable(16), helpers);
+			Position position = Position.fromFEN("r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4");
+			SearchResult result = search.search(position, 1000, 4, 4);
+			assertThat(Move.toUCI(result.bestMove())).isEqualTo("h5f7");
+
+			// The search ends once the main search reached the maximum depth, the helpers are stopped
+			SearchResult parallel = search.search(Position.startPosition(), 10_000, 5, 4);
+			assertThat(parallel.depth()).isEqualTo(5);
+			assertThat(parallel.bestMove()).isNotEqualTo(Move.NONE);
+			assertThat(parallel.timeMillis()).isLessThan(10_000);
+		} finally
+		{
+			helpers.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.alescher.chessplayerserver;
+
+import com.alescher.chessplayerserver.engine.Move;
+import com.alescher.chessplayerserver.engine.Search;
+import com.alescher.chessplayerserver.engine.Square;
+import com.alescher.chessplayerserver.engine.TranspositionTable;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TranspositionTableTest
+{
+	private static final long HASH = 0x9D39247E33776D41L;
+
+	@Test
+	public void testStoreAndProbe()
+	{
+		TranspositionTable table = new TranspositionTable(1);
+		assertThat(table.probe(HASH)).isZero();
+
+		int move = Move.of(Square.of(4, 1), Square.of(4, 3), -1, Move.DOUBLE_PUSH);
+		table.store(HASH, move, -123, 7, TranspositionTable.LOWER);
+		long entry = table.probe(HASH);
+		assertThat(TranspositionTable.move(entry)).isEqualTo(move);
+		assertThat(TranspositionTable.score(entry)).isEqualTo(-123);
+		assertThat(TranspositionTable.depth(entry)).isEqualTo(7);
+		assertThat(TranspositionTable.bound(entry)).isEqualTo(TranspositionTable.LOWER);
+		// Another position in the same slot does not verify
+		assertThat(table.probe(HASH ^ (1L << 40))).isZero();
+
+		// A shallower bound does not replace a deeper result, but keeps the move if it has none
+		table.store(HASH, Move.NONE, 50, 3, TranspositionTable.UPPER);
+		assertThat(TranspositionTable.depth(table.probe(HASH))).isEqualTo(7);
+		table.store(HASH, Move.NONE, 50, 3, TranspositionTable.EXACT);
+		assertThat(TranspositionTable.move(table.probe(HASH))).isEqualTo(move);
+		assertThat(TranspositionTable.score(table.probe(HASH))).isEqualTo(50);
+
+		table.clear();
+		assertThat(table.probe(HASH)).isZero();
+	}
+
+	@Test
+	public void testReplacement()
+	{
+		TranspositionTable table = new TranspositionTable(1);
+		// Positions in the same bucket, which are only told apart by the high bits of their hash
+		long[] hashes = new long[TranspositionTable.BUCKET_ENTRIES + 2];
+		for (int i = 0; i < hashes.length; i++)
+			hashes[i] = HASH ^ ((long) (i + 1) << 40);
+
+		for (int i = 0; i < TranspositionTable.BUCKET_ENTRIES; i++)
+			table.store(hashes[i], Move.NONE, i, 10 + i, TranspositionTable.EXACT);
+		for (int i = 0; i < TranspositionTable.BUCKET_ENTRIES; i++)
+			assertThat(TranspositionTable.score(table.probe(hashes[i]))).isEqualTo(i);
+
+		// A full bucket replaces its shallowest entry
+		long newest = hashes[TranspositionTable.BUCKET_ENTRIES];
+		table.store(newest, Move.NONE, 99, 2, TranspositionTable.EXACT);
+		assertThat(table.probe(hashes[0])).isZero();
+		assertThat(TranspositionTable.score(table.probe(newest))).isEqualTo(99);
+
+		// After a few searches, old entries are worth less than shallow new ones
+		for (int i = 0; i < 3; i++)
+		{
+			table.startSearch();
+			table.finishSearch();
+		}
+		table.store(hashes[0], Move.NONE, 5, 1, TranspositionTable.EXACT);
+		assertThat(table.probe(newest)).isZero();
+		table.store(hashes[TranspositionTable.BUCKET_ENTRIES + 1], Move.NONE, 6, 1, TranspositionTable.EXACT);
+		assertThat(table.probe(hashes[1])).isZero();
+		assertThat(table.probe(hashes[0])).isNotZero();
+		// An old result of the same position is replaced even by a shallower bound
+		table.store(hashes[3], Move.NONE, 7, 1, TranspositionTable.UPPER);
+		assertThat(TranspositionTable.depth(table.probe(hashes[3]))).isEqualTo(1);
+	}
+
+	@Test
+	public void testOverlappingSearchesShareAnAge()
+	{
+		TranspositionTable table = new TranspositionTable(1);
+		long[] hashes = new long[TranspositionTable.BUCKET_ENTRIES + 2];
+		for (int i = 0; i < hashes.length; i++)
+			hashes[i] = HASH ^ ((long) (i + 1) << 40);
+		table.startSearch();
+		for (int i = 0; i < TranspositionTable.BUCKET_ENTRIES; i++)
+			table.store(hashes[i], Move.NONE, i, 5 + i, TranspositionTable.EXACT);
+
+		// A search of another game starts while the first one is running, the entries of both stay of the same age
+		table.startSearch();
+		table.store(hashes[TranspositionTable.BUCKET_ENTRIES], Move.NONE, 0, 1, TranspositionTable.EXACT);
+		assertThat(table.probe(hashes[0])).isZero();
+		table.store(hashes[TranspositionTable.BUCKET_ENTRIES + 1], Move.NONE, 0, 1, TranspositionTable.EXACT);
+		assertThat(table.probe(hashes[TranspositionTable.BUCKET_ENTRIES])).isZero();
+		assertThat(table.probe(hashes[1])).isNotZero();
+		table.finishSearch();
+		table.finishSearch();
+	}
+
+	@Test
+	public void testMateScoresAreRelativeToThePosition()
+	{
+		// Mate in 5 plies from the root, found in a position 3 plies from the root
+		int stored = TranspositionTable.toTable(Search.MATE - 5, 3);
+		assertThat(stored).isEqualTo(Search.MATE - 2);
+		// The same position reached 1 ply from the root in another search is mate in 3 plies
+		assertThat(TranspositionTable.fromTable(stored, 1)).isEqualTo(Search.MATE - 3);
+		assertThat(TranspositionTable.fromTable(TranspositionTable.toTable(-Search.MATE + 6, 4), 2)).isEqualTo(-Search.MATE + 4);
+		assertThat(TranspositionTable.toTable(150, 10)).isEqualTo(150);
+	}
+}
@@ -0,0 +1,38 @@
+import { colMappings } from "./TileHelpers";
+
+// The legal moves of the side to move, as sent by the server: tile -> hex bitmask of destination squares
+let legalMoves = null;
+
+/**
+ * Store the legal moves of the side to move, as sent by the "legal-moves" endpoint or in a move response
+ * @param {*} data The legal moves, or null if they are not known
+ */
+export function setLegalMoves(data)
+{
+    legalMoves = data || null;
+}
+
+/**
+ * Get the tiles a piece can move to, without asking the server
+ * @param {string} fromTile The tile of the piece, e.g. "E2"
+ * @returns A list of tiles, or null if the legal moves are not known
+ */
+export function getLegalMoveTiles(fromTile)
+{
+    if (!legalMoves) return null;
+
+    const mask = legalMoves.moves[fromTile];
+    if (!mask) return [];
+
+    // Bit n stands for file n % 8 and rank n / 8, A1 is bit 0
+    const bits = BigInt(`0x${mask}`);
+    const tiles = [];
+    for (let square = 0; square < 64; square++)
+    {
+        if ((bits >> BigInt(square)) & 1n)
+        {
+            tiles.push(`${colMappings[square % 8]}${Math.floor(square / 8) + 1}`);
+        }
+    }
+    return tiles;
+}
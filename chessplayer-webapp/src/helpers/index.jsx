@@ -1 +1,2 @@
 export { getTileColor, getTileId, colMappings } from "./TileHelpers";
+export { setLegalMoves, getLegalMoveTiles } from "./LegalMoves";
@@ -1,4 +1,5 @@
 import { handleMoves, movePiece } from "../views/home";
+import { getLegalMoveTiles } from "../helpers";
 
 const $ = require("jquery");
 
@@ -26,6 +27,14 @@ export function handleDragStart(e) {
         e.dataTransfer.setData("pieceID", e.target.id);
         e.dataTransfer.setData("fromTile", e.target.parentElement.id);
 
+        // Highlight the targets locally if the legal moves are already known
+        const possibleMoves = getLegalMoveTiles(e.target.parentElement.id);
+        if (possibleMoves !== null)
+        {
+            handleMoves({ possibleMoves });
+            return;
+        }
+
         const dataSend = {
             fromTile: e.target.parentElement.id,
             pieceID: e.target.id,
@@ -78,7 +87,7 @@ export function handleDrop(e) {
     };
     if (data.fromTile !== data.toTile) {
         $.ajax({
-            url: "make-move",
+            url: "make-move?includeDelta=true",
             type: "PUT",
             contentType: "application/json; charset=utf-8",
             dataType: "json",
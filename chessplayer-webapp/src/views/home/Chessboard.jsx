@@ -1,10 +1,14 @@
 import React from 'react';
 import TileRow from './TileRow';
-import { getTileId } from '../../helpers';
+import { getTileId, setLegalMoves } from '../../helpers';
 import { playRandomSound } from '../../components/audio';
 
+const $ = require("jquery");
+
 const black = "dimgrey";
 const white = "white";
+// The version of the position the board currently shows
+let boardVersion = 0;
 
 /**
  * Creates and returns the chessboard that will be displayed to the user
@@ -27,7 +31,23 @@ export default function ChessBoard() {
  * @param {*} data A JSON object containing the server's response
  */
 export function movePiece(data) {
-    if (data.legal)
+    // A pushed update may already have brought the board to this version
+    if (data.legalMoves && data.legalMoves.version <= boardVersion) return;
+    // The response contains the legal moves of whoever moves next
+    if (data.legalMoves)
+    {
+        setLegalMoves(data.legalMoves);
+        boardVersion = data.legalMoves.version;
+    }
+    if (data.delta)
+    {
+        sessionStorage.setItem("game_fen", data.delta.fen);
+    }
+    if (data.legal && data.delta)
+    {
+        applyDelta(data.delta, data.pieceID, data.toTile);
+    }
+    else if (data.legal)
     {
         const sourceId = data.pieceID;
         // Tile we are dropping the piece onto
@@ -55,6 +75,47 @@ export function movePiece(data) {
     }
 }
 
+/**
+ * Apply everything a move changed on the board, as sent by the server
+ * @param {*} delta The changed tiles, the rook move when castling and the captured piece
+ * @param {string} sourceId The ID of the moved piece
+ * @param {string} toTile The tile the piece was moved to
+ */
+function applyDelta(delta, sourceId, toTile)
+{
+    // The captured piece is not always on the destination, a pawn captured en passant stands next to it
+    if (delta.capturedTile)
+    {
+        removePieces(document.getElementById(delta.capturedTile));
+        playRandomSound("captureSound");
+    }
+    else
+    {
+        playRandomSound("moveSound");
+    }
+    const piece = document.getElementById(sourceId);
+    document.getElementById(toTile).appendChild(piece);
+    Object.entries(delta.rookMove).forEach(([from, to]) => {
+        const rook = document.getElementById(from).getElementsByClassName("piece")[0];
+        document.getElementById(to).appendChild(rook);
+    });
+    // A promoted pawn shows the piece it was promoted to
+    const letter = delta.changedTiles[toTile];
+    if (letter)
+    {
+        piece.innerText = letter.toUpperCase();
+    }
+    // Tiles the server reports as empty are cleared, whatever the board showed before
+    Object.entries(delta.changedTiles)
+        .filter(([, content]) => content === "")
+        .forEach(([tile]) => removePieces(document.getElementById(tile)));
+}
+
+function removePieces(tile)
+{
+    Array.from(tile.getElementsByClassName("piece")).forEach((piece) => piece.remove());
+}
+
 export function handleMoves(data) {
     data.possibleMoves.forEach(
         (tileID) => {
@@ -73,6 +134,42 @@ export function setupChessboard()
 {
     const fenString = sessionStorage.game_fen;
     parseFen(fenString);
+    $.ajax({
+        url: "legal-moves",
+        type: "GET",
+        dataType: "json",
+        success: (data) => {
+            if (data.version > boardVersion)
+            {
+                setLegalMoves(data);
+                boardVersion = data.version;
+            }
+        },
+    });
+
+    // Moves made by the opponent or in another window are pushed by the server
+    const protocol = window.location.protocol === "https:" ? "wss" : "ws";
+    const socket = new WebSocket(`${protocol}://${window.location.host}${window.location.pathname}live`);
+    socket.onmessage = handleGameEvent;
+}
+
+/**
+ * Apply an update that the server pushed, redrawing the board if it shows a different position
+ * @param {*} message The WebSocket message containing the update
+ */
+function handleGameEvent(message)
+{
+    const data = JSON.parse(message.data);
+    if (data.version <= boardVersion) return;
+
+    boardVersion = data.version;
+    setLegalMoves({ version: data.version, currentTurn: data.currentTurn, moves: data.legalMoves });
+    if (data.fen !== sessionStorage.game_fen)
+    {
+        sessionStorage.setItem("game_fen", data.fen);
+        Array.from(document.getElementsByClassName("piece")).forEach((piece) => piece.remove());
+        parseFen(data.fen);
+    }
 }
 
 function parseFen(fen)